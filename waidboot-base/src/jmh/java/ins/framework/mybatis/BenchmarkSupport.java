@@ -0,0 +1,87 @@
+package ins.framework.mybatis;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 基准测试共用的MappedStatement及不访问数据库的Executor
+ *
+ */
+class BenchmarkSupport {
+
+	static final String SQL = "select id, username, sex, age from userinfo where username like ? and age > ?";
+
+	static final Method QUERY;
+
+	static {
+		try {
+			QUERY = Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class,
+					ResultHandler.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * 与Mapper XML中按条件查询相同形态的select语句
+	 */
+	static MappedStatement selectStatement(Configuration configuration) {
+		List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+		parameterMappings.add(new ParameterMapping.Builder(configuration, "username", String.class).build());
+		parameterMappings.add(new ParameterMapping.Builder(configuration, "age", Integer.class).build());
+		ResultMap resultMap = new ResultMap.Builder(configuration, "bench.selectUser-Inline", Map.class,
+				new ArrayList<ResultMapping>()).build();
+		return new MappedStatement.Builder(configuration, "bench.selectUser",
+				new StaticSqlSource(configuration, SQL, parameterMappings), SqlCommandType.SELECT)
+						.resultMaps(Collections.singletonList(resultMap)).build();
+	}
+
+	static Map<String, Object> parameter() {
+		Map<String, Object> parameter = new HashMap<String, Object>();
+		parameter.put("username", "user%");
+		parameter.put("age", 18);
+		return parameter;
+	}
+
+	/**
+	 * query直接返回空结果的Executor，用于只测量插件本身的开销
+	 */
+	static Executor emptyExecutor() {
+		return (Executor) Proxy.newProxyInstance(Executor.class.getClassLoader(), new Class<?>[] { Executor.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getDeclaringClass() == Object.class) {
+							return method.invoke(this, args);
+						}
+						if ("query".equals(method.getName())) {
+							return Collections.emptyList();
+						}
+						if ("update".equals(method.getName())) {
+							return 0;
+						}
+						return null;
+					}
+				});
+	}
+}
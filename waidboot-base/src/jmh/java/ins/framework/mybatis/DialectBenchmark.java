@@ -0,0 +1,73 @@
+package ins.framework.mybatis;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.miemiedev.mybatis.paginator.dialect.Dialect;
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+import com.github.miemiedev.mybatis.paginator.domain.PageBounds;
+
+/**
+ * 各方言生成分页SQL及count SQL的开销
+ * <p>
+ * 方言在构造时生成SQL，因此测量的是创建方言实例并取得分页SQL、count SQL。
+ * 取第一页，SQLServer方言只支持offset为0的分页；Sybase方言不支持limit分页，未列入。
+ * </p>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialectBenchmark {
+
+	@Param({ "MySQLDialect", "OracleDialect", "DB2Dialect", "PostgreSQLDialect", "SQLServerDialect", "H2Dialect",
+			"HSQLDialect" })
+	public String dialect;
+
+	private DialectFactory dialectFactory;
+	private MappedStatement ms;
+	private Map<String, Object> parameter;
+	private PageBounds page;
+	private PageBounds orderedPage;
+
+	@Setup
+	public void setUp() {
+		dialectFactory = new DialectFactory("com.github.miemiedev.mybatis.paginator.dialect." + dialect);
+		ms = BenchmarkSupport.selectStatement(new Configuration());
+		parameter = BenchmarkSupport.parameter();
+		page = new PageBounds(1, 20);
+		orderedPage = new PageBounds(1, 20, Order.formString("age.desc,id.asc"));
+	}
+
+	@Benchmark
+	public void page(Blackhole blackhole) {
+		Dialect pageDialect = dialectFactory.newDialect(ms, parameter, page);
+		blackhole.consume(pageDialect.getPageSQL());
+		blackhole.consume(pageDialect.getCountSQL());
+	}
+
+	@Benchmark
+	public void orderedPage(Blackhole blackhole) {
+		Dialect pageDialect = dialectFactory.newDialect(ms, parameter, orderedPage);
+		blackhole.consume(pageDialect.getPageSQL());
+		blackhole.consume(pageDialect.getCountSQL());
+	}
+}
@@ -0,0 +1,100 @@
+package ins.framework.mybatis;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.miemiedev.mybatis.paginator.dialect.MySQLDialect;
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+import com.github.miemiedev.mybatis.paginator.domain.PageBounds;
+
+/**
+ * OffsetLimitInterceptor.intercept本身的开销（不含count及数据库访问）及复制MappedStatement的开销
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffsetLimitInterceptorBenchmark {
+
+	private OffsetLimitInterceptor interceptor;
+	private Executor executor;
+	private MappedStatement ms;
+	private Map<String, Object> parameter;
+	private PageBounds page;
+	private PageBounds orderedPage;
+
+	@Setup
+	public void setUp() {
+		interceptor = new OffsetLimitInterceptor();
+		interceptor.setDialectClass(MySQLDialect.class.getName());
+		executor = BenchmarkSupport.emptyExecutor();
+		ms = BenchmarkSupport.selectStatement(new Configuration());
+		parameter = BenchmarkSupport.parameter();
+		page = new PageBounds(3, 20, false);
+		orderedPage = new PageBounds(3, 20, Order.formString("age.desc,id.asc"), false);
+	}
+
+	private Invocation invocation(RowBounds rowBounds) {
+		return new Invocation(executor, BenchmarkSupport.QUERY,
+				new Object[] { ms, parameter, rowBounds, Executor.NO_RESULT_HANDLER });
+	}
+
+	/**
+	 * 不经过插件直接调用Executor，作为对照
+	 */
+	@Benchmark
+	public Object baseline() throws Throwable {
+		return invocation(page).proceed();
+	}
+
+	/**
+	 * 不分页的查询，插件直接放行
+	 */
+	@Benchmark
+	public Object noPaging() throws Throwable {
+		return interceptor.intercept(invocation(RowBounds.DEFAULT));
+	}
+
+	/**
+	 * 分页不count：生成方言SQL、取得缓存的分页MappedStatement、组装参数
+	 */
+	@Benchmark
+	public Object page() throws Throwable {
+		return interceptor.intercept(invocation(page));
+	}
+
+	/**
+	 * 带排序的分页不count
+	 */
+	@Benchmark
+	public Object orderedPage() throws Throwable {
+		return interceptor.intercept(invocation(orderedPage));
+	}
+
+	/**
+	 * 复制MappedStatement，分页MappedStatement缓存未命中时的开销
+	 */
+	@Benchmark
+	public MappedStatement copyFromMappedStatement() {
+		return interceptor.copyFromMappedStatement(ms, ms.getSqlSource());
+	}
+}
@@ -0,0 +1,129 @@
+package ins.framework.mybatis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+/**
+ * 在内嵌H2数据库上端到端执行UserinfoDao.selectPage
+ * <p>
+ * 使用项目中的Mapper XML及分页插件，方言由插件按数据源检测；关闭二级缓存，每次都访问数据库。
+ * </p>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectPageBenchmark {
+
+	private static final int ROWS = 10000;
+
+	/** 页码 */
+	@Param({ "1", "100" })
+	public int page;
+
+	private PooledDataSource dataSource;
+	private SqlSessionFactory sqlSessionFactory;
+	private Userinfo condition;
+
+	@Setup
+	public void setUp() throws Exception {
+		dataSource = new PooledDataSource("org.h2.Driver", "jdbc:h2:mem:selectPage;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		createTable();
+		Configuration configuration = new Configuration(
+				new Environment("bench", new JdbcTransactionFactory(), dataSource));
+		configuration.setCacheEnabled(false);
+		OffsetLimitInterceptor offsetLimitInterceptor = new OffsetLimitInterceptor();
+		configuration.addInterceptor(offsetLimitInterceptor);
+		MapperLocations.parse(configuration,
+				new Resource[] { new ClassPathResource("mapper/base/userinfo/UserinfoBaseDao.xml"),
+						new ClassPathResource("mapper/custom/userinfo/UserinfoDao.xml") });
+		offsetLimitInterceptor.registerDialect("bench", configuration);
+		sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+		condition = new Userinfo();
+		condition.setSex(1);
+	}
+
+	private void createTable() throws Exception {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("drop table if exists userinfo");
+			statement.execute("create table userinfo (id bigint primary key, username varchar(50), sex int, age int)");
+			statement.execute("create index idx_userinfo_sex on userinfo (sex)");
+			statement.close();
+			PreparedStatement insert = connection.prepareStatement("insert into userinfo values (?, ?, ?, ?)");
+			for (int i = 1; i <= ROWS; i++) {
+				insert.setLong(1, i);
+				insert.setString(2, "user" + i);
+				insert.setInt(3, i % 2);
+				insert.setInt(4, 18 + i % 50);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 查询一页并count总记录数
+	 */
+	@Benchmark
+	public Page<Userinfo> selectPage() {
+		return selectPage(new PageParam(page, 20));
+	}
+
+	/**
+	 * 只查询一页，不count
+	 */
+	@Benchmark
+	public Page<Userinfo> selectPageWithoutCount() {
+		return selectPage(new PageParam(page, 20, false));
+	}
+
+	private Page<Userinfo> selectPage(PageParam pageParam) {
+		SqlSession session = sqlSessionFactory.openSession();
+		try {
+			return session.getMapper(UserinfoDao.class).selectPage(pageParam, condition);
+		} finally {
+			session.close();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package ins.framework.mybatis;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StatementMetricsInterceptor每次调用的额外开销，应远小于1微秒
+ * <p>
+ * intercepted与baseline之差即插件的开销（含Plugin代理本身），只经过Executor的拦截；经过StatementHandler的端到端开销见StatementMetricsH2Benchmark。
+ * </p>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementMetricsBenchmark {
+
+	private Executor executor;
+	private Executor intercepted;
+	private MappedStatement ms;
+	private Map<String, Object> parameter;
+	private LatencyHistogram histogram;
+
+	@Setup
+	public void setUp() {
+		executor = BenchmarkSupport.emptyExecutor();
+		intercepted = (Executor) new StatementMetricsInterceptor("bench").plugin(executor);
+		ms = BenchmarkSupport.selectStatement(new Configuration());
+		parameter = BenchmarkSupport.parameter();
+		histogram = new LatencyHistogram();
+	}
+
+	@Benchmark
+	public Object baseline() throws Exception {
+		return executor.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+	}
+
+	@Benchmark
+	public Object intercepted() throws Exception {
+		return intercepted.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+	}
+
+	/**
+	 * 多线程同时记录同一语句
+	 */
+	@Benchmark
+	@Threads(4)
+	public Object interceptedContended() throws Exception {
+		return intercepted.query(ms, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+	}
+
+	@Benchmark
+	public void histogramRecord() {
+		histogram.record(123456);
+	}
+}
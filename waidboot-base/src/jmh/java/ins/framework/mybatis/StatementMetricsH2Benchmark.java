@@ -0,0 +1,109 @@
+package ins.framework.mybatis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+/**
+ * 在内嵌H2数据库上端到端比较启用与不启用StatementMetricsInterceptor的耗时
+ * <p>
+ * 与StatementMetricsBenchmark只代理空Executor不同，这里经过真实的StatementHandler（prepare、query），
+ * 包括每次调用创建Call对象及ThreadLocal的设置与恢复。插件与生产配置一样放在分页插件之后。metrics=true与metrics=false之差即插件在真实调用中的开销，单核机器上结果波动较大，需多次fork并充分预热。
+ * </p>
+ * <p>
+ * 所有调用共用一个SqlSession，一级缓存范围为STATEMENT，避免每次取连接的耗时波动掩盖插件的开销，同时每次调用都执行SQL；
+ * 关闭MyBatis的日志，否则测到的主要是输出SQL日志的耗时。
+ * </p>
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="StatementMetricsH2 -f 3 -wi 15 -i 10"
+ * </pre>
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 15, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class StatementMetricsH2Benchmark {
+
+	private static final int ROWS = 1000;
+
+	/** 是否启用StatementMetricsInterceptor */
+	@Param({ "false", "true" })
+	public boolean metrics;
+
+	private PooledDataSource dataSource;
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private SqlSession session;
+	private UserinfoDao dao;
+	private Userinfo condition;
+	private long id;
+
+	@Setup
+	public void setUp() throws Exception {
+		// 须在解析Mapper XML之前设置
+		LogFactory.useNoLogging();
+		dataSource = H2Support.userinfoDataSource("statementMetrics");
+		long[] ids = new long[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			ids[i] = i + 1;
+		}
+		H2Support.insertUserinfo(dataSource, 1, ids);
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		Interceptor[] interceptors = metrics ? new Interceptor[] { new StatementMetricsInterceptor("bench") }
+				: new Interceptor[0];
+		SqlSessionFactory sqlSessionFactory = H2Support.userinfoSqlSessionFactory("bench", dataSource,
+				offsetLimitInterceptor, interceptors);
+		sqlSessionFactory.getConfiguration().setLocalCacheScope(LocalCacheScope.STATEMENT);
+		session = sqlSessionFactory.openSession();
+		dao = session.getMapper(UserinfoDao.class);
+		condition = new Userinfo();
+		condition.setSex(1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+		offsetLimitInterceptor.close();
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 按主键查询一条记录：一次Executor.query、一次prepare及一次StatementHandler.query
+	 */
+	@Benchmark
+	public Userinfo selectByPrimaryKey() {
+		id = id % ROWS + 1;
+		return dao.selectByPrimaryKey(id);
+	}
+
+	/**
+	 * 查询一页并count：改写后的列表查询经过StatementHandler，count语句由分页插件直接执行，计入整次调用的耗时
+	 */
+	@Benchmark
+	public Page<Userinfo> selectPage() {
+		return dao.selectPage(new PageParam(1, 20), condition);
+	}
+}
@@ -6,7 +6,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
 @EnableAutoConfiguration
-@ComponentScan("com") //扫描下面的包@service @controller 等  
+@ComponentScan({"com", "ins.framework.mybatis"}) //扫描下面的包@service @controller 等  
 @SpringBootApplication
 public class WaidbootBaseApplication {
 
@@ -6,6 +6,9 @@
  */
 package com.waidboot.addressinfo.service.facade;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 import com.waidboot.vo.addressinfo.AddressinfoVo;
 
 /**
@@ -18,4 +21,17 @@ public interface AddressInfoService {
 	public void saveAddressInfo(AddressinfoVo addressinfoVo);
 	public AddressinfoVo queryAddressInfo(Long id);
 
+	/**
+	 * 在secondDataSource的线程池中保存，不占用调用线程
+	 */
+	public CompletableFuture<Void> saveAddressInfoAsync(AddressinfoVo addressinfoVo);
+	/**
+	 * 在secondDataSource的线程池中查询，不占用调用线程
+	 */
+	public CompletableFuture<AddressinfoVo> queryAddressInfoAsync(Long id);
+	/**
+	 * 按条件逐行查询，每读取一行回调一次consumer，不在内存中保存全部结果
+	 */
+	public void streamAddressInfos(AddressinfoVo condition, Consumer<? super AddressinfoVo> consumer);
+
 }
@@ -6,15 +6,23 @@
  */
 package com.waidboot.addressinfo.service.impl;
 
-import org.springframework.beans.BeanUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import com.waidboot.addressinfo.service.facade.AddressInfoService;
+import com.waidboot.converter.addressinfo.AddressinfoConverter;
 import com.waidboot.dao.secondsource.addressinfo.AddressinfoDao;
 import com.waidboot.po.addressinfo.Addressinfo;
 import com.waidboot.vo.addressinfo.AddressinfoVo;
 
+import ins.framework.datasource.DataSourceExecutor;
+import ins.framework.mybatis.ConsumerResultHandler;
+
 /**
  * 作者：王亚冬
  * 时间：2017-01-23
@@ -25,15 +33,16 @@ public class AddressInfoServiceImpl implements AddressInfoService{
 
 	@Autowired
 	private AddressinfoDao addressinfoDao;
+	@Autowired
+	@Qualifier("secondDataSourceExecutor")
+	private DataSourceExecutor secondDataSourceExecutor;
 	
 	/* (non-Javadoc)
 	 * @see com.waidboot.addressinfo.service.facade.AddressInfoService#saveAddressInfo()
 	 */
 	@Override
 	public void saveAddressInfo(AddressinfoVo addressinfoVo) {
-		Addressinfo addressinfo = new Addressinfo();
-		BeanUtils.copyProperties(addressinfoVo, addressinfo);
-		addressinfoDao.insert(addressinfo);
+		addressinfoDao.insert(AddressinfoConverter.toPo(addressinfoVo));
 	}
 
 	/* (non-Javadoc)
@@ -41,12 +50,41 @@ public class AddressInfoServiceImpl implements AddressInfoService{
 	 */
 	@Override
 	public AddressinfoVo queryAddressInfo(Long id) {
-		Addressinfo addressinfo = addressinfoDao.selectByPrimaryKey(id);
-		AddressinfoVo addressinfoVo = new AddressinfoVo();
-		if(addressinfo != null){
-			BeanUtils.copyProperties(addressinfoVo, addressinfoVo);
-		}
-		return addressinfoVo;
+		AddressinfoVo addressinfoVo = AddressinfoConverter.toVo(addressinfoDao.selectByPrimaryKey(id));
+		// 记录不存在时返回空对象
+		return addressinfoVo != null ? addressinfoVo : new AddressinfoVo();
+	}
+
+	@Override
+	public void streamAddressInfos(AddressinfoVo condition, final Consumer<? super AddressinfoVo> consumer) {
+		Addressinfo addressinfo = condition == null ? new Addressinfo() : AddressinfoConverter.toPo(condition);
+		addressinfoDao.streamByEntity(addressinfo, ConsumerResultHandler.of(new Consumer<Addressinfo>() {
+			@Override
+			public void accept(Addressinfo row) {
+				consumer.accept(AddressinfoConverter.toVo(row));
+			}
+		}));
+	}
+
+	@Override
+	public CompletableFuture<Void> saveAddressInfoAsync(final AddressinfoVo addressinfoVo) {
+		return secondDataSourceExecutor.supply(new Supplier<Void>() {
+			@Override
+			public Void get() {
+				saveAddressInfo(addressinfoVo);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<AddressinfoVo> queryAddressInfoAsync(final Long id) {
+		return secondDataSourceExecutor.supply(new Supplier<AddressinfoVo>() {
+			@Override
+			public AddressinfoVo get() {
+				return queryAddressInfo(id);
+			}
+		});
 	}
 
 }
@@ -1,13 +1,28 @@
 package com.waidboot.addressinfo.web;
 
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.waidboot.addressinfo.service.facade.AddressInfoService;
+import com.waidboot.common.web.async.DeferredResults;
 import com.waidboot.common.web.constant.RestConstants;
 import com.waidboot.common.web.vo.RestCommonData;
 import com.waidboot.vo.addressinfo.AddressinfoVo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ins.framework.mybatis.StreamingRows;
 import com.waidboot.vo.userinfo.UserinfoVo;
 
 @RestController
@@ -15,6 +30,13 @@ public class AddressInfoController {
 	
 	@Autowired
 	private AddressInfoService addressInfoService;
+	/** 异步请求的超时时间（毫秒） */
+	@Value("${rest.async.timeoutMillis:5000}")
+	private long asyncTimeoutMillis;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private Semaphore exportPermits;
 	
 	@RequestMapping("addressinfo/save")
 	public RestCommonData addUserInfo(){
@@ -27,4 +49,41 @@ public class AddressInfoController {
 		res.setResDescribe(RestConstants.SUCCESS.describe);
 		return res;
 	}
+
+	/**
+	 * 在数据源线程池中保存，Servlet线程不等待数据库；超时后保存继续执行，返回processing
+	 */
+	@RequestMapping("addressinfo/saveAsync")
+	public DeferredResult<RestCommonData> addAddressInfoAsync(){
+		AddressinfoVo addressinfoVo = new AddressinfoVo();
+		addressinfoVo.setUserid(1L);
+		addressinfoVo.setAddressinfo("呼伦贝尔");
+		return DeferredResults.ofWrite(addressInfoService.saveAddressInfoAsync(addressinfoVo), asyncTimeoutMillis);
+	}
+
+	/**
+	 * 在数据源线程池中按主键查询，Servlet线程不等待数据库
+	 */
+	@RequestMapping("addressinfo/getAsync")
+	public DeferredResult<RestCommonData> getAddressInfoAsync(@RequestParam Long id){
+		return DeferredResults.of(addressInfoService.queryAddressInfoAsync(id), asyncTimeoutMillis);
+	}
+
+	/**
+	 * 按条件导出，逐行写入响应而不是组装成Page
+	 *
+	 * @param format
+	 *            ndjson（默认）或csv
+	 */
+	@RequestMapping("addressinfo/export")
+	public ResponseEntity<StreamingResponseBody> export(final AddressinfoVo condition,
+			@RequestParam(required = false) String format, HttpServletRequest request){
+		return StreamingRows.response(exportPermits, StreamingRows.Format.of(format), "addressinfo",
+				StreamingRows.acceptsGzip(request), objectMapper, new StreamingRows.RowSource<AddressinfoVo>() {
+					@Override
+					public void forEach(Consumer<? super AddressinfoVo> consumer) {
+						addressInfoService.streamAddressInfos(condition, consumer);
+					}
+				});
+	}
 }
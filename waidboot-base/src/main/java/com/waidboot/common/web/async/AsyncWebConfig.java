@@ -0,0 +1,51 @@
+package com.waidboot.common.web.async;
+
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * 说明：Spring MVC异步处理（StreamingResponseBody、Callable）使用的有界线程池及同时导出数的限制。
+ * 未配置时Spring MVC为每个异步请求新建线程（SimpleAsyncTaskExecutor），导出期间每个线程一直占用一个数据库连接；
+ * 同时进行的导出数超过 rest.export.maxConcurrent 时，*&#47;export接口直接返回503，不占用线程及连接。
+ */
+@Configuration
+public class AsyncWebConfig extends WebMvcConfigurerAdapter {
+
+	/** 同时进行的导出数，应小于各数据源连接池的最大连接数 */
+	@Value("${rest.export.maxConcurrent:4}")
+	private int maxConcurrentExports;
+
+	/**
+	 * 异步处理的线程池，线程数与同时导出数相同
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(Math.max(maxConcurrentExports, 1));
+		executor.setMaxPoolSize(Math.max(maxConcurrentExports, 1));
+		// 导出结束释放许可时线程可能尚未归还，留出与线程数相同的队列
+		executor.setQueueCapacity(Math.max(maxConcurrentExports, 1));
+		executor.setAllowCoreThreadTimeOut(true);
+		executor.setThreadNamePrefix("mvc-async-");
+		return executor;
+	}
+
+	/**
+	 * 导出许可，取得后才开始导出，导出结束（StreamingRows写完或失败）时释放
+	 */
+	@Bean
+	public Semaphore exportPermits() {
+		return new Semaphore(Math.max(maxConcurrentExports, 1));
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(mvcAsyncExecutor());
+	}
+}
@@ -0,0 +1,104 @@
+package com.waidboot.common.web.async;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.waidboot.common.web.constant.RestConstants;
+import com.waidboot.common.web.vo.RestCommonData;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 说明：把Service返回的CompletableFuture转换为@RestController返回的DeferredResult，
+ * Servlet线程在等待数据库期间即被释放；超时、线程池已满、执行失败分别返回对应的RestCommonData响应代码。
+ * 读操作使用of，写操作使用ofWrite：写操作超时后不会中止，返回PROCESSING而不是TIMEOUT。
+ */
+@Slf4j
+public class DeferredResults {
+
+	private DeferredResults() {
+	}
+
+	/**
+	 * 用于读操作：超时后返回TIMEOUT并取消future
+	 * <p>
+	 * 取消只能使尚未开始执行的任务不再执行，已经在执行的任务会继续执行直到完成，只是结果不再返回给调用方；
+	 * 写操作请使用{@link #ofWrite(CompletableFuture, long)}
+	 * </p>
+	 *
+	 * @param future
+	 *            Service返回的异步结果，结果放入dataObj
+	 * @param timeoutMillis
+	 *            超时时间（毫秒）
+	 * @return DeferredResult
+	 */
+	public static <T> DeferredResult<RestCommonData> of(final CompletableFuture<T> future, long timeoutMillis) {
+		DeferredResult<RestCommonData> deferredResult = new DeferredResult<RestCommonData>(timeoutMillis,
+				result(RestConstants.TIMEOUT.code, RestConstants.TIMEOUT.describe, null));
+		deferredResult.onTimeout(new Runnable() {
+			@Override
+			public void run() {
+				future.cancel(false);
+			}
+		});
+		complete(deferredResult, future);
+		return deferredResult;
+	}
+
+	/**
+	 * 用于写操作：超时后返回PROCESSING，不取消future
+	 * <p>
+	 * 已经开始执行的写操作无法中止，超时时可能已经提交，返回TIMEOUT会使调用方重试并重复写入；
+	 * 因此超时后任务继续执行，调用方需查询结果而不是重试
+	 * </p>
+	 *
+	 * @param future
+	 *            Service返回的异步结果，结果放入dataObj
+	 * @param timeoutMillis
+	 *            超时时间（毫秒）
+	 * @return DeferredResult
+	 */
+	public static <T> DeferredResult<RestCommonData> ofWrite(CompletableFuture<T> future, long timeoutMillis) {
+		DeferredResult<RestCommonData> deferredResult = new DeferredResult<RestCommonData>(timeoutMillis,
+				result(RestConstants.PROCESSING.code, RestConstants.PROCESSING.describe, null));
+		complete(deferredResult, future);
+		return deferredResult;
+	}
+
+	private static <T> void complete(final DeferredResult<RestCommonData> deferredResult, CompletableFuture<T> future) {
+		future.whenComplete(new BiConsumer<T, Throwable>() {
+			@Override
+			public void accept(T value, Throwable error) {
+				if (error == null) {
+					deferredResult.setResult(result(RestConstants.SUCCESS.code, RestConstants.SUCCESS.describe, value));
+					return;
+				}
+				Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+						: error;
+				if (cause instanceof CancellationException) {
+					// 已超时返回
+					return;
+				}
+				if (cause instanceof RejectedExecutionException) {
+					deferredResult.setResult(result(RestConstants.BUSY.code, RestConstants.BUSY.describe, null));
+				} else {
+					log.error("Async request failed", cause);
+					deferredResult.setResult(result(RestConstants.ERROR.code, RestConstants.ERROR.describe, null));
+				}
+			}
+		});
+	}
+
+	private static RestCommonData result(String code, String describe, Object dataObj) {
+		RestCommonData res = new RestCommonData();
+		res.setResCode(code);
+		res.setResDescribe(describe);
+		res.setDataObj(dataObj);
+		return res;
+	}
+}
@@ -16,4 +16,32 @@ public class RestConstants {
 		public static final String code = "success";
 		public static final String describe = "请求成功！";
 	}
+	/**
+	 * 异步请求在超时时间内未完成
+	 */
+	public static class TIMEOUT{
+		public static final String code = "timeout";
+		public static final String describe = "请求超时，请稍后重试！";
+	}
+	/**
+	 * 异步写操作在超时时间内未完成，但仍在执行（可能已经写入），不能据此重试
+	 */
+	public static class PROCESSING{
+		public static final String code = "processing";
+		public static final String describe = "请求已受理，正在处理中，请勿重复提交！";
+	}
+	/**
+	 * 数据源线程池已满，请求被拒绝
+	 */
+	public static class BUSY{
+		public static final String code = "busy";
+		public static final String describe = "系统繁忙，请稍后重试！";
+	}
+	/**
+	 * 请求处理失败
+	 */
+	public static class ERROR{
+		public static final String code = "error";
+		public static final String describe = "请求失败！";
+	}
 }
@@ -0,0 +1,76 @@
+package com.waidboot.converter.addressinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.waidboot.po.addressinfo.Addressinfo;
+import com.waidboot.vo.addressinfo.AddressinfoVo;
+
+import ins.framework.mybatis.Page;
+
+/**
+ *
+ * 通过ins-framework-mybatis工具自动生成，请勿手工修改。表addressinfo的PO与VO转换类<br/>
+ * 直接调用getter/setter复制字段，参数为null时返回null
+ *
+ */
+public final class AddressinfoConverter {
+
+	private AddressinfoConverter() {
+	}
+
+	public static AddressinfoVo toVo(Addressinfo source) {
+		if (source == null) {
+			return null;
+		}
+		AddressinfoVo target = new AddressinfoVo();
+		target.setId(source.getId());
+		target.setUserid(source.getUserid());
+		target.setAddressinfo(source.getAddressinfo());
+		return target;
+	}
+
+	public static Addressinfo toPo(AddressinfoVo source) {
+		if (source == null) {
+			return null;
+		}
+		Addressinfo target = new Addressinfo();
+		target.setId(source.getId());
+		target.setUserid(source.getUserid());
+		target.setAddressinfo(source.getAddressinfo());
+		return target;
+	}
+
+	public static List<AddressinfoVo> toVoList(List<Addressinfo> source) {
+		if (source == null) {
+			return null;
+		}
+		List<AddressinfoVo> target = new ArrayList<AddressinfoVo>(source.size());
+		for (Addressinfo element : source) {
+			target.add(toVo(element));
+		}
+		return target;
+	}
+
+	public static List<Addressinfo> toPoList(List<AddressinfoVo> source) {
+		if (source == null) {
+			return null;
+		}
+		List<Addressinfo> target = new ArrayList<Addressinfo>(source.size());
+		for (AddressinfoVo element : source) {
+			target.add(toPo(element));
+		}
+		return target;
+	}
+
+	public static Page<AddressinfoVo> toVoPage(Page<Addressinfo> source) {
+		if (source == null) {
+			return null;
+		}
+		Page<AddressinfoVo> target = new Page<AddressinfoVo>(toVoList(source), source.getPaginator());
+		target.setNextPageToken(source.getNextPageToken());
+		target.setCountStrategy(source.getCountStrategy());
+		target.setTotalCountTruncated(source.isTotalCountTruncated());
+		return target;
+	}
+}
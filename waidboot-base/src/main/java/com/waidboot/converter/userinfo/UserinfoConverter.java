@@ -0,0 +1,78 @@
+package com.waidboot.converter.userinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.waidboot.po.userinfo.Userinfo;
+import com.waidboot.vo.userinfo.UserinfoVo;
+
+import ins.framework.mybatis.Page;
+
+/**
+ *
+ * 通过ins-framework-mybatis工具自动生成，请勿手工修改。表userinfo的PO与VO转换类<br/>
+ * 直接调用getter/setter复制字段，参数为null时返回null
+ *
+ */
+public final class UserinfoConverter {
+
+	private UserinfoConverter() {
+	}
+
+	public static UserinfoVo toVo(Userinfo source) {
+		if (source == null) {
+			return null;
+		}
+		UserinfoVo target = new UserinfoVo();
+		target.setId(source.getId());
+		target.setUsername(source.getUsername());
+		target.setSex(source.getSex());
+		target.setAge(source.getAge());
+		return target;
+	}
+
+	public static Userinfo toPo(UserinfoVo source) {
+		if (source == null) {
+			return null;
+		}
+		Userinfo target = new Userinfo();
+		target.setId(source.getId());
+		target.setUsername(source.getUsername());
+		target.setSex(source.getSex());
+		target.setAge(source.getAge());
+		return target;
+	}
+
+	public static List<UserinfoVo> toVoList(List<Userinfo> source) {
+		if (source == null) {
+			return null;
+		}
+		List<UserinfoVo> target = new ArrayList<UserinfoVo>(source.size());
+		for (Userinfo element : source) {
+			target.add(toVo(element));
+		}
+		return target;
+	}
+
+	public static List<Userinfo> toPoList(List<UserinfoVo> source) {
+		if (source == null) {
+			return null;
+		}
+		List<Userinfo> target = new ArrayList<Userinfo>(source.size());
+		for (UserinfoVo element : source) {
+			target.add(toPo(element));
+		}
+		return target;
+	}
+
+	public static Page<UserinfoVo> toVoPage(Page<Userinfo> source) {
+		if (source == null) {
+			return null;
+		}
+		Page<UserinfoVo> target = new Page<UserinfoVo>(toVoList(source), source.getPaginator());
+		target.setNextPageToken(source.getNextPageToken());
+		target.setCountStrategy(source.getCountStrategy());
+		target.setTotalCountTruncated(source.isTotalCountTruncated());
+		return target;
+	}
+}
@@ -1,30 +1,177 @@
 package com.waidboot.database.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
-import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.bind.PropertySourcesPropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import ins.framework.datasource.DataSourceExecutor;
+import ins.framework.datasource.ReadWriteRoutingContext;
+import ins.framework.datasource.ReadWriteRoutingDataSource;
+import ins.framework.datasource.ReadWriteRoutingFilter;
 
+/**
+ * 数据源配置
+ * <p>
+ * 每个逻辑数据源由一个主库及 spring.datasource.replicas.&lt;逻辑数据源&gt;.&lt;从库名称&gt; 下配置的从库组成，
+ * 从库未配置的连接池参数沿用主库的配置，weight为轮询权重。配置了从库时mainDataSource/secondDataSource为读写分离的路由数据源，
+ * 否则直接为主库。主库、路由数据源及从库连接池不是单独的Bean（每个DataSource Bean初始化时Spring Boot都会取得@Primary的数据源初始化，
+ * 主库作为Bean时与mainDataSource循环依赖），在本配置类销毁时关闭。
+ * </p>
+ */
 @Configuration
-public class DataSourceConfig {
-	
+public class DataSourceConfig implements DisposableBean {
+
+	@Autowired
+	private ConfigurableEnvironment environment;
+	/** 读写分离的路由数据源，关闭时停止复制延迟检查 */
+	private final List<ReadWriteRoutingDataSource> routingDataSources = new ArrayList<ReadWriteRoutingDataSource>();
+	/** 各路由数据源的从库连接池 */
+	private final List<DataSource> replicaDataSources = new ArrayList<DataSource>();
+	/** 按逻辑数据源名称创建的主库连接池 */
+	private final Map<String, DataSource> writerDataSources = new HashMap<String, DataSource>();
+
 	@Primary
 	@Bean(name = "mainDataSource")
-    @Qualifier("mainDataSource")
-    @ConfigurationProperties(prefix="spring.datasource.primary")
-    public DataSource primaryDataSource() {
-        return DataSourceBuilder.create().build();
-    }
-	
-	
+	@Qualifier("mainDataSource")
+	public DataSource primaryDataSource() {
+		return routingDataSource("primary", writerDataSource("primary"));
+	}
+
 	@Bean(name = "secondDataSource")
-    @Qualifier("secondDataSource")
-    @ConfigurationProperties(prefix="spring.datasource.secondary")
-    public DataSource secondaryDataSource() {
-        return DataSourceBuilder.create().build();
-    }
+	@Qualifier("secondDataSource")
+	public DataSource secondaryDataSource() {
+		return routingDataSource("secondary", writerDataSource("secondary"));
+	}
+
+	/**
+	 * mainDataSource专用的线程池，用于异步访问数据库
+	 */
+	@Bean(name = "mainDataSourceExecutor", destroyMethod = "shutdown")
+	public DataSourceExecutor mainDataSourceExecutor() {
+		return dataSourceExecutor("primary", writerDataSource("primary"));
+	}
+
+	/**
+	 * secondDataSource专用的线程池，用于异步访问数据库
+	 */
+	@Bean(name = "secondDataSourceExecutor", destroyMethod = "shutdown")
+	public DataSourceExecutor secondDataSourceExecutor() {
+		return dataSourceExecutor("secondary", writerDataSource("secondary"));
+	}
+
+	/**
+	 * 请求结束时清除读写分离上下文
+	 */
+	@Bean
+	public ReadWriteRoutingFilter readWriteRoutingFilter() {
+		return new ReadWriteRoutingFilter();
+	}
+
+	/**
+	 * 逻辑数据源的主库连接池，配置在 spring.datasource.&lt;逻辑数据源&gt; 下，同一名称只创建一次
+	 */
+	private synchronized DataSource writerDataSource(String name) {
+		DataSource writer = writerDataSources.get(name);
+		if (writer == null) {
+			writer = buildDataSource(environment, "spring.datasource." + name);
+			writerDataSources.put(name, writer);
+		}
+		return writer;
+	}
+
+	private DataSource routingDataSource(String name, DataSource writer) {
+		RelaxedPropertyResolver replicaResolver = new RelaxedPropertyResolver(environment,
+				"spring.datasource.replicas." + name + ".");
+		Set<String> replicaNames = new LinkedHashSet<String>();
+		for (String key : replicaResolver.getSubProperties("").keySet()) {
+			int dot = key.indexOf('.');
+			if (dot > 0) {
+				replicaNames.add(key.substring(0, dot));
+			}
+		}
+		if (replicaNames.isEmpty()) {
+			return writer;
+		}
+		RelaxedPropertyResolver routingResolver = new RelaxedPropertyResolver(environment, "spring.datasource.routing.");
+		ReadWriteRoutingContext.setStickyMillis(
+				routingResolver.getProperty("sticky-millis", Long.class, ReadWriteRoutingContext.DEFAULT_STICKY_MILLIS));
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(name, writer);
+		routingDataSources.add(routingDataSource);
+		routingDataSource.setMaxLagSeconds(routingResolver.getProperty("max-lag-seconds", Long.class, 0L));
+		routingDataSource.setLagCheckIntervalMillis(
+				routingResolver.getProperty("lag-check-interval-millis", Long.class, 5000L));
+		routingDataSource.setLagQuery(
+				routingResolver.getProperty("lag-query", ReadWriteRoutingDataSource.DEFAULT_LAG_QUERY));
+		routingDataSource.setLagColumn(
+				routingResolver.getProperty("lag-column", ReadWriteRoutingDataSource.DEFAULT_LAG_COLUMN));
+		for (String replicaName : replicaNames) {
+			DataSource replica = buildDataSource(environment, "spring.datasource." + name,
+					"spring.datasource.replicas." + name + "." + replicaName);
+			replicaDataSources.add(replica);
+			routingDataSource.addReplica(replicaName, replica,
+					replicaResolver.getProperty(replicaName + ".weight", Integer.class, 1));
+		}
+		routingDataSource.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+	/**
+	 * 创建数据源专用的线程池，线程数默认为主库连接池的最大连接数，可在 spring.datasource.executor.&lt;逻辑数据源&gt; 下
+	 * 配置threads及queue-capacity（默认与线程数相同）
+	 */
+	private DataSourceExecutor dataSourceExecutor(String name, DataSource writer) {
+		RelaxedPropertyResolver resolver = new RelaxedPropertyResolver(environment,
+				"spring.datasource.executor." + name + ".");
+		int maxActive = PoolProperties.DEFAULT_MAX_ACTIVE;
+		if (writer instanceof org.apache.tomcat.jdbc.pool.DataSource) {
+			maxActive = ((org.apache.tomcat.jdbc.pool.DataSource) writer).getMaxActive();
+		}
+		int threads = resolver.getProperty("threads", Integer.class, maxActive);
+		return new DataSourceExecutor(name, threads, resolver.getProperty("queue-capacity", Integer.class, threads));
+	}
+
+	@Override
+	public void destroy() {
+		for (ReadWriteRoutingDataSource routingDataSource : routingDataSources) {
+			routingDataSource.close();
+		}
+		List<DataSource> dataSources = new ArrayList<DataSource>(replicaDataSources);
+		dataSources.addAll(writerDataSources.values());
+		for (DataSource dataSource : dataSources) {
+			if (dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource) {
+				((org.apache.tomcat.jdbc.pool.DataSource) dataSource).close();
+			}
+		}
+	}
+
+	/**
+	 * 创建连接池并依次绑定各前缀下的配置，后面的配置覆盖前面的配置
+	 */
+	static DataSource buildDataSource(ConfigurableEnvironment environment, String... prefixes) {
+		DataSource dataSource = DataSourceBuilder.create().build();
+		for (String prefix : prefixes) {
+			RelaxedDataBinder binder = new RelaxedDataBinder(dataSource, prefix);
+			binder.bind(new PropertySourcesPropertyValues(environment.getPropertySources()));
+		}
+		return dataSource;
+	}
 }
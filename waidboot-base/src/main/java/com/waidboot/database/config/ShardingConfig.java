@@ -0,0 +1,147 @@
+package com.waidboot.database.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+import ins.framework.mybatis.ColumnarResultSetInterceptor;
+import ins.framework.mybatis.NamedThreadFactory;
+import ins.framework.mybatis.MapperLocations;
+import ins.framework.mybatis.OffsetLimitInterceptor;
+import ins.framework.mybatis.PrimaryKeyBatchInterceptor;
+import ins.framework.mybatis.SqlSessionFactorySettings;
+import ins.framework.mybatis.SlowSqlInterceptor;
+import ins.framework.mybatis.StartupTimingReport;
+import ins.framework.mybatis.StatementMetricsInterceptor;
+import ins.framework.mybatis.StatementStatisticsInterceptor;
+import ins.framework.mybatis.cache.InvalidationBus;
+import ins.framework.mybatis.cache.NearCacheInvalidationInterceptor;
+import ins.framework.mybatis.shard.HashShardStrategy;
+import ins.framework.mybatis.shard.ShardedMybatisDao;
+
+/**
+ * userinfo表按id hash分片的配置
+ * <p>
+ * 配置 spring.datasource.sharding.userinfo.shards=shard0,shard1 后生效，
+ * 各分片的连接配置在 spring.datasource.sharding.userinfo.&lt;分片名称&gt; 下，未配置的连接池参数沿用spring.datasource.primary。
+ * 分片的Dao为shardedUserinfoDao，原有的userinfoDao仍然使用mainDataSource。
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.sharding.userinfo", name = "shards")
+public class ShardingConfig implements DisposableBean {
+
+	private static final String PREFIX = "spring.datasource.sharding.userinfo";
+
+	@Autowired
+	private ConfigurableEnvironment environment;
+	@Autowired
+	private PrimaryKeyBatchInterceptor primaryKeyBatchInterceptor;
+	@Autowired
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	@Autowired
+	private NearCacheInvalidationInterceptor nearCacheInvalidationInterceptor;
+	@Autowired
+	private ColumnarResultSetInterceptor columnarResultSetInterceptor;
+	@Autowired
+	private SlowSqlInterceptor slowSqlInterceptor;
+	@Autowired
+	private StartupTimingReport startupTimingReport;
+	@Autowired
+	private InvalidationBus invalidationBus;
+	@Value("${mybatis.mapperLocations}")
+	private Resource[] mapperLocations;
+	@Value("${" + PREFIX + ".shards}")
+	private String shardNames;
+	/** 并行查询各分片的线程数，默认为分片数的2倍 */
+	@Value("${" + PREFIX + ".threads:0}")
+	private int threads;
+
+	private final List<DataSource> shardDataSources = new ArrayList<DataSource>();
+
+	/**
+	 * 各分片新建与复用Statement的统计，所有分片合并统计
+	 */
+	@Bean
+	public StatementStatisticsInterceptor shardStatementStatistics() {
+		return new StatementStatisticsInterceptor("sharding");
+	}
+
+	/**
+	 * 各分片语句的耗时分布，所有分片合并统计
+	 */
+	@Bean
+	public StatementMetricsInterceptor shardStatementMetrics() {
+		return new StatementMetricsInterceptor("sharding");
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService userinfoShardExecutor() {
+		int size = threads > 0 ? threads : 2 * StringUtils.commaDelimitedListToStringArray(shardNames).length;
+		return Executors.newFixedThreadPool(size, new NamedThreadFactory("shard-userinfo"));
+	}
+
+	@Bean
+	public ShardedMybatisDao<Userinfo, Long> shardedUserinfoDao() throws Exception {
+		List<UserinfoDao> shards = new ArrayList<UserinfoDao>();
+		SqlSessionFactorySettings settings = SqlSessionFactorySettings.bind(environment, "mybatis",
+				"mybatis.factories.sharding");
+		// 分片只使用UserinfoDao
+		Resource[] mappers = MapperLocations.resolve(environment, "sharding", mapperLocations,
+				UserinfoDao.class.getPackage().getName());
+		StatementStatisticsInterceptor statementStatistics = shardStatementStatistics();
+		statementStatistics.setExecutorType(settings.getExecutorType());
+		for (String shardName : StringUtils.commaDelimitedListToStringArray(shardNames)) {
+			DataSource dataSource = DataSourceConfig.buildDataSource(environment, "spring.datasource.primary",
+					PREFIX + "." + shardName.trim());
+			shardDataSources.add(dataSource);
+			StartupTimingReport.Timing timing = startupTimingReport.start("userinfo-" + shardName.trim());
+			timing.scanned(mappers.length, mapperLocations.length);
+			SqlSessionFactoryBean sessionFactory = new SqlSessionFactoryBean();
+			sessionFactory.setConfiguration(settings.newConfiguration());
+			sessionFactory.setDataSource(dataSource);
+			sessionFactory.setPlugins(new Interceptor[] { primaryKeyBatchInterceptor, offsetLimitInterceptor,
+					nearCacheInvalidationInterceptor, columnarResultSetInterceptor, slowSqlInterceptor,
+					statementStatistics, shardStatementMetrics() });
+			SqlSessionFactory sqlSessionFactory = sessionFactory.getObject();
+			timing.built();
+			MapperLocations.parse(sqlSessionFactory.getConfiguration(), mappers);
+			timing.parsed();
+			offsetLimitInterceptor.registerDialect("userinfo-" + shardName.trim(), sqlSessionFactory.getConfiguration());
+			nearCacheInvalidationInterceptor.addConfiguration(sqlSessionFactory.getConfiguration());
+			invalidationBus.addConfiguration(sqlSessionFactory.getConfiguration());
+			shards.add(new SqlSessionTemplate(sqlSessionFactory).getMapper(UserinfoDao.class));
+		}
+		return new ShardedMybatisDao<Userinfo, Long>(shards, new HashShardStrategy<Long>(), "id",
+				userinfoShardExecutor());
+	}
+
+	@Override
+	public void destroy() {
+		for (DataSource dataSource : shardDataSources) {
+			if (dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource) {
+				((org.apache.tomcat.jdbc.pool.DataSource) dataSource).close();
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.waidboot.monitor.web;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.waidboot.common.web.constant.RestConstants;
+import com.waidboot.common.web.vo.RestCommonData;
+
+import ins.framework.datasource.DataSourceExecutor;
+import ins.framework.mybatis.SlowSqlInterceptor;
+import ins.framework.mybatis.StartupTimingReport;
+import ins.framework.mybatis.StatementMetricsInterceptor;
+import ins.framework.mybatis.StatementStatisticsInterceptor;
+
+/**
+ * 说明：MyBatis运行状态的监控接口
+ */
+@RestController
+public class MonitorController {
+
+	@Autowired
+	private List<StatementStatisticsInterceptor> statementStatistics;
+	@Autowired
+	private StartupTimingReport startupTimingReport;
+	@Autowired
+	private SlowSqlInterceptor slowSqlInterceptor;
+	@Autowired
+	private List<StatementMetricsInterceptor> statementMetrics;
+	@Autowired
+	private List<DataSourceExecutor> dataSourceExecutors;
+
+	/**
+	 * 各SqlSessionFactory的执行器类型及新建/复用Statement的次数
+	 */
+	@RequestMapping("monitor/mybatis/statements")
+	public RestCommonData statements() {
+		List<Map<String, Object>> data = new ArrayList<Map<String, Object>>();
+		for (StatementStatisticsInterceptor statistics : statementStatistics) {
+			data.add(statistics.getStatistics());
+		}
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(data);
+		return res;
+	}
+
+	/**
+	 * 各SqlSessionFactory启动时查找、创建、解析Mapper XML的耗时
+	 */
+	@RequestMapping("monitor/mybatis/startup")
+	public RestCommonData startup() {
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(startupTimingReport.getFactories());
+		return res;
+	}
+
+	/**
+	 * 最近的慢SQL记录（最近的在前）及慢SQL统计
+	 * <p>
+	 * 该接口与业务接口使用同一端口，绑定参数默认全部脱敏（mybatis.slowSql.redactPattern）
+	 * </p>
+	 *
+	 * @param statementId
+	 *            只查看该语句的记录，为空时查看全部
+	 */
+	@RequestMapping("monitor/mybatis/slow-sql")
+	public RestCommonData slowSql(@RequestParam(required = false) String statementId) {
+		Map<String, Object> data = new LinkedHashMap<String, Object>();
+		data.put("statistics", slowSqlInterceptor.getStatistics());
+		data.put("records", slowSqlInterceptor.getRecords(statementId));
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(data);
+		return res;
+	}
+
+	/**
+	 * 清空慢SQL记录
+	 */
+	@RequestMapping(value = "monitor/mybatis/slow-sql/clear", method = RequestMethod.POST)
+	public RestCommonData clearSlowSql() {
+		slowSqlInterceptor.clear();
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		return res;
+	}
+
+	/**
+	 * 各SqlSessionFactory中各语句的调用次数、返回行数及总耗时、取得连接耗时、执行耗时的分布（微秒）
+	 */
+	@RequestMapping("monitor/mybatis/latency")
+	public RestCommonData latency() {
+		List<Map<String, Object>> data = new ArrayList<Map<String, Object>>();
+		for (StatementMetricsInterceptor metrics : statementMetrics) {
+			Map<String, Object> factory = new LinkedHashMap<String, Object>();
+			factory.put("name", metrics.getName());
+			factory.put("statements", metrics.getStatements());
+			data.add(factory);
+		}
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(data);
+		return res;
+	}
+
+	/**
+	 * 清空各语句的耗时统计
+	 */
+	@RequestMapping(value = "monitor/mybatis/latency/reset", method = RequestMethod.POST)
+	public RestCommonData resetLatency() {
+		for (StatementMetricsInterceptor metrics : statementMetrics) {
+			metrics.reset();
+		}
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		return res;
+	}
+
+	/**
+	 * 各数据源异步访问线程池的线程数、活动线程数及排队任务数
+	 */
+	@RequestMapping("monitor/datasource/executors")
+	public RestCommonData dataSourceExecutors() {
+		List<Map<String, Object>> data = new ArrayList<Map<String, Object>>();
+		for (DataSourceExecutor executor : dataSourceExecutors) {
+			data.add(executor.getStatistics());
+		}
+		RestCommonData res = new RestCommonData();
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(data);
+		return res;
+	}
+}
@@ -0,0 +1,40 @@
+package com.waidboot.mybatis.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.annotation.RequestScope;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.dao.secondsource.addressinfo.AddressinfoDao;
+import com.waidboot.po.addressinfo.Addressinfo;
+import com.waidboot.po.userinfo.Userinfo;
+
+import ins.framework.mybatis.BatchLoader;
+
+/**
+ * 请求范围的按主键合并查询加载器，同一请求内多次按主键查询合并为一次批量查询，只能在Web请求中使用
+ * <p>
+ * 查询在第一次join()/get()的请求线程中执行，与请求处于同一事务及读写分离上下文，只调用load(id).join()而不调用dispatch()时也不会一直等待
+ * </p>
+ */
+@Configuration
+public class BatchLoaderConfig {
+
+	@Autowired
+	private UserinfoDao userinfoDao;
+	@Autowired
+	private AddressinfoDao addressinfoDao;
+
+	@Bean
+	@RequestScope
+	public BatchLoader<Userinfo, Long> userinfoLoader() {
+		return new BatchLoader<Userinfo, Long>(userinfoDao, "id");
+	}
+
+	@Bean
+	@RequestScope
+	public BatchLoader<Addressinfo, Long> addressinfoLoader() {
+		return new BatchLoader<Addressinfo, Long>(addressinfoDao, "id");
+	}
+}
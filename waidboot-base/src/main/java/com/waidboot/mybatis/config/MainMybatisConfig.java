@@ -8,6 +8,7 @@ package com.waidboot.mybatis.config;
 
 import javax.sql.DataSource;
 
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.annotation.MapperScan;
@@ -17,8 +18,22 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.Resource;
 
+import ins.framework.mybatis.ColumnarResultSetInterceptor;
+import ins.framework.mybatis.MapperLocations;
+import ins.framework.mybatis.OffsetLimitInterceptor;
+import ins.framework.mybatis.PrimaryKeyBatchInterceptor;
+import ins.framework.mybatis.ReadWriteRoutingInterceptor;
+import ins.framework.mybatis.SlowSqlInterceptor;
+import ins.framework.mybatis.SqlSessionFactorySettings;
+import ins.framework.mybatis.StartupTimingReport;
+import ins.framework.mybatis.StatementMetricsInterceptor;
+import ins.framework.mybatis.StatementStatisticsInterceptor;
+import ins.framework.mybatis.cache.InvalidationBus;
+import ins.framework.mybatis.cache.NearCacheInvalidationInterceptor;
+
 /**
  * 作者：王亚冬 时间：2017-01-23 说明：
  */
@@ -46,12 +61,67 @@ public class MainMybatisConfig {
 	@Autowired
 	@Qualifier("mainDataSource")
 	DataSource mainDataSource;
+	@Autowired
+	PrimaryKeyBatchInterceptor primaryKeyBatchInterceptor;
+	@Autowired
+	OffsetLimitInterceptor offsetLimitInterceptor;
+	@Autowired
+	ReadWriteRoutingInterceptor readWriteRoutingInterceptor;
+	@Autowired
+	NearCacheInvalidationInterceptor nearCacheInvalidationInterceptor;
+	@Autowired
+	ColumnarResultSetInterceptor columnarResultSetInterceptor;
+	@Autowired
+	SlowSqlInterceptor slowSqlInterceptor;
+	@Autowired
+	InvalidationBus invalidationBus;
+	@Autowired
+	ConfigurableEnvironment environment;
+	@Autowired
+	StartupTimingReport startupTimingReport;
+
+	/**
+	 * 本SqlSessionFactory新建与复用Statement的统计
+	 */
+	@Bean
+	public StatementStatisticsInterceptor mainStatementStatistics() {
+		return new StatementStatisticsInterceptor("main");
+	}
+
+	/**
+	 * 本SqlSessionFactory各语句的耗时分布
+	 */
+	@Bean
+	public StatementMetricsInterceptor mainStatementMetrics() {
+		return new StatementMetricsInterceptor("main");
+	}
+
 	@Primary
 	@Bean("sqlSessionFactory")
 	public SqlSessionFactory sqlSessionFactory() throws Exception {
+		StartupTimingReport.Timing timing = startupTimingReport.start("main");
+		Resource[] mappers = MapperLocations.resolve(environment, "main", mapperLocations,
+				MapperLocations.basePackages(MainMybatisConfig.class));
+		timing.scanned(mappers.length, mapperLocations == null ? 0 : mapperLocations.length);
+		SqlSessionFactorySettings settings = SqlSessionFactorySettings.bind(environment, "mybatis",
+				"mybatis.factories.main");
+		StatementStatisticsInterceptor statementStatistics = mainStatementStatistics();
+		statementStatistics.setExecutorType(settings.getExecutorType());
 		SqlSessionFactoryBean sessionFactory = new SqlSessionFactoryBean();
+		sessionFactory.setConfiguration(settings.newConfiguration());
 		sessionFactory.setDataSource(mainDataSource);
-		sessionFactory.setMapperLocations(mapperLocations);
-		return sessionFactory.getObject();
+		sessionFactory.setPlugins(new Interceptor[] { primaryKeyBatchInterceptor, offsetLimitInterceptor,
+				readWriteRoutingInterceptor, nearCacheInvalidationInterceptor, columnarResultSetInterceptor,
+				slowSqlInterceptor, statementStatistics,
+				mainStatementMetrics() });
+		SqlSessionFactory sqlSessionFactory = sessionFactory.getObject();
+		timing.built();
+		// 在创建后解析XML，以便分别统计耗时
+		MapperLocations.parse(sqlSessionFactory.getConfiguration(), mappers);
+		timing.parsed();
+		offsetLimitInterceptor.registerDialect("main", sqlSessionFactory.getConfiguration());
+		nearCacheInvalidationInterceptor.addConfiguration(sqlSessionFactory.getConfiguration());
+		invalidationBus.addConfiguration(sqlSessionFactory.getConfiguration());
+		return sqlSessionFactory;
 	}
 }
@@ -8,6 +8,7 @@ package com.waidboot.mybatis.config;
 
 import javax.sql.DataSource;
 
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.mybatis.spring.SqlSessionFactoryBean;
 import org.mybatis.spring.annotation.MapperScan;
@@ -16,8 +17,22 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.io.Resource;
 
+import ins.framework.mybatis.ColumnarResultSetInterceptor;
+import ins.framework.mybatis.MapperLocations;
+import ins.framework.mybatis.OffsetLimitInterceptor;
+import ins.framework.mybatis.PrimaryKeyBatchInterceptor;
+import ins.framework.mybatis.ReadWriteRoutingInterceptor;
+import ins.framework.mybatis.SlowSqlInterceptor;
+import ins.framework.mybatis.SqlSessionFactorySettings;
+import ins.framework.mybatis.StartupTimingReport;
+import ins.framework.mybatis.StatementMetricsInterceptor;
+import ins.framework.mybatis.StatementStatisticsInterceptor;
+import ins.framework.mybatis.cache.InvalidationBus;
+import ins.framework.mybatis.cache.NearCacheInvalidationInterceptor;
+
 /**
  * 作者：王亚冬 时间：2017-01-23 说明：
  */
@@ -45,12 +60,66 @@ public class SecondaryMybatisConfig {
 	@Autowired
 	@Qualifier("secondDataSource")
 	DataSource secondDataSource;
+	@Autowired
+	PrimaryKeyBatchInterceptor primaryKeyBatchInterceptor;
+	@Autowired
+	OffsetLimitInterceptor offsetLimitInterceptor;
+	@Autowired
+	ReadWriteRoutingInterceptor readWriteRoutingInterceptor;
+	@Autowired
+	NearCacheInvalidationInterceptor nearCacheInvalidationInterceptor;
+	@Autowired
+	ColumnarResultSetInterceptor columnarResultSetInterceptor;
+	@Autowired
+	SlowSqlInterceptor slowSqlInterceptor;
+	@Autowired
+	InvalidationBus invalidationBus;
+	@Autowired
+	ConfigurableEnvironment environment;
+	@Autowired
+	StartupTimingReport startupTimingReport;
+
+	/**
+	 * 本SqlSessionFactory新建与复用Statement的统计
+	 */
+	@Bean
+	public StatementStatisticsInterceptor secondStatementStatistics() {
+		return new StatementStatisticsInterceptor("secondary");
+	}
+
+	/**
+	 * 本SqlSessionFactory各语句的耗时分布
+	 */
+	@Bean
+	public StatementMetricsInterceptor secondStatementMetrics() {
+		return new StatementMetricsInterceptor("secondary");
+	}
 
 	@Bean("sqlSessionFactory_1")
 	public SqlSessionFactory sqlSessionFactory() throws Exception {
+		StartupTimingReport.Timing timing = startupTimingReport.start("secondary");
+		Resource[] mappers = MapperLocations.resolve(environment, "secondary", mapperLocations,
+				MapperLocations.basePackages(SecondaryMybatisConfig.class));
+		timing.scanned(mappers.length, mapperLocations == null ? 0 : mapperLocations.length);
+		SqlSessionFactorySettings settings = SqlSessionFactorySettings.bind(environment, "mybatis",
+				"mybatis.factories.secondary");
+		StatementStatisticsInterceptor statementStatistics = secondStatementStatistics();
+		statementStatistics.setExecutorType(settings.getExecutorType());
 		SqlSessionFactoryBean sessionFactory = new SqlSessionFactoryBean();
+		sessionFactory.setConfiguration(settings.newConfiguration());
 		sessionFactory.setDataSource(secondDataSource);
-		sessionFactory.setMapperLocations(mapperLocations);
-		return sessionFactory.getObject();
+		sessionFactory.setPlugins(new Interceptor[] { primaryKeyBatchInterceptor, offsetLimitInterceptor,
+				readWriteRoutingInterceptor, nearCacheInvalidationInterceptor, columnarResultSetInterceptor,
+				slowSqlInterceptor, statementStatistics,
+				secondStatementMetrics() });
+		SqlSessionFactory sqlSessionFactory = sessionFactory.getObject();
+		timing.built();
+		// 在创建后解析XML，以便分别统计耗时
+		MapperLocations.parse(sqlSessionFactory.getConfiguration(), mappers);
+		timing.parsed();
+		offsetLimitInterceptor.registerDialect("secondary", sqlSessionFactory.getConfiguration());
+		nearCacheInvalidationInterceptor.addConfiguration(sqlSessionFactory.getConfiguration());
+		invalidationBus.addConfiguration(sqlSessionFactory.getConfiguration());
+		return sqlSessionFactory;
 	}
 }
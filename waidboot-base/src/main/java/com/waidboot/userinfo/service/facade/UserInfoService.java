@@ -1,11 +1,36 @@
 package com.waidboot.userinfo.service.facade;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
 import com.waidboot.vo.userinfo.UserinfoVo;
 
+import ins.framework.mybatis.Page;
+import ins.framework.mybatis.PageParam;
+
 public interface UserInfoService {
 	
 	public void saveUserInfo(UserinfoVo userinfoVo);
 	public void delUserInfo(Long id);
 	public void updateUserInfo();
 	public UserinfoVo getUserinfo(Long id);
+	public List<UserinfoVo> getUserinfos(List<Long> ids);
+	/**
+	 * 按条件分页查询，Seek分页时通过{@link Page#getNextPageToken()}返回下一页的续页令牌
+	 */
+	public Page<UserinfoVo> getUserinfoPage(UserinfoVo condition, PageParam pageParam);
+
+	/**
+	 * 在mainDataSource的线程池中保存，不占用调用线程
+	 */
+	public CompletableFuture<Void> saveUserInfoAsync(UserinfoVo userinfoVo);
+	/**
+	 * 在mainDataSource的线程池中查询，不占用调用线程
+	 */
+	public CompletableFuture<UserinfoVo> getUserinfoAsync(Long id);
+	/**
+	 * 按条件逐行查询，每读取一行回调一次consumer，不在内存中保存全部结果
+	 */
+	public void streamUserinfos(UserinfoVo condition, Consumer<? super UserinfoVo> consumer);
 }
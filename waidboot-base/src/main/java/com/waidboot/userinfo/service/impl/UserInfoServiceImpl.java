@@ -1,25 +1,40 @@
 package com.waidboot.userinfo.service.impl;
 
-import org.springframework.beans.BeanUtils;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.waidboot.converter.userinfo.UserinfoConverter;
 import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
 import com.waidboot.po.userinfo.Userinfo;
 import com.waidboot.userinfo.service.facade.UserInfoService;
 import com.waidboot.vo.userinfo.UserinfoVo;
 
+import ins.framework.datasource.DataSourceExecutor;
+import ins.framework.mybatis.BatchLoader;
+import ins.framework.mybatis.ConsumerResultHandler;
+import ins.framework.mybatis.Page;
+import ins.framework.mybatis.PageParam;
+
 @Service("userInfoService")
 public class UserInfoServiceImpl implements UserInfoService {
 	
 	@Autowired
 	private UserinfoDao userinfoDao;
+	@Autowired
+	private BatchLoader<Userinfo, Long> userinfoLoader;
+	@Autowired
+	@Qualifier("mainDataSourceExecutor")
+	private DataSourceExecutor mainDataSourceExecutor;
 
 	@Override
 	public void saveUserInfo(UserinfoVo userinfoVo) {
-		Userinfo userinfo = new Userinfo();
-		BeanUtils.copyProperties(userinfoVo, userinfo);
-		userinfoDao.insert(userinfo);
+		userinfoDao.insert(UserinfoConverter.toPo(userinfoVo));
 	}
 
 	@Override
@@ -36,10 +51,53 @@ public class UserInfoServiceImpl implements UserInfoService {
 
 	@Override
 	public UserinfoVo getUserinfo(Long id) {
-		Userinfo userinfo = userinfoDao.selectByPrimaryKey(id);
-		UserinfoVo userInfoVo = new UserinfoVo();
-		BeanUtils.copyProperties(userinfo, userInfoVo);
-		return userInfoVo;
+		return UserinfoConverter.toVo(userinfoDao.selectByPrimaryKey(id));
+	}
+
+	/**
+	 * 按主键列表查询，同一请求内的查询合并为一次批量查询，不存在的记录为null
+	 */
+	@Override
+	public List<UserinfoVo> getUserinfos(List<Long> ids) {
+		return UserinfoConverter.toVoList(userinfoLoader.loadAll(ids));
+	}
+
+	@Override
+	public Page<UserinfoVo> getUserinfoPage(UserinfoVo condition, PageParam pageParam) {
+		Userinfo userinfo = condition == null ? new Userinfo() : UserinfoConverter.toPo(condition);
+		return UserinfoConverter.toVoPage(userinfoDao.selectPage(pageParam, userinfo));
+	}
+
+	@Override
+	public void streamUserinfos(UserinfoVo condition, final Consumer<? super UserinfoVo> consumer) {
+		Userinfo userinfo = condition == null ? new Userinfo() : UserinfoConverter.toPo(condition);
+		userinfoDao.streamByEntity(userinfo, ConsumerResultHandler.of(new Consumer<Userinfo>() {
+			@Override
+			public void accept(Userinfo row) {
+				consumer.accept(UserinfoConverter.toVo(row));
+			}
+		}));
+	}
+
+	@Override
+	public CompletableFuture<Void> saveUserInfoAsync(final UserinfoVo userinfoVo) {
+		return mainDataSourceExecutor.supply(new Supplier<Void>() {
+			@Override
+			public Void get() {
+				saveUserInfo(userinfoVo);
+				return null;
+			}
+		});
+	}
+
+	@Override
+	public CompletableFuture<UserinfoVo> getUserinfoAsync(final Long id) {
+		return mainDataSourceExecutor.supply(new Supplier<UserinfoVo>() {
+			@Override
+			public UserinfoVo get() {
+				return getUserinfo(id);
+			}
+		});
 	}
 
 }
@@ -1,19 +1,44 @@
 package com.waidboot.userinfo.web;
 
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.waidboot.common.web.async.DeferredResults;
 import com.waidboot.common.web.constant.RestConstants;
 import com.waidboot.common.web.vo.RestCommonData;
 import com.waidboot.userinfo.service.facade.UserInfoService;
 import com.waidboot.vo.userinfo.UserinfoVo;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+
+import ins.framework.mybatis.MybatisApiUtils;
+import ins.framework.mybatis.PageParam;
+import ins.framework.mybatis.StreamingRows;
+
 @RestController
 public class UserInfoController {
 	
 	@Autowired
 	private UserInfoService userInfoService;
+	/** 异步请求的超时时间（毫秒） */
+	@Value("${rest.async.timeoutMillis:5000}")
+	private long asyncTimeoutMillis;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private Semaphore exportPermits;
 	
 	@RequestMapping("userinfo/save")
 	public RestCommonData addUserInfo(){
@@ -28,4 +53,60 @@ public class UserInfoController {
 		res.setResDescribe(RestConstants.SUCCESS.describe);
 		return res;
 	}
+
+	/**
+	 * 在数据源线程池中保存，Servlet线程不等待数据库；超时后保存继续执行，返回processing
+	 */
+	@RequestMapping("userinfo/saveAsync")
+	public DeferredResult<RestCommonData> addUserInfoAsync(){
+		UserinfoVo userinfoVo = new UserinfoVo();
+		userinfoVo.setUsername("张三");
+		userinfoVo.setAge(20);
+		userinfoVo.setSex(1);
+		return DeferredResults.ofWrite(userInfoService.saveUserInfoAsync(userinfoVo), asyncTimeoutMillis);
+	}
+
+	/**
+	 * 在数据源线程池中按主键查询，Servlet线程不等待数据库
+	 */
+	@RequestMapping("userinfo/getAsync")
+	public DeferredResult<RestCommonData> getUserInfoAsync(@RequestParam Long id){
+		return DeferredResults.of(userInfoService.getUserinfoAsync(id), asyncTimeoutMillis);
+	}
+
+	/**
+	 * 按条件分页查询，按id排序
+	 * <p>
+	 * 分页参数见{@link MybatisApiUtils#getPageParam(HttpServletRequest)}；传入_pageToken（第一页为空字符串）时使用Seek分页，
+	 * 返回的dataObj.nextPageToken作为下一次请求的_pageToken
+	 * </p>
+	 */
+	@RequestMapping("userinfo/page")
+	public RestCommonData getUserInfoPage(UserinfoVo condition, HttpServletRequest request){
+		RestCommonData res = new RestCommonData();
+		PageParam pageParam = MybatisApiUtils.getPageParam(request);
+		pageParam.setOrders(Order.formString("id.asc"));
+		res.setResCode(RestConstants.SUCCESS.code);
+		res.setResDescribe(RestConstants.SUCCESS.describe);
+		res.setDataObj(userInfoService.getUserinfoPage(condition, pageParam));
+		return res;
+	}
+
+	/**
+	 * 按条件导出，逐行写入响应而不是组装成Page
+	 *
+	 * @param format
+	 *            ndjson（默认）或csv
+	 */
+	@RequestMapping("userinfo/export")
+	public ResponseEntity<StreamingResponseBody> export(final UserinfoVo condition,
+			@RequestParam(required = false) String format, HttpServletRequest request){
+		return StreamingRows.response(exportPermits, StreamingRows.Format.of(format), "userinfo",
+				StreamingRows.acceptsGzip(request), objectMapper, new StreamingRows.RowSource<UserinfoVo>() {
+					@Override
+					public void forEach(Consumer<? super UserinfoVo> consumer) {
+						userInfoService.streamUserinfos(condition, consumer);
+					}
+				});
+	}
 }
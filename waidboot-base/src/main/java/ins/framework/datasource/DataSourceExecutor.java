@@ -0,0 +1,91 @@
+package ins.framework.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import ins.framework.mybatis.NamedThreadFactory;
+
+/**
+ * 一个数据源专用的有界线程池，用于在Web请求线程之外访问数据库
+ * <p>
+ * 线程数一般与连接池的最大连接数相同，队列满时直接拒绝，返回的CompletableFuture以RejectedExecutionException结束，
+ * 数据库变慢时只占用该数据源的线程，不会耗尽Servlet线程或影响其他数据源。每个任务结束后清除读写分离上下文，
+ * 避免线程复用时沿用上一个任务的写后读主库状态。
+ * </p>
+ *
+ */
+public class DataSourceExecutor {
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * @param name
+	 *            数据源名称，用于线程名
+	 * @param threads
+	 *            线程数
+	 * @param queueCapacity
+	 *            等待队列长度
+	 */
+	public DataSourceExecutor(String name, int threads, int queueCapacity) {
+		this.name = name;
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(queueCapacity, 1)), new NamedThreadFactory("db-" + name),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 在本数据源的线程池中执行
+	 *
+	 * @param supplier
+	 *            访问数据库的任务
+	 * @return 任务的结果，线程池已满时以RejectedExecutionException结束
+	 */
+	public <T> CompletableFuture<T> supply(final Supplier<T> supplier) {
+		try {
+			return CompletableFuture.supplyAsync(new Supplier<T>() {
+				@Override
+				public T get() {
+					try {
+						return supplier.get();
+					} finally {
+						ReadWriteRoutingContext.clear();
+					}
+				}
+			}, executor);
+		} catch (RejectedExecutionException e) {
+			CompletableFuture<T> future = new CompletableFuture<T>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 线程池状态，用于监控
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("name", name);
+		statistics.put("threads", executor.getMaximumPoolSize());
+		statistics.put("active", executor.getActiveCount());
+		statistics.put("queued", executor.getQueue().size());
+		statistics.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+		statistics.put("completed", executor.getCompletedTaskCount());
+		return statistics;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
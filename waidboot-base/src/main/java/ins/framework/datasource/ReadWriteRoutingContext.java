@@ -0,0 +1,102 @@
+package ins.framework.datasource;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离的线程上下文
+ * <p>
+ * 记录当前线程是否为读操作，以及最近是否有过写操作：写操作后的一段时间内（默认{@link #DEFAULT_STICKY_MILLIS}毫秒）读操作继续使用主库，
+ * 保证读到自己写入的数据。写操作在事务中时从事务结束时重新计时，事务提交前从库不可能读到写入的数据。
+ * 超过时间后自动恢复使用从库，定时任务、启动线程及线程池中的写操作不会使该线程一直使用主库。
+ * </p>
+ *
+ */
+public final class ReadWriteRoutingContext {
+
+	/** 写操作后读操作使用主库的默认时长（毫秒） */
+	public static final long DEFAULT_STICKY_MILLIS = 1000;
+
+	private static final ThreadLocal<Boolean> READ = new ThreadLocal<Boolean>();
+	/** 最近一次写操作或包含写操作的事务结束的时间（System.nanoTime） */
+	private static final ThreadLocal<Long> WRITTEN = new ThreadLocal<Long>();
+	/** 事务结束时重新计时，同一事务中只登记一次 */
+	private static final TransactionSynchronization RESTART_ON_COMPLETION = new TransactionSynchronizationAdapter() {
+		@Override
+		public void afterCompletion(int status) {
+			WRITTEN.set(System.nanoTime());
+		}
+	};
+
+	private static volatile long stickyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_STICKY_MILLIS);
+
+	private ReadWriteRoutingContext() {
+	}
+
+	/**
+	 * 当前操作是否可以使用从库
+	 */
+	public static boolean isRead() {
+		return Boolean.TRUE.equals(READ.get());
+	}
+
+	/**
+	 * 设置当前操作是否可以使用从库
+	 *
+	 * @param read
+	 *            是否为读操作
+	 * @return 设置前的值，用于操作完成后恢复
+	 */
+	public static boolean setRead(boolean read) {
+		boolean previous = isRead();
+		if (read) {
+			READ.set(Boolean.TRUE);
+		} else {
+			READ.remove();
+		}
+		return previous;
+	}
+
+	/**
+	 * 当前线程最近是否有过写操作，即读操作是否需要使用主库
+	 */
+	public static boolean isWritten() {
+		Long writtenAt = WRITTEN.get();
+		if (writtenAt == null) {
+			return false;
+		}
+		if (System.nanoTime() - writtenAt < stickyNanos) {
+			return true;
+		}
+		WRITTEN.remove();
+		return false;
+	}
+
+	/**
+	 * 标记当前线程有过写操作，之后一段时间内的读操作都使用主库；在事务中时从事务结束时重新计时
+	 */
+	public static void markWritten() {
+		WRITTEN.set(System.nanoTime());
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(RESTART_ON_COMPLETION);
+		}
+	}
+
+	/**
+	 * 设置写操作后读操作使用主库的时长（毫秒），一般不小于从库的复制延迟
+	 */
+	public static void setStickyMillis(long stickyMillis) {
+		stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+	}
+
+	/**
+	 * 清除当前线程的上下文，请求结束或线程归还线程池前调用
+	 */
+	public static void clear() {
+		READ.remove();
+		WRITTEN.remove();
+	}
+}
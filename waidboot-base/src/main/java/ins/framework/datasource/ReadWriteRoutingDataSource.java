@@ -0,0 +1,268 @@
+package ins.framework.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ins.framework.mybatis.NamedThreadFactory;
+
+/**
+ * 读写分离的路由数据源，一个主库(writer)对应多个从库(replica)
+ * <p>
+ * 只读事务、以及事务外的select语句（由ReadWriteRoutingInterceptor标记）按权重轮询使用从库，其他操作使用主库；
+ * 写操作后一段时间内的读操作继续使用主库（见ReadWriteRoutingContext）。设置了最大延迟时定时检查从库的复制延迟，延迟超出或检查失败的从库暂停使用，
+ * 没有可用的从库时使用主库。
+ * </p>
+ * <p>
+ * 事务开始时就会取得连接，需用LazyConnectionDataSourceProxy包装，使连接在第一条语句执行时才按只读标志路由
+ * </p>
+ *
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+	private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+	/** 主库的lookup key */
+	public static final String WRITER = "writer";
+	/** 默认的复制延迟查询语句（MySQL） */
+	public static final String DEFAULT_LAG_QUERY = "SHOW SLAVE STATUS";
+	/** 默认的复制延迟列（秒） */
+	public static final String DEFAULT_LAG_COLUMN = "Seconds_Behind_Master";
+
+	private final String name;
+	private final DataSource writer;
+	private final List<Replica> replicas = new ArrayList<Replica>();
+	/** 按权重展开并交错排列的从库轮询表 */
+	private Replica[] schedule = new Replica[0];
+	private final AtomicInteger counter = new AtomicInteger();
+
+	private long maxLagSeconds = 0;
+	private long lagCheckIntervalMillis = 5000;
+	private String lagQuery = DEFAULT_LAG_QUERY;
+	private String lagColumn = DEFAULT_LAG_COLUMN;
+	private ScheduledExecutorService lagChecker;
+
+	/**
+	 * @param name
+	 *            逻辑数据源名称，用于日志及线程名
+	 * @param writer
+	 *            主库
+	 */
+	public ReadWriteRoutingDataSource(String name, DataSource writer) {
+		this.name = name;
+		this.writer = writer;
+	}
+
+	/**
+	 * 添加从库
+	 *
+	 * @param replicaName
+	 *            从库名称
+	 * @param dataSource
+	 *            从库数据源
+	 * @param weight
+	 *            权重，小于1时按1处理
+	 */
+	public void addReplica(String replicaName, DataSource dataSource, int weight) {
+		if (WRITER.equals(replicaName)) {
+			throw new IllegalArgumentException("Replica name [" + WRITER + "] is reserved");
+		}
+		replicas.add(new Replica(replicaName, dataSource, Math.max(weight, 1)));
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Map<Object, Object> targetDataSources = new HashMap<Object, Object>();
+		targetDataSources.put(WRITER, writer);
+		for (Replica replica : replicas) {
+			targetDataSources.put(replica.name, replica.dataSource);
+		}
+		setTargetDataSources(targetDataSources);
+		setDefaultTargetDataSource(writer);
+		super.afterPropertiesSet();
+		schedule = buildSchedule(replicas);
+		if (maxLagSeconds > 0 && !replicas.isEmpty()) {
+			lagChecker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("replica-lag-" + name));
+			lagChecker.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					checkLag();
+				}
+			}, 0, lagCheckIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+		logger.info("Read/write routing [{}] with {} replica(s), maxLagSeconds={}", name, replicas.size(), maxLagSeconds);
+	}
+
+	/**
+	 * 平滑加权轮询：权重2:1的从库A、B排列为A B A，而不是A A B
+	 */
+	static Replica[] buildSchedule(List<Replica> replicas) {
+		int total = 0;
+		for (Replica replica : replicas) {
+			total += replica.weight;
+		}
+		Replica[] schedule = new Replica[total];
+		int[] current = new int[replicas.size()];
+		for (int i = 0; i < total; i++) {
+			int best = 0;
+			for (int j = 0; j < replicas.size(); j++) {
+				current[j] += replicas.get(j).weight;
+				if (current[j] > current[best]) {
+					best = j;
+				}
+			}
+			current[best] -= total;
+			schedule[i] = replicas.get(best);
+		}
+		return schedule;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (schedule.length == 0 || ReadWriteRoutingContext.isWritten()) {
+			return WRITER;
+		}
+		boolean read;
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			read = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+		} else {
+			read = ReadWriteRoutingContext.isRead();
+		}
+		if (!read) {
+			return WRITER;
+		}
+		Replica replica = nextReplica();
+		return replica == null ? WRITER : replica.name;
+	}
+
+	private Replica nextReplica() {
+		Replica[] current = schedule;
+		int start = counter.getAndIncrement() & Integer.MAX_VALUE;
+		for (int i = 0; i < current.length; i++) {
+			Replica replica = current[(start + i) % current.length];
+			if (replica.available) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 检查各从库的复制延迟，查询结果为空（非从库）时视为无延迟，延迟为空（复制中断）时视为不可用
+	 */
+	void checkLag() {
+		for (Replica replica : replicas) {
+			boolean available;
+			String reason;
+			try {
+				Long lag = queryLag(replica.dataSource);
+				available = lag != null && lag <= maxLagSeconds;
+				reason = lag == null ? "replication stopped" : "lag " + lag + "s";
+			} catch (Exception e) {
+				available = false;
+				reason = e.getMessage();
+			}
+			if (replica.available != available) {
+				logger.warn("Replica [{}] of [{}] is now {} ({})", replica.name, name,
+						available ? "available" : "unavailable", reason);
+				replica.available = available;
+			}
+		}
+	}
+
+	private Long queryLag(DataSource dataSource) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				ResultSet rs = statement.executeQuery(lagQuery);
+				if (!rs.next()) {
+					return 0L;
+				}
+				long lag = rs.getLong(lagColumn);
+				return rs.wasNull() ? null : lag;
+			} finally {
+				statement.close();
+			}
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * 停止复制延迟检查
+	 */
+	public void close() {
+		if (lagChecker != null) {
+			lagChecker.shutdownNow();
+			lagChecker = null;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public DataSource getWriter() {
+		return writer;
+	}
+
+	/**
+	 * 当前可用的从库名称
+	 */
+	public List<String> getAvailableReplicas() {
+		List<String> names = new ArrayList<String>();
+		for (Replica replica : replicas) {
+			if (replica.available) {
+				names.add(replica.name);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * 设置从库允许的最大复制延迟（秒），小于等于0时不检查延迟
+	 */
+	public void setMaxLagSeconds(long maxLagSeconds) {
+		this.maxLagSeconds = maxLagSeconds;
+	}
+
+	public void setLagCheckIntervalMillis(long lagCheckIntervalMillis) {
+		this.lagCheckIntervalMillis = lagCheckIntervalMillis;
+	}
+
+	public void setLagQuery(String lagQuery) {
+		this.lagQuery = lagQuery;
+	}
+
+	public void setLagColumn(String lagColumn) {
+		this.lagColumn = lagColumn;
+	}
+
+	static class Replica {
+		final String name;
+		final DataSource dataSource;
+		final int weight;
+		volatile boolean available = true;
+
+		Replica(String name, DataSource dataSource, int weight) {
+			this.name = name;
+			this.dataSource = dataSource;
+			this.weight = weight;
+		}
+	}
+}
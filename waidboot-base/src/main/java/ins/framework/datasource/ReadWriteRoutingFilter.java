@@ -0,0 +1,28 @@
+package ins.framework.datasource;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 请求结束时清除读写分离上下文，写后读主库不延续到同一线程处理的下一个请求
+ *
+ */
+public class ReadWriteRoutingFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		ReadWriteRoutingContext.clear();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ReadWriteRoutingContext.clear();
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package ins.framework.mybatis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+/**
+ * 按主键合并查询的加载器（DataLoader），将多次selectByPrimaryKey合并为一次selectBatchByPrimaryKeys
+ * <p>
+ * load(id)只登记主键并返回Future，调用dispatch()、登记的主键达到批次大小、或第一次对未完成的Future调用join()/get()时，
+ * 在调用线程中一次查询所有登记的主键并完成对应的Future，查询与调用方处于同一事务及读写分离上下文。
+ * 同一个主键只查询一次，重复的load返回同一个Future，因此加载器一般为请求范围的Bean，请求结束后随之丢弃。
+ * </p>
+ * <p>
+ * 通过thenApply、allOf等组合的Future不会触发查询，组合前须调用dispatch()
+ * </p>
+ *
+ * <pre>
+ * List&lt;CompletableFuture&lt;Userinfo&gt;&gt; futures = new ArrayList&lt;&gt;();
+ * for (Addressinfo address : addresses) {
+ * 	futures.add(userinfoLoader.load(address.getUserid()));
+ * }
+ * userinfoLoader.dispatch();
+ * </pre>
+ *
+ * @param <T>
+ *            PO对象
+ * @param <I>
+ *            主键类型
+ */
+public class BatchLoader<T, I> {
+
+	private final MybatisBaseDao<T, I> dao;
+	private final String idProperty;
+	private final int batchSize;
+
+	/** 已登记的主键及对应的Future，包括已完成的 */
+	private final Map<I, CompletableFuture<T>> futures = new HashMap<I, CompletableFuture<T>>();
+	/** 尚未查询的主键 */
+	private Map<I, CompletableFuture<T>> pending = new LinkedHashMap<I, CompletableFuture<T>>();
+
+	/**
+	 * @param dao
+	 *            Dao对象
+	 * @param idProperty
+	 *            PO对象中主键的属性名
+	 */
+	public BatchLoader(MybatisBaseDao<T, I> dao, String idProperty) {
+		this(dao, idProperty, MybatisBatchUtils.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param dao
+	 *            Dao对象
+	 * @param idProperty
+	 *            PO对象中主键的属性名
+	 * @param batchSize
+	 *            批次大小，登记的主键达到批次大小时立即查询
+	 */
+	public BatchLoader(MybatisBaseDao<T, I> dao, String idProperty, int batchSize) {
+		if (batchSize < 1 || batchSize > MybatisBatchUtils.MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("batchSize must between 1 and " + MybatisBatchUtils.MAX_BATCH_SIZE);
+		}
+		this.dao = dao;
+		this.idProperty = idProperty;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * 登记要加载的主键
+	 *
+	 * @param id
+	 *            主键
+	 * @return 记录的Future，记录不存在时结果为null
+	 */
+	public CompletableFuture<T> load(I id) {
+		if (id == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		boolean full;
+		CompletableFuture<T> future;
+		synchronized (this) {
+			future = futures.get(id);
+			if (future != null) {
+				return future;
+			}
+			future = new LoaderFuture();
+			futures.put(id, future);
+			pending.put(id, future);
+			full = pending.size() >= batchSize;
+		}
+		if (full) {
+			dispatch();
+		}
+		return future;
+	}
+
+	/**
+	 * 登记多个要加载的主键
+	 *
+	 * @param idList
+	 *            主键列表
+	 * @return 与主键列表顺序对应的Future
+	 */
+	public List<CompletableFuture<T>> loadMany(List<I> idList) {
+		List<CompletableFuture<T>> result = new ArrayList<CompletableFuture<T>>(idList.size());
+		for (I id : idList) {
+			result.add(load(id));
+		}
+		return result;
+	}
+
+	/**
+	 * 加载并等待多个主键对应的记录
+	 *
+	 * @param idList
+	 *            主键列表
+	 * @return 与主键列表顺序对应的记录，不存在的记录为null
+	 */
+	public List<T> loadAll(List<I> idList) {
+		List<CompletableFuture<T>> loading = loadMany(idList);
+		dispatch();
+		List<T> result = new ArrayList<T>(loading.size());
+		for (CompletableFuture<T> future : loading) {
+			result.add(future.join());
+		}
+		return result;
+	}
+
+	/**
+	 * 查询所有已登记但尚未查询的主键
+	 */
+	public void dispatch() {
+		RuntimeException failure = dispatchPending();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * 查询所有已登记但尚未查询的主键
+	 *
+	 * @return 查询失败时的异常，异常已设置到本次查询的Future中
+	 */
+	private RuntimeException dispatchPending() {
+		Map<I, CompletableFuture<T>> batch;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return null;
+			}
+			batch = pending;
+			pending = new LinkedHashMap<I, CompletableFuture<T>>();
+		}
+		List<I> idList = new ArrayList<I>(batch.keySet());
+		Map<Object, CompletableFuture<T>> requested = new HashMap<Object, CompletableFuture<T>>(
+				batch.size() * 4 / 3 + 1);
+		for (Map.Entry<I, CompletableFuture<T>> entry : batch.entrySet()) {
+			requested.put(MybatisBatchUtils.primaryKeyValue(entry.getKey()), entry.getValue());
+		}
+		try {
+			for (List<I> ids : MybatisBatchUtils.partition(idList, batchSize)) {
+				for (T row : dao.selectBatchByPrimaryKeys(ids)) {
+					Object key = MybatisBatchUtils.primaryKeyValue(SystemMetaObject.forObject(row).getValue(idProperty));
+					CompletableFuture<T> future = requested.get(key);
+					if (future == null) {
+						throw MybatisBatchUtils.unmatchedRow(key, idProperty);
+					}
+					future.complete(row);
+				}
+			}
+			// 不存在的记录为null，已完成的Future不受影响
+			for (CompletableFuture<T> future : batch.values()) {
+				future.complete(null);
+			}
+			return null;
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				futures.keySet().removeAll(batch.keySet());
+			}
+			for (CompletableFuture<T> future : batch.values()) {
+				future.completeExceptionally(e);
+			}
+			return e;
+		}
+	}
+
+	/**
+	 * 清除已加载的记录，之后的load会重新查询
+	 */
+	public synchronized void clear() {
+		futures.clear();
+		futures.putAll(pending);
+	}
+
+	/**
+	 * 等待结果前先在调用线程中查询尚未查询的主键，查询失败时由join()/get()抛出异常
+	 */
+	private class LoaderFuture extends CompletableFuture<T> {
+
+		@Override
+		public T join() {
+			if (!isDone()) {
+				dispatchPending();
+			}
+			return super.join();
+		}
+
+		@Override
+		public T get() throws InterruptedException, ExecutionException {
+			if (!isDone()) {
+				dispatchPending();
+			}
+			return super.get();
+		}
+
+		@Override
+		public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!isDone()) {
+				dispatchPending();
+			}
+			return super.get(timeout, unit);
+		}
+	}
+}
@@ -0,0 +1,451 @@
+package ins.framework.mybatis;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按列保存的查询结果，用于返回大量记录的统计报表
+ * <p>
+ * 整数列保存为long[]/int[]，浮点列保存为double[]，字符串列按字典编码保存为int[]（相同的字符串只保存一份），
+ * 其他类型保存为Object[]，空值记录在每列的BitSet中。与每行一个PO对象相比不需要为每个字段创建包装对象，
+ * 内存占用和GC开销小得多。列名为查询结果的列标签，即PO的属性名。
+ * </p>
+ *
+ */
+public class ColumnarPage implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+	private int rowCount;
+
+	private ColumnarPage() {
+	}
+
+	/**
+	 * 读取ResultSet中的全部记录
+	 *
+	 * @param rs
+	 *            查询结果
+	 * @return ColumnarPage
+	 * @throws SQLException
+	 */
+	public static ColumnarPage read(ResultSet rs) throws SQLException {
+		ColumnarPage page = new ColumnarPage();
+		ResultSetMetaData metaData = rs.getMetaData();
+		int columnCount = metaData.getColumnCount();
+		Column[] readers = new Column[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			readers[i] = newColumn(metaData, i + 1);
+			page.columns.put(metaData.getColumnLabel(i + 1), readers[i]);
+		}
+		while (rs.next()) {
+			for (int i = 0; i < columnCount; i++) {
+				readers[i].read(rs, i + 1, page.rowCount);
+			}
+			page.rowCount++;
+		}
+		page.trim();
+		return page;
+	}
+
+	/**
+	 * 按顺序合并多个结果（列必须相同），用于合并分片的查询结果
+	 *
+	 * @param pages
+	 *            查询结果
+	 * @return ColumnarPage
+	 */
+	public static ColumnarPage concat(List<ColumnarPage> pages) {
+		if (pages.size() == 1) {
+			return pages.get(0);
+		}
+		ColumnarPage page = new ColumnarPage();
+		for (ColumnarPage part : pages) {
+			if (page.columns.isEmpty()) {
+				for (Map.Entry<String, Column> entry : part.columns.entrySet()) {
+					page.columns.put(entry.getKey(), entry.getValue().newEmpty());
+				}
+			} else if (!page.columns.keySet().equals(part.columns.keySet())) {
+				throw new IllegalArgumentException(
+						"Columns mismatch: " + page.columns.keySet() + " and " + part.columns.keySet());
+			}
+			for (int row = 0; row < part.rowCount; row++) {
+				for (Map.Entry<String, Column> entry : page.columns.entrySet()) {
+					entry.getValue().copy(part.columns.get(entry.getKey()), row, page.rowCount);
+				}
+				page.rowCount++;
+			}
+		}
+		page.trim();
+		return page;
+	}
+
+	private static Column newColumn(ResultSetMetaData metaData, int index) throws SQLException {
+		switch (metaData.getColumnType(index)) {
+		case Types.BIGINT:
+			return new LongColumn();
+		case Types.INTEGER:
+		case Types.SMALLINT:
+		case Types.TINYINT:
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return new IntColumn();
+		case Types.DOUBLE:
+		case Types.FLOAT:
+		case Types.REAL:
+			return new DoubleColumn();
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			// ORACLE的整数列为NUMBER(p,0)，有小数的DECIMAL不能无损转换为double
+			if (metaData.getScale(index) == 0 && metaData.getPrecision(index) > 0
+					&& metaData.getPrecision(index) <= 18) {
+				return new LongColumn();
+			}
+			return new ObjectColumn();
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+			return new StringColumn();
+		default:
+			return new ObjectColumn();
+		}
+	}
+
+	private void trim() {
+		for (Column column : columns.values()) {
+			column.trim(rowCount);
+		}
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public List<String> getColumnNames() {
+		return new ArrayList<String>(columns.keySet());
+	}
+
+	/**
+	 * 取得列，列不存在时抛出IllegalArgumentException
+	 */
+	public Column getColumn(String name) {
+		Column column = columns.get(name);
+		if (column == null) {
+			throw new IllegalArgumentException("Column [" + name + "] not found in " + columns.keySet());
+		}
+		return column;
+	}
+
+	public long[] getLongs(String name) {
+		return ((LongColumn) getColumn(name)).getValues();
+	}
+
+	public int[] getInts(String name) {
+		return ((IntColumn) getColumn(name)).getValues();
+	}
+
+	public double[] getDoubles(String name) {
+		return ((DoubleColumn) getColumn(name)).getValues();
+	}
+
+	public StringColumn getStrings(String name) {
+		return (StringColumn) getColumn(name);
+	}
+
+	/**
+	 * 一列数据
+	 */
+	public abstract static class Column implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		protected BitSet nulls = new BitSet();
+
+		/**
+		 * 第row行是否为空值
+		 */
+		public boolean isNull(int row) {
+			return nulls.get(row);
+		}
+
+		/**
+		 * 第row行的值（包装对象），空值返回null
+		 */
+		public abstract Object get(int row);
+
+		abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+		abstract void copy(Column from, int fromRow, int row);
+
+		abstract void trim(int rowCount);
+
+		abstract Column newEmpty();
+
+		static int grow(int length, int row) {
+			return row < length ? length : Math.max(length * 2, INITIAL_CAPACITY);
+		}
+	}
+
+	public static class LongColumn extends Column {
+		private static final long serialVersionUID = 1L;
+
+		private long[] values = new long[0];
+
+		public long[] getValues() {
+			return values;
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			set(row, rs.getLong(index), rs.wasNull());
+		}
+
+		@Override
+		void copy(Column from, int fromRow, int row) {
+			set(row, ((LongColumn) from).values[fromRow], from.isNull(fromRow));
+		}
+
+		private void set(int row, long value, boolean isNull) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = value;
+			if (isNull) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		void trim(int rowCount) {
+			values = Arrays.copyOf(values, rowCount);
+		}
+
+		@Override
+		Column newEmpty() {
+			return new LongColumn();
+		}
+	}
+
+	public static class IntColumn extends Column {
+		private static final long serialVersionUID = 1L;
+
+		private int[] values = new int[0];
+
+		public int[] getValues() {
+			return values;
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			set(row, rs.getInt(index), rs.wasNull());
+		}
+
+		@Override
+		void copy(Column from, int fromRow, int row) {
+			set(row, ((IntColumn) from).values[fromRow], from.isNull(fromRow));
+		}
+
+		private void set(int row, int value, boolean isNull) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = value;
+			if (isNull) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		void trim(int rowCount) {
+			values = Arrays.copyOf(values, rowCount);
+		}
+
+		@Override
+		Column newEmpty() {
+			return new IntColumn();
+		}
+	}
+
+	public static class DoubleColumn extends Column {
+		private static final long serialVersionUID = 1L;
+
+		private double[] values = new double[0];
+
+		public double[] getValues() {
+			return values;
+		}
+
+		@Override
+		public Object get(int row) {
+			return isNull(row) ? null : values[row];
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			set(row, rs.getDouble(index), rs.wasNull());
+		}
+
+		@Override
+		void copy(Column from, int fromRow, int row) {
+			set(row, ((DoubleColumn) from).values[fromRow], from.isNull(fromRow));
+		}
+
+		private void set(int row, double value, boolean isNull) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = value;
+			if (isNull) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		void trim(int rowCount) {
+			values = Arrays.copyOf(values, rowCount);
+		}
+
+		@Override
+		Column newEmpty() {
+			return new DoubleColumn();
+		}
+	}
+
+	/**
+	 * 字典编码的字符串列，codes[row]为字符串在dictionary中的下标，空值为-1
+	 */
+	public static class StringColumn extends Column {
+		private static final long serialVersionUID = 1L;
+
+		private int[] codes = new int[0];
+		private final List<String> dictionary = new ArrayList<String>();
+		private transient Map<String, Integer> index = new HashMap<String, Integer>();
+
+		public int[] getCodes() {
+			return codes;
+		}
+
+		public List<String> getDictionary() {
+			return Collections.unmodifiableList(dictionary);
+		}
+
+		@Override
+		public String get(int row) {
+			int code = codes[row];
+			return code < 0 ? null : dictionary.get(code);
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			set(row, rs.getString(index));
+		}
+
+		@Override
+		void copy(Column from, int fromRow, int row) {
+			set(row, ((StringColumn) from).get(fromRow));
+		}
+
+		private void set(int row, String value) {
+			if (row >= codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, row));
+			}
+			if (value == null) {
+				codes[row] = -1;
+				nulls.set(row);
+				return;
+			}
+			Integer code = index.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				index.put(value, code);
+			}
+			codes[row] = code;
+		}
+
+		@Override
+		void trim(int rowCount) {
+			codes = Arrays.copyOf(codes, rowCount);
+			// 读取完成后不再需要反查表
+			index = null;
+		}
+
+		@Override
+		Column newEmpty() {
+			return new StringColumn();
+		}
+	}
+
+	/**
+	 * 其他类型（日期、DECIMAL等）的列
+	 */
+	public static class ObjectColumn extends Column {
+		private static final long serialVersionUID = 1L;
+
+		private Object[] values = new Object[0];
+
+		public Object[] getValues() {
+			return values;
+		}
+
+		@Override
+		public Object get(int row) {
+			return values[row];
+		}
+
+		@Override
+		void read(ResultSet rs, int index, int row) throws SQLException {
+			set(row, rs.getObject(index));
+		}
+
+		@Override
+		void copy(Column from, int fromRow, int row) {
+			set(row, from.get(fromRow));
+		}
+
+		private void set(int row, Object value) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = value;
+			if (value == null) {
+				nulls.set(row);
+			}
+		}
+
+		@Override
+		void trim(int rowCount) {
+			values = Arrays.copyOf(values, rowCount);
+		}
+
+		@Override
+		Column newEmpty() {
+			return new ObjectColumn();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package ins.framework.mybatis;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+/**
+ * 按列读取查询结果的插件
+ * <p>
+ * resultType为{@link ColumnarPage}的select语句不再逐行创建结果对象，而是把整个ResultSet读入一个ColumnarPage返回
+ * </p>
+ *
+ */
+@Intercepts({ @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = { Statement.class }) })
+public class ColumnarResultSetInterceptor implements Interceptor {
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		MappedStatement ms = (MappedStatement) SystemMetaObject.forObject(invocation.getTarget())
+				.getValue("mappedStatement");
+		List<ResultMap> resultMaps = ms.getResultMaps();
+		if (resultMaps.size() != 1 || resultMaps.get(0).getType() != ColumnarPage.class) {
+			return invocation.proceed();
+		}
+		Statement statement = (Statement) invocation.getArgs()[0];
+		ResultSet rs = statement.getResultSet();
+		List<Object> result = new ArrayList<Object>(1);
+		if (rs == null) {
+			return result;
+		}
+		try {
+			result.add(ColumnarPage.read(rs));
+		} finally {
+			rs.close();
+		}
+		return result;
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		if (target instanceof ResultSetHandler) {
+			return Plugin.wrap(target, this);
+		}
+		return target;
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+	}
+}
@@ -0,0 +1,45 @@
+package ins.framework.mybatis;
+
+import java.util.function.Consumer;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * 将Consumer适配为MyBatis的ResultHandler，用于{@link MybatisBaseDao#streamByEntity(Object, ResultHandler)}
+ * <p>
+ * 例：userinfoDao.streamByEntity(condition, ConsumerResultHandler.of(writer::write));
+ * </p>
+ *
+ * @param <T>
+ *            PO对象
+ */
+public class ConsumerResultHandler<T> implements ResultHandler<T> {
+
+	private final Consumer<? super T> consumer;
+	private long count;
+
+	public ConsumerResultHandler(Consumer<? super T> consumer) {
+		if (consumer == null) {
+			throw new IllegalArgumentException("consumer must not be null");
+		}
+		this.consumer = consumer;
+	}
+
+	public static <T> ConsumerResultHandler<T> of(Consumer<? super T> consumer) {
+		return new ConsumerResultHandler<T>(consumer);
+	}
+
+	@Override
+	public void handleResult(ResultContext<? extends T> resultContext) {
+		count++;
+		consumer.accept(resultContext.getResultObject());
+	}
+
+	/**
+	 * 已处理的记录数
+	 */
+	public long getCount() {
+		return count;
+	}
+}
@@ -0,0 +1,33 @@
+package ins.framework.mybatis;
+
+/**
+ * 分页查询总记录数的统计方式
+ *
+ */
+public enum CountStrategy {
+	/** 精确统计，执行 select count(1) from (原SQL) */
+	EXACT,
+	/** 最多统计到指定上限，执行 select count(1) from (原SQL limit 上限+1)，超出上限时总记录数为上限值 */
+	CAPPED,
+	/** 使用数据库执行计划的估算行数，方言不支持估算时按EXACT统计 */
+	ESTIMATED,
+	/** 不统计总记录数 */
+	NONE;
+
+	/**
+	 * 按名称（不区分大小写）取得统计方式，为空或无法识别时为EXACT
+	 *
+	 * @param name
+	 *            exact/capped/estimated/none
+	 */
+	public static CountStrategy of(String name) {
+		if (name != null) {
+			for (CountStrategy strategy : values()) {
+				if (strategy.name().equalsIgnoreCase(name.trim())) {
+					return strategy;
+				}
+			}
+		}
+		return EXACT;
+	}
+}
@@ -0,0 +1,114 @@
+package ins.framework.mybatis;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.github.miemiedev.mybatis.paginator.dialect.DB2Dialect;
+import com.github.miemiedev.mybatis.paginator.dialect.Dialect;
+import com.github.miemiedev.mybatis.paginator.dialect.H2Dialect;
+import com.github.miemiedev.mybatis.paginator.dialect.HSQLDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.MySQLDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.OracleDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.PostgreSQLDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.SQLServerDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.SybaseDialect;
+import com.github.miemiedev.mybatis.paginator.domain.PageBounds;
+
+/**
+ * 分页方言(Dialect)的工厂
+ * <p>
+ * 在创建时一次性加载方言类并解析构造函数，分页查询时只需调用构造函数，
+ * 不再每次执行Class.forName及反射查找构造函数
+ * </p>
+ *
+ */
+public class DialectFactory {
+
+	private final Class<? extends Dialect> dialectClass;
+	private final Constructor<? extends Dialect> constructor;
+
+	public DialectFactory(String dialectClassName) {
+		try {
+			this.dialectClass = Class.forName(dialectClassName).asSubclass(Dialect.class);
+			this.constructor = dialectClass.getConstructor(MappedStatement.class, Object.class, PageBounds.class);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Cannot load dialect class: " + dialectClassName, e);
+		}
+	}
+
+	/**
+	 * 按数据库产品名称（DatabaseMetaData.getDatabaseProductName）取得方言
+	 */
+	public static DialectFactory forDatabase(String databaseProductName) {
+		String name = databaseProductName.toLowerCase();
+		if (name.contains("mysql")) {
+			return new DialectFactory(MySQLDialect.class.getName());
+		} else if (name.contains("oracle")) {
+			return new DialectFactory(OracleDialect.class.getName());
+		} else if (name.contains("db2")) {
+			return new DialectFactory(DB2Dialect.class.getName());
+		} else if (name.contains("postgre")) {
+			return new DialectFactory(PostgreSQLDialect.class.getName());
+		} else if (name.contains("sql server")) {
+			return new DialectFactory(SQLServerDialect.class.getName());
+		} else if (name.contains("h2")) {
+			return new DialectFactory(H2Dialect.class.getName());
+		} else if (name.contains("hsql")) {
+			return new DialectFactory(HSQLDialect.class.getName());
+		} else if (name.contains("sybase")) {
+			return new DialectFactory(SybaseDialect.class.getName());
+		}
+		throw new IllegalArgumentException("Unsupport Database [" + databaseProductName + "]");
+	}
+
+	/**
+	 * 检测数据源的数据库并取得方言，检测用的连接在返回前关闭（归还连接池）
+	 */
+	public static DialectFactory forDataSource(DataSource dataSource) {
+		Connection connection = null;
+		try {
+			connection = dataSource.getConnection();
+			return forDatabase(connection.getMetaData().getDatabaseProductName());
+		} catch (SQLException e) {
+			throw new IllegalStateException("Cannot detect database of " + dataSource, e);
+		} finally {
+			JdbcUtils.closeConnection(connection);
+		}
+	}
+
+	public Class<? extends Dialect> getDialectClass() {
+		return dialectClass;
+	}
+
+	/**
+	 * 创建方言实例，方言会在构造时生成分页SQL、count SQL及分页参数
+	 *
+	 * @param ms
+	 *            原MappedStatement
+	 * @param parameter
+	 *            查询参数
+	 * @param pageBounds
+	 *            分页参数
+	 * @return 方言实例
+	 */
+	public Dialect newDialect(MappedStatement ms, Object parameter, PageBounds pageBounds) {
+		try {
+			return constructor.newInstance(ms, parameter, pageBounds);
+		} catch (InvocationTargetException e) {
+			Throwable target = e.getTargetException();
+			if (target instanceof RuntimeException) {
+				throw (RuntimeException) target;
+			}
+			throw new IllegalStateException("Cannot create dialect instance: " + dialectClass.getName(), target);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot create dialect instance: " + dialectClass.getName(), e);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package ins.framework.mybatis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Data;
+
+/**
+ * 无锁的耗时直方图
+ * <p>
+ * 与HdrHistogram相同的对数-线性分桶：每个2的幂区间再等分为16个子桶，相对误差不超过1/16，
+ * 记录只需计算桶下标并对一个AtomicLongArray元素加一，不加锁、不分配对象。
+ * 记录的单位为纳秒，超过约18分钟的值按最大桶计。
+ * </p>
+ *
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** 可区分的最大值的位数，2^40纳秒约18分钟 */
+	private static final int MAX_VALUE_BITS = 40;
+	private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 记录一个耗时
+	 *
+	 * @param nanos
+	 *            耗时（纳秒）
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(Math.min(nanos, MAX_VALUE)));
+		sum.add(nanos);
+		long current = max.get();
+		while (nanos > current && !max.compareAndSet(current, nanos)) {
+			current = max.get();
+		}
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+	/**
+	 * 桶中能记录的最大值
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	/**
+	 * 取得当前的统计结果，记录与取得同时进行时结果可能包含部分正在记录的值
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+		Snapshot snapshot = new Snapshot();
+		snapshot.setCount(count);
+		if (count == 0) {
+			return snapshot;
+		}
+		long maxNanos = max.get();
+		snapshot.setMeanMicros(sum.sum() / (double) count / 1000);
+		snapshot.setMaxMicros(maxNanos / 1000.0);
+		snapshot.setP50Micros(percentile(counts, count, 0.5, maxNanos));
+		snapshot.setP90Micros(percentile(counts, count, 0.9, maxNanos));
+		snapshot.setP99Micros(percentile(counts, count, 0.99, maxNanos));
+		snapshot.setP999Micros(percentile(counts, count, 0.999, maxNanos));
+		return snapshot;
+	}
+
+	private static double percentile(long[] counts, long count, double quantile, long maxNanos) {
+		long rank = (long) Math.ceil(count * quantile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), maxNanos) / 1000.0;
+			}
+		}
+		return maxNanos / 1000.0;
+	}
+
+	/**
+	 * 直方图的统计结果，耗时单位为微秒
+	 */
+	@Data
+	public static class Snapshot {
+		private long count;
+		private double meanMicros;
+		private double p50Micros;
+		private double p90Micros;
+		private double p99Micros;
+		private double p999Micros;
+		private double maxMicros;
+	}
+}
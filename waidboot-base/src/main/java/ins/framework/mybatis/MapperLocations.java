@@ -0,0 +1,154 @@
+package ins.framework.mybatis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.session.Configuration;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.core.NestedIOException;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.StringUtils;
+
+/**
+ * 按SqlSessionFactory划分Mapper XML
+ * <p>
+ * 多个SqlSessionFactory共用 mybatis.mapperLocations 时，每个只加载namespace在其@MapperScan包下的XML，
+ * 避免每个SqlSessionFactory都解析全部XML；也可以用 mybatis.factories.&lt;名称&gt;.mapper-locations 单独指定。
+ * </p>
+ *
+ */
+public class MapperLocations {
+
+	private static final Pattern NAMESPACE = Pattern.compile("<mapper\\s+namespace\\s*=\\s*[\"']([^\"']+)[\"']");
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private MapperLocations() {
+	}
+
+	/**
+	 * 取得配置类上@MapperScan扫描的包
+	 */
+	public static String[] basePackages(Class<?> configClass) {
+		MapperScan mapperScan = AnnotationUtils.findAnnotation(configClass, MapperScan.class);
+		if (mapperScan == null) {
+			throw new IllegalArgumentException(configClass.getName() + " is not annotated with @MapperScan");
+		}
+		Set<String> packages = new LinkedHashSet<String>();
+		for (String pkg : mapperScan.value()) {
+			packages.add(pkg);
+		}
+		for (String pkg : mapperScan.basePackages()) {
+			packages.add(pkg);
+		}
+		for (Class<?> clazz : mapperScan.basePackageClasses()) {
+			packages.add(clazz.getPackage().getName());
+		}
+		return packages.toArray(new String[packages.size()]);
+	}
+
+	/**
+	 * 取得SqlSessionFactory要加载的Mapper XML
+	 *
+	 * @param environment
+	 *            配置
+	 * @param factoryName
+	 *            SqlSessionFactory的名称，单独指定时读取 mybatis.factories.&lt;名称&gt;.mapper-locations
+	 * @param defaults
+	 *            未单独指定时使用的XML（mybatis.mapperLocations）
+	 * @param basePackages
+	 *            未单独指定时只保留namespace在这些包下的XML
+	 * @return Mapper XML
+	 * @throws IOException
+	 */
+	public static Resource[] resolve(ConfigurableEnvironment environment, String factoryName, Resource[] defaults,
+			String... basePackages) throws IOException {
+		RelaxedPropertyResolver resolver = new RelaxedPropertyResolver(environment,
+				"mybatis.factories." + factoryName + ".");
+		String locations = resolver.getProperty("mapper-locations");
+		if (StringUtils.hasText(locations)) {
+			ResourcePatternResolver patternResolver = new PathMatchingResourcePatternResolver();
+			List<Resource> resources = new ArrayList<Resource>();
+			for (String location : StringUtils.commaDelimitedListToStringArray(locations)) {
+				for (Resource resource : patternResolver.getResources(location.trim())) {
+					resources.add(resource);
+				}
+			}
+			return resources.toArray(new Resource[resources.size()]);
+		}
+		return filter(defaults, basePackages);
+	}
+
+	/**
+	 * 只保留namespace在指定包下的XML
+	 */
+	public static Resource[] filter(Resource[] resources, String... basePackages) throws IOException {
+		if (resources == null) {
+			return new Resource[0];
+		}
+		List<Resource> result = new ArrayList<Resource>();
+		for (Resource resource : resources) {
+			String namespace = namespace(resource);
+			for (String basePackage : basePackages) {
+				if (namespace != null && namespace.startsWith(basePackage + ".")) {
+					result.add(resource);
+					break;
+				}
+			}
+		}
+		return result.toArray(new Resource[result.size()]);
+	}
+
+	/**
+	 * 读取XML的namespace，读到&lt;mapper&gt;元素的开始标签即停止，不读取其后的SQL
+	 */
+	private static String namespace(Resource resource) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), UTF_8));
+		try {
+			StringBuilder head = new StringBuilder();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				head.append(line).append('\n');
+				int start = head.indexOf("<mapper");
+				if (start >= 0 && head.indexOf(">", start) >= 0) {
+					break;
+				}
+			}
+			Matcher matcher = NAMESPACE.matcher(head);
+			return matcher.find() ? matcher.group(1) : null;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * 解析Mapper XML，与SqlSessionFactoryBean的处理相同
+	 */
+	public static void parse(Configuration configuration, Resource[] resources) throws IOException {
+		for (Resource resource : resources) {
+			try {
+				XMLMapperBuilder xmlMapperBuilder = new XMLMapperBuilder(resource.getInputStream(), configuration,
+						resource.toString(), configuration.getSqlFragments());
+				xmlMapperBuilder.parse();
+			} catch (Exception e) {
+				throw new NestedIOException("Failed to parse mapping resource: '" + resource + "'", e);
+			} finally {
+				ErrorContext.instance().reset();
+			}
+		}
+	}
+}
@@ -46,6 +46,19 @@ public class MybatisApiUtils {
 		if (_totalCount > 0) {
 			pageParam.setContainsTotalCount(false);
 		}
+		// _countStrategy: exact/capped/estimated/none，无法识别时为exact；capped时上限为_countCap，小于1时使用默认上限
+		String _countStrategy = request.getParameter("_countStrategy");
+		if (_countStrategy != null && _countStrategy.length() > 0) {
+			int _countCap = getParameterValue(request, "_countCap", PageParam.DEFAULT_COUNT_CAP);
+			pageParam.setCountCap(_countCap < 1 ? PageParam.DEFAULT_COUNT_CAP : _countCap);
+			pageParam.setCountStrategy(CountStrategy.of(_countStrategy));
+		}
+		// 传入_pageToken时使用Seek分页，排序字段由调用方设置
+		String _pageToken = request.getParameter("_pageToken");
+		if (_pageToken != null) {
+			pageParam.setContainsTotalCount(false);
+			pageParam.setSeekToken(_pageToken);
+		}
 		return pageParam;
 	}
 
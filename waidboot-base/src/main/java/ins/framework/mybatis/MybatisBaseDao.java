@@ -2,6 +2,10 @@ package ins.framework.mybatis;
 
 import java.util.List;
 
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
 /**
  * <p>
  * Mapper 继承该接口后，无需编写 mapper.xml 文件，即可获得CRUD功能
@@ -36,14 +40,17 @@ public interface MybatisBaseDao<T, I> {
 
 	/**
 	 * <p>
-	 * 插入（批量）
+	 * 插入（批量），生成一条多行VALUES的INSERT语句，自增主键会回填到实体对象中
+	 * </p>
+	 * <p>
+	 * 数据量较大时请使用{@link MybatisBatchUtils#insertBatch(MybatisBaseDao, List, int)}按批次拆分
 	 * </p>
 	 * 
 	 * @param entityList
 	 *            实体对象列表
 	 * @return int
 	 */
-	// int insertBatch(List<T> entityList);
+	int insertBatch(List<T> entityList);
 
 	/**
 	 * <p>
@@ -134,14 +141,45 @@ public interface MybatisBaseDao<T, I> {
 
 	/**
 	 * <p>
-	 * 根据ID 批量更新
+	 * 根据ID 批量更新，生成一条CASE WHEN形式的UPDATE语句
+	 * </p>
+	 * <p>
+	 * 数据量较大时请使用{@link MybatisBatchUtils#updateBatchByPrimaryKey(MybatisBaseDao, List, int)}按批次拆分
 	 * </p>
 	 * 
 	 * @param entityList
 	 *            实体对象列表
 	 * @return int
 	 */
-	// int updateBatchByPrimaryKey(List<T> entityList);
+	int updateBatchByPrimaryKey(List<T> entityList);
+
+	/**
+	 * <p>
+	 * 插入或更新一条记录：主键已存在时更新其余字段，否则插入。MYSQL使用INSERT ... ON DUPLICATE KEY UPDATE，PostgreSQL使用INSERT ... ON CONFLICT，ORACLE/H2使用MERGE
+	 * </p>
+	 * <p>
+	 * 需要设置主键，不回填自增主键；MYSQL中插入返回1，更新返回2，记录未变化返回0
+	 * </p>
+	 * 
+	 * @param entity
+	 *            实体对象
+	 * @return int
+	 */
+	int upsert(T entity);
+
+	/**
+	 * <p>
+	 * 批量插入或更新，生成一条语句
+	 * </p>
+	 * <p>
+	 * 数据量较大时请使用{@link MybatisBatchUtils#upsertBatch(MybatisBaseDao, List, int)}按批次拆分
+	 * </p>
+	 * 
+	 * @param entityList
+	 *            实体对象列表
+	 * @return int
+	 */
+	int upsertBatch(List<T> entityList);
 
 	/**
 	 * <p>
@@ -198,6 +236,65 @@ public interface MybatisBaseDao<T, I> {
 	 * @return Page<T>
 	 */
 	Page<T> selectPage(PageParam pageParam, T entity);
+
+	/**
+	 * <p>
+	 * 根据 分页参数和entity对象，查询一页记录，只查询指定的列，结果对象中其余属性为null
+	 * </p>
+	 * <p>
+	 * columns为PO的属性名，只允许本表的列，未知的属性名被忽略，重复的属性名只查询一次；主键总是包含在结果中。
+	 * 排序或Seek分页用到的字段须包含在columns中
+	 * </p>
+	 * 
+	 * @param pageParam
+	 *            分页参数
+	 * @param entity
+	 *            实体对象（可以为 null）
+	 * @param columns
+	 *            要查询的属性名
+	 * @return Page<T>
+	 */
+	Page<T> selectPageColumns(PageParam pageParam, @Param("entity") T entity, @Param("columns") String... columns);
+
+	/**
+	 * <p>
+	 * 根据 entity 条件，以游标方式查询记录，遍历时逐行从数据库读取，不在内存中保存全部结果
+	 * </p>
+	 * <p>
+	 * 游标依赖未关闭的SqlSession，需在事务中调用并在遍历完成后关闭
+	 * </p>
+	 * 
+	 * @param entity
+	 *            实体对象
+	 * @return Cursor<T>
+	 */
+	Cursor<T> selectCursor(T entity);
+
+	/**
+	 * <p>
+	 * 根据 entity 条件，流式查询记录，每读取一行回调一次resultHandler，不在内存中保存全部结果
+	 * </p>
+	 * 
+	 * @param entity
+	 *            实体对象
+	 * @param resultHandler
+	 *            逐行处理结果，可使用{@link ConsumerResultHandler}适配Consumer
+	 */
+	void streamByEntity(T entity, ResultHandler<T> resultHandler);
+
+	/**
+	 * <p>
+	 * 根据 entity 条件，按列查询全部记录，数值列保存为基本类型数组，字符串列按字典编码，用于返回大量记录的统计报表
+	 * </p>
+	 * <p>
+	 * 只有entity一个参数：返回类型为单个对象时MyBatis忽略RowBounds，无法分页，需要限制行数时通过entity的条件缩小范围
+	 * </p>
+	 *
+	 * @param entity
+	 *            实体对象
+	 * @return ColumnarPage
+	 */
+	ColumnarPage selectColumnar(T entity);
 	/**
 	 * <p>
 	 * 根据 entity 条件，查询总记录数
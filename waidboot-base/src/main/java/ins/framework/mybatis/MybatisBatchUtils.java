@@ -0,0 +1,371 @@
+package ins.framework.mybatis;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * MybatisBaseDao批量操作的工具类
+ * <p>
+ * 将大批量数据按批次大小拆分后分别调用insertBatch/updateBatchByPrimaryKey，
+ * 每个批次只需一次数据库往返，同时避免单条SQL过长超过数据库的报文大小限制
+ * </p>
+ * <p>
+ * 按主键批量查询/删除时，in列表按批次拆分并补齐到2的幂次长度（重复最后一个主键），
+ * 使不同数量的主键生成的SQL只有少数几种，预编译语句缓存可以命中
+ * </p>
+ *
+ */
+public class MybatisBatchUtils {
+
+	/** 默认批次大小 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	/** 最大批次大小 */
+	public static final int MAX_BATCH_SIZE = 5000;
+
+	/**
+	 * 按默认批次大小批量插入，自增主键会回填到实体对象中
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @return 插入的记录数
+	 */
+	public static <T> int insertBatch(MybatisBaseDao<T, ?> dao, List<T> entityList) {
+		return insertBatch(dao, entityList, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * 按指定批次大小批量插入，自增主键会回填到实体对象中
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @param batchSize
+	 *            批次大小
+	 * @return 插入的记录数
+	 */
+	public static <T> int insertBatch(MybatisBaseDao<T, ?> dao, List<T> entityList, int batchSize) {
+		int count = 0;
+		for (List<T> batch : partition(entityList, batchSize)) {
+			count += dao.insertBatch(batch);
+		}
+		return count;
+	}
+
+	/**
+	 * 按默认批次大小根据主键批量更新
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @return 更新的记录数
+	 */
+	public static <T> int updateBatchByPrimaryKey(MybatisBaseDao<T, ?> dao, List<T> entityList) {
+		return updateBatchByPrimaryKey(dao, entityList, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * 按指定批次大小根据主键批量更新
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @param batchSize
+	 *            批次大小
+	 * @return 更新的记录数
+	 */
+	public static <T> int updateBatchByPrimaryKey(MybatisBaseDao<T, ?> dao, List<T> entityList, int batchSize) {
+		int count = 0;
+		for (List<T> batch : partition(entityList, batchSize)) {
+			count += dao.updateBatchByPrimaryKey(batch);
+		}
+		return count;
+	}
+
+	/**
+	 * 按默认批次大小批量插入或更新
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @return 影响的记录数
+	 */
+	public static <T> int upsertBatch(MybatisBaseDao<T, ?> dao, List<T> entityList) {
+		return upsertBatch(dao, entityList, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * 按指定批次大小批量插入或更新
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param entityList
+	 *            实体对象列表
+	 * @param batchSize
+	 *            批次大小
+	 * @return 影响的记录数
+	 */
+	public static <T> int upsertBatch(MybatisBaseDao<T, ?> dao, List<T> entityList, int batchSize) {
+		int count = 0;
+		for (List<T> batch : partition(entityList, batchSize)) {
+			count += dao.upsertBatch(batch);
+		}
+		return count;
+	}
+
+	/**
+	 * 按默认批次大小根据主键批量查询，各批次依次执行，结果按传入的主键顺序返回
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param idList
+	 *            主键列表
+	 * @param idProperty
+	 *            PO对象中主键的属性名
+	 * @return 查询结果，不存在的主键没有对应记录，重复的主键只返回一条
+	 * @see #primaryKeyValue(Object)
+	 */
+	public static <T, I> List<T> selectBatchByPrimaryKeys(MybatisBaseDao<T, I> dao, List<I> idList, String idProperty) {
+		return selectBatchByPrimaryKeys(dao, idList, idProperty, DEFAULT_BATCH_SIZE, null);
+	}
+
+	/**
+	 * 按指定批次大小根据主键批量查询，结果按传入的主键顺序返回
+	 * <p>
+	 * 传入线程池时各批次并行执行，此时查询不在调用方的事务中
+	 * </p>
+	 * <p>
+	 * 传入的主键与查询结果的主键属性按{@link #primaryKeyValue(Object)}比较，整数类型不同（如Integer主键、Long属性）也能对应；
+	 * 查询结果的主键仍无法与传入的主键对应时（如idProperty错误、主键类型不匹配）抛出IllegalStateException，而不是丢弃该记录
+	 * </p>
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param idList
+	 *            主键列表
+	 * @param idProperty
+	 *            PO对象中主键的属性名
+	 * @param batchSize
+	 *            批次大小
+	 * @param executor
+	 *            并行执行各批次的线程池，为空时在调用线程中依次执行
+	 * @return 查询结果，不存在的主键没有对应记录，重复的主键只返回一条
+	 */
+	public static <T, I> List<T> selectBatchByPrimaryKeys(final MybatisBaseDao<T, I> dao, List<I> idList,
+			String idProperty, int batchSize, ExecutorService executor) {
+		if (idList == null || idList.isEmpty()) {
+			return new ArrayList<T>();
+		}
+		Map<Object, I> idMap = new LinkedHashMap<Object, I>(idList.size() * 4 / 3 + 1);
+		for (I id : idList) {
+			Object key = primaryKeyValue(id);
+			if (!idMap.containsKey(key)) {
+				idMap.put(key, id);
+			}
+		}
+		List<I> distinctIds = new ArrayList<I>(idMap.values());
+		List<List<T>> batches = new ArrayList<List<T>>();
+		if (executor == null) {
+			for (List<I> batch : partition(distinctIds, batchSize)) {
+				batches.add(dao.selectBatchByPrimaryKeys(padToPowerOfTwo(batch)));
+			}
+		} else {
+			List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+			for (final List<I> batch : partition(distinctIds, batchSize)) {
+				tasks.add(new Callable<List<T>>() {
+					public List<T> call() throws Exception {
+						return dao.selectBatchByPrimaryKeys(padToPowerOfTwo(batch));
+					}
+				});
+			}
+			batches = invokeAll(executor, tasks);
+		}
+		Map<Object, T> rows = new HashMap<Object, T>(idMap.size() * 4 / 3 + 1);
+		for (List<T> batch : batches) {
+			for (T row : batch) {
+				Object key = primaryKeyValue(SystemMetaObject.forObject(row).getValue(idProperty));
+				if (!idMap.containsKey(key)) {
+					throw unmatchedRow(key, idProperty);
+				}
+				rows.put(key, row);
+			}
+		}
+		List<T> result = new ArrayList<T>(rows.size());
+		for (Object key : idMap.keySet()) {
+			T row = rows.get(key);
+			if (row != null) {
+				result.add(row);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 按默认批次大小根据主键批量删除，各批次依次执行
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param idList
+	 *            主键列表
+	 * @return 删除的记录数
+	 */
+	public static <T, I> int deleteBatchByPrimaryKeys(MybatisBaseDao<T, I> dao, List<I> idList) {
+		return deleteBatchByPrimaryKeys(dao, idList, DEFAULT_BATCH_SIZE, null);
+	}
+
+	/**
+	 * 按指定批次大小根据主键批量删除，各批次依次执行
+	 * <p>
+	 * 传入TransactionTemplate时每个批次在独立的短事务中执行，避免一个大事务长时间持有大量行锁；
+	 * 此时已提交的批次不会因后面批次失败而回滚
+	 * </p>
+	 *
+	 * @param dao
+	 *            Dao对象
+	 * @param idList
+	 *            主键列表
+	 * @param batchSize
+	 *            批次大小
+	 * @param transactionTemplate
+	 *            每个批次使用的事务模板（传播行为一般为REQUIRES_NEW），为空时在调用方的事务中执行
+	 * @return 删除的记录数
+	 */
+	public static <T, I> int deleteBatchByPrimaryKeys(final MybatisBaseDao<T, I> dao, List<I> idList, int batchSize,
+			TransactionTemplate transactionTemplate) {
+		int count = 0;
+		for (List<I> batch : partition(idList, batchSize)) {
+			final List<I> paddedBatch = padToPowerOfTwo(batch);
+			if (transactionTemplate == null) {
+				count += dao.deleteBatchByPrimaryKeys(paddedBatch);
+			} else {
+				count += transactionTemplate.execute(new TransactionCallback<Integer>() {
+					public Integer doInTransaction(TransactionStatus status) {
+						return dao.deleteBatchByPrimaryKeys(paddedBatch);
+					}
+				});
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 将列表长度补齐到2的幂次，补齐部分重复最后一个元素（in条件中重复的值不影响结果）
+	 *
+	 * @param list
+	 *            原列表，不为空
+	 * @return 补齐后的列表，长度已是2的幂次时返回原列表
+	 */
+	public static <E> List<E> padToPowerOfTwo(List<E> list) {
+		int size = list.size();
+		int padded = Integer.highestOneBit(size);
+		if (padded == size) {
+			return list;
+		}
+		padded <<= 1;
+		List<E> result = new ArrayList<E>(padded);
+		result.addAll(list);
+		E last = list.get(size - 1);
+		while (result.size() < padded) {
+			result.add(last);
+		}
+		return result;
+	}
+
+	/**
+	 * 主键的比较值：整数类型（Byte、Short、Integer、Long、BigInteger及没有小数部分的BigDecimal）在long范围内时统一转换为Long，
+	 * 其他类型原样返回
+	 *
+	 * @param id
+	 *            主键
+	 * @return 用于比较及作为Map键的主键值
+	 */
+	public static Object primaryKeyValue(Object id) {
+		if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+			return Long.valueOf(((Number) id).longValue());
+		}
+		if (id instanceof BigInteger && ((BigInteger) id).bitLength() < 64) {
+			return Long.valueOf(((BigInteger) id).longValue());
+		}
+		if (id instanceof BigDecimal) {
+			BigDecimal decimal = (BigDecimal) id;
+			if (decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0) {
+				BigInteger integer = decimal.toBigInteger();
+				if (integer.bitLength() < 64) {
+					return Long.valueOf(integer.longValue());
+				}
+			}
+		}
+		return id;
+	}
+
+	static IllegalStateException unmatchedRow(Object key, String idProperty) {
+		return new IllegalStateException("Property '" + idProperty + "' of selected row is " + key
+				+ (key == null ? "" : " (" + key.getClass().getName() + ")") + ", which matches none of the requested ids");
+	}
+
+	private static <R> List<R> invokeAll(ExecutorService executor, List<Callable<R>> tasks) {
+		try {
+			List<R> results = new ArrayList<R>(tasks.size());
+			for (Future<R> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause.getMessage(), cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while executing batches", e);
+		}
+	}
+
+	/**
+	 * 将List按指定大小拆分为多个子List（子List为原List的视图）
+	 *
+	 * @param list
+	 *            原List
+	 * @param size
+	 *            子List大小
+	 * @return 拆分后的List
+	 */
+	public static <E> List<List<E>> partition(List<E> list, int size) {
+		if (size < 1 || size > MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("batchSize must between 1 and " + MAX_BATCH_SIZE);
+		}
+		if (list == null || list.isEmpty()) {
+			return Collections.emptyList();
+		}
+		int total = list.size();
+		List<List<E>> result = new ArrayList<List<E>>((total + size - 1) / size);
+		for (int from = 0; from < total; from += size) {
+			result.add(list.subList(from, Math.min(from + size, total)));
+		}
+		return result;
+	}
+}
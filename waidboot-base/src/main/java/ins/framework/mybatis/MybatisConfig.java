@@ -1,11 +1,9 @@
 package ins.framework.mybatis;
 
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
-
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
@@ -13,15 +11,10 @@ import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.TransactionManagementConfigurer;
 
-import com.github.miemiedev.mybatis.paginator.dialect.DB2Dialect;
-import com.github.miemiedev.mybatis.paginator.dialect.H2Dialect;
-import com.github.miemiedev.mybatis.paginator.dialect.HSQLDialect;
-import com.github.miemiedev.mybatis.paginator.dialect.MySQLDialect;
-import com.github.miemiedev.mybatis.paginator.dialect.OracleDialect;
-import com.github.miemiedev.mybatis.paginator.dialect.PostgreSQLDialect;
-import com.github.miemiedev.mybatis.paginator.dialect.SQLServerDialect;
-import com.github.miemiedev.mybatis.paginator.dialect.SybaseDialect;
-
+import ins.framework.mybatis.cache.InvalidationBus;
+import ins.framework.mybatis.cache.InvalidationTransport;
+import ins.framework.mybatis.cache.LoopbackInvalidationTransport;
+import ins.framework.mybatis.cache.NearCacheInvalidationInterceptor;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -30,35 +23,141 @@ import lombok.extern.slf4j.Slf4j;
 public class MybatisConfig implements TransactionManagementConfigurer {
 	@Autowired
 	private DataSource dataSource;
+	/** 异步count线程池的线程数 */
+	@Value("${mybatis.page.countPoolSize:" + OffsetLimitInterceptor.DEFAULT_POOL_SIZE + "}")
+	private int countPoolSize;
+	/** 异步count线程池的队列长度，队列满时count在调用线程中同步执行 */
+	@Value("${mybatis.page.countQueueSize:" + OffsetLimitInterceptor.DEFAULT_POOL_QUEUE_SIZE + "}")
+	private int countQueueSize;
+	/** count查询的超时时间（毫秒），超时后分页结果中不包含总记录数 */
+	@Value("${mybatis.page.countTimeoutMillis:10000}")
+	private long countTimeoutMillis;
+	/** 总记录数缓存的过期时间（毫秒），小于等于0时不启用独立的总记录数缓存 */
+	@Value("${mybatis.page.countCacheTtlMillis:60000}")
+	private long countCacheTtlMillis;
+	/** 总记录数缓存过期后容忍使用旧值的时长（毫秒），期间只有一个线程重新count */
+	@Value("${mybatis.page.countCacheStaleMillis:0}")
+	private long countCacheStaleMillis;
+	/** 总记录数缓存的最大条数 */
+	@Value("${mybatis.page.countCacheSize:" + TotalCountCache.DEFAULT_MAX_SIZE + "}")
+	private int countCacheSize;
+	/** 按statement设置的总记录数缓存策略，格式为 statementId=ttlMillis[:staleMillis]，多个以逗号分隔 */
+	@Value("${mybatis.page.countCachePolicies:}")
+	private String countCachePolicies;
+	/** 直接调用selectBatchByPrimaryKeys/deleteBatchByPrimaryKeys时每批的主键数 */
+	@Value("${mybatis.batch.primaryKeyBatchSize:" + MybatisBatchUtils.DEFAULT_BATCH_SIZE + "}")
+	private int primaryKeyBatchSize;
+	/** 缓存清除通知中本节点的标识，为空时随机生成 */
+	@Value("${mybatis.cache.invalidation.nodeId:}")
+	private String invalidationNodeId;
+	/** 合并缓存清除通知的时间窗口（毫秒），小于等于0时立即发送 */
+	@Value("${mybatis.cache.invalidation.windowMillis:50}")
+	private long invalidationWindowMillis;
+	/** 慢SQL阈值（毫秒） */
+	@Value("${mybatis.slowSql.thresholdMillis:" + SlowSqlInterceptor.DEFAULT_THRESHOLD_MILLIS + "}")
+	private long slowSqlThresholdMillis;
+	/** 按statement设置的慢SQL阈值，格式为 statementId=thresholdMillis，多个以逗号分隔 */
+	@Value("${mybatis.slowSql.statementThresholds:}")
+	private String slowSqlStatementThresholds;
+	/** 对慢select执行EXPLAIN的抽样比例 */
+	@Value("${mybatis.slowSql.explainSampleRate:0.1}")
+	private double slowSqlExplainSampleRate;
+	/** 保留的慢SQL记录条数 */
+	@Value("${mybatis.slowSql.capacity:" + SlowSqlInterceptor.DEFAULT_CAPACITY + "}")
+	private int slowSqlCapacity;
+	/** 脱敏的参数名（正则表达式） */
+	@Value("${mybatis.slowSql.redactPattern:" + SlowSqlInterceptor.DEFAULT_REDACT_PATTERN + "}")
+	private String slowSqlRedactPattern;
+	/** 在节点之间传递缓存清除通知的方式，未配置时只在本JVM内传递 */
+	@Autowired(required = false)
+	private InvalidationTransport invalidationTransport;
 
+	/**
+	 * 分页插件，方言在各SqlSessionFactory创建后按其数据源检测（registerDialect）
+	 */
 	@Bean
-	public OffsetLimitInterceptor offsetLimitInterceptor() throws SQLException {
-		DatabaseMetaData metaData = dataSource.getConnection().getMetaData();
-		String databaseProductName = metaData.getDatabaseProductName();
+	public OffsetLimitInterceptor offsetLimitInterceptor() {
 		OffsetLimitInterceptor offsetLimitInterceptor = new OffsetLimitInterceptor();
-		if (databaseProductName.toLowerCase().contains("mysql")) {
-			offsetLimitInterceptor.setDialectClass(MySQLDialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("oracle")) {
-			offsetLimitInterceptor.setDialectClass(OracleDialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("db2")) {
-			offsetLimitInterceptor.setDialectClass(DB2Dialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("postgre")) {
-			offsetLimitInterceptor.setDialectClass(PostgreSQLDialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("sql server")) {
-			offsetLimitInterceptor.setDialectClass(SQLServerDialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("h2")) {
-			offsetLimitInterceptor.setDialectClass(H2Dialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("hsql")) {
-			offsetLimitInterceptor.setDialectClass(HSQLDialect.class.getName());
-		} else if (databaseProductName.toLowerCase().contains("sybase")) {
-			offsetLimitInterceptor.setDialectClass(SybaseDialect.class.getName());
-		} else {
-			throw new IllegalArgumentException("Unsupport Database [" + databaseProductName + "]");
+		offsetLimitInterceptor.setPoolMaxSize(countPoolSize);
+		offsetLimitInterceptor.setPoolQueueSize(countQueueSize);
+		offsetLimitInterceptor.setCountTimeoutMillis(countTimeoutMillis);
+		if (countCacheTtlMillis > 0) {
+			TotalCountCache totalCountCache = new TotalCountCache(countCacheSize, countCacheTtlMillis,
+					countCacheStaleMillis);
+			totalCountCache.setStatementPolicies(countCachePolicies);
+			offsetLimitInterceptor.setTotalCountCache(totalCountCache);
 		}
-		log.info("Current databaseProductName is [" + databaseProductName + "]");
 		return offsetLimitInterceptor;
 	}
 
+	/**
+	 * 按批次拆分主键批量查询/删除的插件，需放在插件列表的第一个
+	 */
+	@Bean
+	public PrimaryKeyBatchInterceptor primaryKeyBatchInterceptor() {
+		PrimaryKeyBatchInterceptor primaryKeyBatchInterceptor = new PrimaryKeyBatchInterceptor();
+		primaryKeyBatchInterceptor.setBatchSize(primaryKeyBatchSize);
+		return primaryKeyBatchInterceptor;
+	}
+
+	/**
+	 * 标记select语句可路由到从库的插件，未配置从库时不起作用
+	 */
+	@Bean
+	public ReadWriteRoutingInterceptor readWriteRoutingInterceptor() {
+		return new ReadWriteRoutingInterceptor();
+	}
+
+	/**
+	 * 记录慢SQL的插件
+	 */
+	@Bean
+	public SlowSqlInterceptor slowSqlInterceptor() {
+		SlowSqlInterceptor slowSqlInterceptor = new SlowSqlInterceptor();
+		slowSqlInterceptor.setThresholdMillis(slowSqlThresholdMillis);
+		slowSqlInterceptor.setStatementThresholds(slowSqlStatementThresholds);
+		slowSqlInterceptor.setExplainSampleRate(slowSqlExplainSampleRate);
+		slowSqlInterceptor.setCapacity(slowSqlCapacity);
+		slowSqlInterceptor.setRedactPattern(slowSqlRedactPattern);
+		return slowSqlInterceptor;
+	}
+
+	/**
+	 * 各SqlSessionFactory启动耗时
+	 */
+	@Bean
+	public StartupTimingReport startupTimingReport() {
+		return new StartupTimingReport();
+	}
+
+	/**
+	 * 按列读取查询结果的插件
+	 */
+	@Bean
+	public ColumnarResultSetInterceptor columnarResultSetInterceptor() {
+		return new ColumnarResultSetInterceptor();
+	}
+
+	/**
+	 * 事务提交后按主键清除BoundedNearCache的插件
+	 */
+	@Bean(destroyMethod = "close")
+	public NearCacheInvalidationInterceptor nearCacheInvalidationInterceptor() {
+		NearCacheInvalidationInterceptor nearCacheInvalidationInterceptor = new NearCacheInvalidationInterceptor();
+		nearCacheInvalidationInterceptor.setInvalidationBus(invalidationBus());
+		return nearCacheInvalidationInterceptor;
+	}
+
+	/**
+	 * 向其他节点广播缓存清除通知
+	 */
+	@Bean(destroyMethod = "close")
+	public InvalidationBus invalidationBus() {
+		InvalidationTransport transport = invalidationTransport != null ? invalidationTransport
+				: new LoopbackInvalidationTransport();
+		return new InvalidationBus(transport, invalidationNodeId, invalidationWindowMillis);
+	}
+
 	@Bean
 	@Override
 	public PlatformTransactionManager annotationDrivenTransactionManager() {
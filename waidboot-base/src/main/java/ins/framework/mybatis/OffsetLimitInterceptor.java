@@ -1,13 +1,25 @@
 package ins.framework.mybatis; 
 
-import java.lang.reflect.Constructor;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
@@ -16,22 +28,29 @@ import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.MappedStatement.Builder;
 import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.Intercepts;
 import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.plugin.Plugin;
 import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.miemiedev.mybatis.paginator.dialect.Dialect;
+import com.github.miemiedev.mybatis.paginator.domain.Order;
 import com.github.miemiedev.mybatis.paginator.domain.PageBounds;
 import com.github.miemiedev.mybatis.paginator.domain.Paginator;
 import com.github.miemiedev.mybatis.paginator.support.PropertiesHelper;
-import com.github.miemiedev.mybatis.paginator.support.SQLHelp;
 
 
 /**
@@ -55,9 +74,31 @@ public class OffsetLimitInterceptor implements Interceptor{
 	static int ROWBOUNDS_INDEX = 2;
 	static int RESULT_HANDLER_INDEX = 3;
 
-    static ExecutorService Pool;
+    /** 分页MappedStatement缓存的默认最大条数 */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 1024;
+
+    /** count线程池的默认线程数 */
+    public static final int DEFAULT_POOL_SIZE = 8;
+    /** count线程池的默认队列长度 */
+    public static final int DEFAULT_POOL_QUEUE_SIZE = 64;
+
     String dialectClass;
+    /** 设置了dialectClass时，未检测方言的SqlSessionFactory使用的方言 */
+    DatabaseDialect defaultDialect;
+    /** 按SqlSessionFactory(Configuration)检测的方言，各数据源分别生成分页及count语句 */
+    final ConcurrentMap<Configuration, DatabaseDialect> dialects = new ConcurrentHashMap<Configuration, DatabaseDialect>();
     boolean asyncTotalCount = false;
+    int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    int poolMaxSize = DEFAULT_POOL_SIZE;
+    int poolQueueSize = DEFAULT_POOL_QUEUE_SIZE;
+    /** count查询的超时时间（毫秒），0表示不超时 */
+    long countTimeoutMillis = 0;
+    TotalCountListener totalCountListener = new TotalCountListener.Adapter();
+    TotalCountExecutor countExecutor;
+    /** 独立的总记录数缓存，为空时沿用Mapper二级缓存 */
+    TotalCountCache totalCountCache;
+    /** 按SqlSessionFactory(Configuration)及 statement id + 分页SQL + 参数名 缓存的分页MappedStatement，分页查询时只需绑定参数 */
+    final ConcurrentMap<Configuration, ConcurrentMap<String, MappedStatement>> pageStatementCache = new ConcurrentHashMap<Configuration, ConcurrentMap<String, MappedStatement>>();
 	
 	public Object intercept(final Invocation invocation) throws Throwable {
         final Executor executor = (Executor) invocation.getTarget();
@@ -73,66 +114,361 @@ public class OffsetLimitInterceptor implements Interceptor{
             return invocation.proceed();
         }
 
-        final Dialect dialect;
-        try {
-            Class clazz = Class.forName(dialectClass);
-            Constructor constructor = clazz.getConstructor(MappedStatement.class, Object.class, PageBounds.class);
-            dialect = (Dialect)constructor.newInstance(new Object[]{ms, parameter, pageBounds});
-        } catch (Exception e) {
-            throw new ClassNotFoundException("Cannot create dialect instance: "+dialectClass,e);
+        if(rowBounds instanceof PageParam && ((PageParam)rowBounds).isSeek()){
+            return interceptSeek(invocation, executor, ms, parameter, (PageParam)rowBounds);
         }
 
+        final Dialect dialect = newDialect(ms, parameter, pageBounds);
+
         final BoundSql boundSql = ms.getBoundSql(parameter);
 
-        queryArgs[MAPPED_STATEMENT_INDEX] = copyFromNewSql(ms,boundSql,dialect.getPageSQL(), dialect.getParameterMappings(), dialect.getParameterObject());
-        queryArgs[PARAMETER_INDEX] = dialect.getParameterObject();
+        queryArgs[MAPPED_STATEMENT_INDEX] = pageStatement(ms, dialect.getPageSQL(), dialect.getParameterMappings());
+        queryArgs[PARAMETER_INDEX] = pageParameter(dialect, boundSql);
         queryArgs[ROWBOUNDS_INDEX] = new RowBounds(RowBounds.NO_ROW_OFFSET,RowBounds.NO_ROW_LIMIT);
 
-        Boolean async = pageBounds.getAsyncTotalCount() == null ? asyncTotalCount : pageBounds.getAsyncTotalCount();
-        Future<List> listFuture = call(new Callable<List>() {
-            public List call() throws Exception {
-                return (List)invocation.proceed();
+        final CountStrategy countStrategy = getCountStrategy(ms, rowBounds);
+        if(!pageBounds.isContainsTotalCount() || countStrategy == CountStrategy.NONE){
+            return invocation.proceed();
+        }
+        final int countCap = rowBounds instanceof PageParam ? ((PageParam)rowBounds).getCountCap() : PageParam.DEFAULT_COUNT_CAP;
+
+        boolean async = pageBounds.getAsyncTotalCount() == null ? asyncTotalCount : pageBounds.getAsyncTotalCount();
+        final CountStatement countStatement = new CountStatement();
+        Callable<Paginator> countTask = new Callable<Paginator>() {
+            public Paginator call() throws Exception {
+                int count = countTotal(ms, executor, parameter, boundSql, dialect.getCountSQL(), countStrategy, countCap, countStatement);
+                return new Paginator(pageBounds.getPage(), pageBounds.getLimit(), count);
+            }
+        };
+
+        //异步count先提交，与列表查询并行执行；列表查询始终在调用线程中执行
+        TotalCountExecutor countExecutor = getCountExecutor();
+        Future<Paginator> countFuture = null;
+        if(async){
+            countFuture = countExecutor.submit(ms.getId(), countTask);
+        }
+        List result;
+        try{
+            result = (List)invocation.proceed();
+        }catch(Throwable e){
+            if(countFuture != null){
+                countStatement.cancel();
+                countFuture.cancel(true);
+                countExecutor.getListener().onCancelled(ms.getId());
             }
-        }, async);
-
-
-        if(pageBounds.isContainsTotalCount()){
-            Callable<Paginator> countTask = new Callable() {
-                public Object call() throws Exception {
-                    Integer count;
-                    Cache cache = ms.getCache();
-                    if(cache != null && ms.isUseCache() && ms.getConfiguration().isCacheEnabled()){
-                        CacheKey cacheKey = executor.createCacheKey(ms,parameter,new PageBounds(),copyFromBoundSql(ms,boundSql,dialect.getCountSQL(), boundSql.getParameterMappings(), boundSql.getParameterObject()));
-                        count = (Integer)cache.getObject(cacheKey);
-                        if(count == null){
-                            count = SQLHelp.getCount(ms,executor.getTransaction(),parameter,boundSql,dialect);
-                            cache.putObject(cacheKey, count);
-                        }
-                    }else{
-                        count = SQLHelp.getCount(ms,executor.getTransaction(),parameter,boundSql,dialect);
+            throw e;
+        }
+        if(countFuture == null){
+            countFuture = countExecutor.run(ms.getId(), countTask);
+        }
+        Paginator paginator = awaitCount(ms, countFuture, countStatement);
+        if(paginator == null){
+            return new Page(result);
+        }
+        boolean truncated = countStrategy == CountStrategy.CAPPED && paginator.getTotalCount() > countCap;
+        if(truncated){
+            paginator = new Paginator(pageBounds.getPage(), pageBounds.getLimit(), countCap);
+        }
+        Page page = new Page(result, paginator);
+        page.setCountStrategy(countStrategy);
+        page.setTotalCountTruncated(truncated);
+        return page;
+	}
+
+    /**
+     * 取得实际使用的统计方式，方言不支持估算时ESTIMATED按EXACT统计
+     */
+    private CountStrategy getCountStrategy(MappedStatement ms, RowBounds rowBounds) {
+        CountStrategy countStrategy = rowBounds instanceof PageParam ? ((PageParam)rowBounds).getCountStrategy() : CountStrategy.EXACT;
+        if(countStrategy == CountStrategy.ESTIMATED && dialectOf(ms).countEstimator == null){
+            return CountStrategy.EXACT;
+        }
+        return countStrategy;
+    }
+
+    /**
+     * 按统计方式生成count语句并执行，设置了总记录数缓存时从缓存中取得，否则沿用Mapper的二级缓存
+     */
+    private int countTotal(final MappedStatement ms, final Executor executor, Object parameter, BoundSql boundSql,
+            String countSql, CountStrategy countStrategy, int countCap, final CountStatement countStatement) throws Exception {
+        final String sql;
+        final Object countParameter;
+        final BoundSql countBoundSql;
+        final TotalCountEstimator estimator;
+        if(countStrategy == CountStrategy.CAPPED){
+            Dialect cappedDialect = newDialect(ms, parameter, new PageBounds(1, countCap + 1));
+            sql = "select count(1) from (\n" + cappedDialect.getPageSQL() + "\n) tmp_capped";
+            countParameter = pageParameter(cappedDialect, boundSql);
+            countBoundSql = copyFromBoundSql(ms, boundSql, sql, cappedDialect.getParameterMappings(), countParameter);
+            estimator = null;
+        }else if(countStrategy == CountStrategy.ESTIMATED){
+            estimator = dialectOf(ms).countEstimator;
+            sql = estimator.getExplainSql(boundSql.getSql());
+            countParameter = parameter;
+            countBoundSql = boundSql;
+        }else{
+            sql = countSql;
+            countParameter = parameter;
+            countBoundSql = boundSql;
+            estimator = null;
+        }
+        Callable<Integer> countLoader = new Callable<Integer>() {
+            public Integer call() throws Exception {
+                return countStatement.execute(ms, executor.getTransaction(), sql, countParameter, countBoundSql, getCountTimeoutSeconds(), estimator);
+            }
+        };
+        if(totalCountCache != null){
+            return totalCountCache.get(ms.getId(), TotalCountCache.Key.of(ms, countBoundSql, countParameter, sql), countLoader);
+        }
+        Cache cache = ms.getCache();
+        if(cache != null && ms.isUseCache() && ms.getConfiguration().isCacheEnabled()){
+            CacheKey cacheKey = executor.createCacheKey(ms,countParameter,new PageBounds(),copyFromBoundSql(ms,countBoundSql,sql, countBoundSql.getParameterMappings(), countBoundSql.getParameterObject()));
+            Integer count = (Integer)cache.getObject(cacheKey);
+            if(count == null){
+                count = countLoader.call();
+                cache.putObject(cacheKey, count);
+            }
+            return count;
+        }
+        return countLoader.call();
+    }
+
+    /**
+     * Seek（Keyset）分页：以上一页最后一条记录的排序字段值作为条件，
+     * 改写为 where (k) > (?) order by k limit n，避免深分页时扫描并丢弃前面所有的记录
+     */
+    private Object interceptSeek(final Invocation invocation, final Executor executor, final MappedStatement ms,
+            final Object parameter, final PageParam pageParam) throws Throwable {
+        final Object[] queryArgs = invocation.getArgs();
+        List<Order> orders = pageParam.getOrders();
+        if(orders == null || orders.isEmpty()){
+            throw new IllegalArgumentException("Seek pagination requires orders: " + ms.getId());
+        }
+        Object[] seekValues = pageParam.getSeekValues();
+        if(seekValues != null && seekValues.length != orders.size()){
+            throw new IllegalArgumentException("Seek values size [" + seekValues.length
+                    + "] does not match orders size [" + orders.size() + "]: " + ms.getId());
+        }
+
+        //不分页的方言用于展开原SQL的参数及生成count语句
+        Dialect plainDialect = newDialect(ms, parameter, new PageBounds());
+        final BoundSql boundSql = ms.getBoundSql(parameter);
+        Map<String, Object> seekParameter = new HashMap<String, Object>((Map)plainDialect.getParameterObject());
+        List<ParameterMapping> seekMappings = new ArrayList<ParameterMapping>(plainDialect.getParameterMappings());
+        String seekSql = plainDialect.getPageSQL();
+        if(seekValues != null){
+            seekSql = "select * from (\n" + seekSql + "\n) tmp_seek where "
+                    + buildSeekPredicate(ms, orders, seekValues, seekParameter, seekMappings);
+        }
+        BoundSql seekBoundSql = copyFromBoundSql(ms, boundSql, seekSql, seekMappings, seekParameter);
+        MappedStatement seekMs = copyFromMappedStatement(ms, new BoundSqlSqlSource(seekBoundSql));
+
+        int limit = pageParam.getLimit();
+        Dialect dialect = newDialect(seekMs, seekParameter, new PageBounds(PageBounds.NO_PAGE, limit, orders, false));
+        queryArgs[MAPPED_STATEMENT_INDEX] = pageStatement(ms, dialect.getPageSQL(), dialect.getParameterMappings());
+        queryArgs[PARAMETER_INDEX] = pageParameter(dialect, seekBoundSql);
+        queryArgs[ROWBOUNDS_INDEX] = new RowBounds(RowBounds.NO_ROW_OFFSET,RowBounds.NO_ROW_LIMIT);
+
+        List result = (List)invocation.proceed();
+        Page page;
+        CountStrategy countStrategy = getCountStrategy(ms, pageParam);
+        if(pageParam.isContainsTotalCount() && countStrategy != CountStrategy.NONE){
+            int countCap = pageParam.getCountCap();
+            int count = countTotal(ms, executor, parameter, boundSql, plainDialect.getCountSQL(), countStrategy, countCap, new CountStatement());
+            boolean truncated = countStrategy == CountStrategy.CAPPED && count > countCap;
+            page = new Page(result, new Paginator(PageBounds.NO_PAGE, limit, truncated ? countCap : count));
+            page.setCountStrategy(countStrategy);
+            page.setTotalCountTruncated(truncated);
+        }else{
+            page = new Page(result);
+        }
+        if(limit != RowBounds.NO_ROW_LIMIT && result.size() >= limit){
+            page.setNextPageToken(SeekToken.encode(getSeekValues(ms, orders, result.get(result.size() - 1))));
+        }
+        return page;
+    }
+
+    /**
+     * 生成 (k1 > ?) or (k1 = ? and k2 > ?) ... 形式的条件，兼容不支持行值比较的数据库
+     */
+    private String buildSeekPredicate(MappedStatement ms, List<Order> orders, Object[] seekValues,
+            Map<String, Object> seekParameter, List<ParameterMapping> seekMappings) {
+        for(int i = 0; i < seekValues.length; i++){
+            if(seekValues[i] == null){
+                throw new IllegalArgumentException("Seek value of [" + orders.get(i).getProperty() + "] is null: " + ms.getId());
+            }
+            seekParameter.put("__seek" + i, seekValues[i]);
+        }
+        StringBuilder predicate = new StringBuilder("(");
+        for(int i = 0; i < orders.size(); i++){
+            if(i > 0){
+                predicate.append(" or ");
+            }
+            predicate.append("(");
+            for(int j = 0; j < i; j++){
+                predicate.append(orders.get(j).getProperty()).append(" = ? and ");
+                seekMappings.add(seekMapping(ms, j, seekValues[j]));
+            }
+            Order order = orders.get(i);
+            predicate.append(order.getProperty()).append(order.getDirection() == Order.Direction.DESC ? " < ?" : " > ?");
+            seekMappings.add(seekMapping(ms, i, seekValues[i]));
+            predicate.append(")");
+        }
+        return predicate.append(")").toString();
+    }
+
+    private ParameterMapping seekMapping(MappedStatement ms, int index, Object value) {
+        return new ParameterMapping.Builder(ms.getConfiguration(), "__seek" + index, value.getClass()).build();
+    }
+
+    /**
+     * 从记录中取出排序字段的值，排序字段为列名时根据ResultMap转换为属性名
+     */
+    private Object[] getSeekValues(MappedStatement ms, List<Order> orders, Object row) {
+        MetaObject metaObject = ms.getConfiguration().newMetaObject(row);
+        Object[] values = new Object[orders.size()];
+        for(int i = 0; i < orders.size(); i++){
+            String column = orders.get(i).getProperty();
+            String property = column;
+            for(ResultMap resultMap : ms.getResultMaps()){
+                for(ResultMapping resultMapping : resultMap.getResultMappings()){
+                    if(column.equalsIgnoreCase(resultMapping.getColumn())){
+                        property = resultMapping.getProperty();
                     }
-                    return new Paginator(pageBounds.getPage(), pageBounds.getLimit(), count);
                 }
-            };
-//            Future<Paginator> countFutrue = call(countTask, async);
-//            return new PageList(listFuture.get(),countFutrue.get());
-			Future<Paginator> countFutrue = call(countTask, async);
-			List result = listFuture.get();
-			Paginator paginator = countFutrue.get();
-			return new Page(result, paginator);
+            }
+            values[i] = metaObject.getValue(property);
         }
+        return values;
+    }
 
-        return listFuture.get();
-	}
+    private Dialect newDialect(MappedStatement ms, Object parameter, PageBounds pageBounds) {
+        return dialectOf(ms).factory.newDialect(ms, parameter, pageBounds);
+    }
 
-    private <T> Future<T> call(Callable callable, boolean async){
-        if(async){
-             return Pool.submit(callable);
-        }else{
-            FutureTask<T> future = new FutureTask(callable);
-            future.run();
-            return future;
+    /**
+     * 取得执行语句的SqlSessionFactory的方言：已检测的使用检测结果，否则使用dialectClass，均没有时检测其数据源
+     */
+    private DatabaseDialect dialectOf(MappedStatement ms) {
+        Configuration configuration = ms.getConfiguration();
+        DatabaseDialect dialect = dialects.get(configuration);
+        if(dialect != null){
+            return dialect;
+        }
+        if(defaultDialect != null){
+            return defaultDialect;
+        }
+        if(configuration.getEnvironment() == null){
+            throw new IllegalStateException("dialectClass is not set and SqlSessionFactory has no DataSource: " + ms.getId());
+        }
+        registerDialect(configuration.getEnvironment().getId(), configuration);
+        return dialects.get(configuration);
+    }
+
+    /**
+     * 检测SqlSessionFactory所用数据库的方言，在SqlSessionFactory创建后调用，检测时取得的连接随即关闭
+     *
+     * @param factoryName SqlSessionFactory的名称，用于日志
+     * @param configuration SqlSessionFactory的Configuration
+     * @return 检测到的方言
+     */
+    public DialectFactory registerDialect(String factoryName, Configuration configuration) {
+        DataSource dataSource = configuration.getEnvironment().getDataSource();
+        DatabaseDialect dialect = new DatabaseDialect(DialectFactory.forDataSource(dataSource));
+        dialects.put(configuration, dialect);
+        logger.info("Dialect of SqlSessionFactory [{}] is {}", factoryName,
+                dialect.factory.getDialectClass().getName());
+        return dialect.factory;
+    }
+
+    /**
+     * 取得分页SQL对应的MappedStatement，同一statement同一分页形态的SQL只复制一次MappedStatement，
+     * 各SqlSessionFactory的同名statement分别复制，每个SqlSessionFactory最多缓存statementCacheSize条
+     */
+    private MappedStatement pageStatement(MappedStatement ms, String pageSql, List<ParameterMapping> parameterMappings) {
+        ConcurrentMap<String, MappedStatement> statements = pageStatementCache.get(ms.getConfiguration());
+        if(statements == null){
+            statements = new ConcurrentHashMap<String, MappedStatement>();
+            ConcurrentMap<String, MappedStatement> existing = pageStatementCache.putIfAbsent(ms.getConfiguration(), statements);
+            if(existing != null){
+                statements = existing;
+            }
+        }
+        StringBuilder key = new StringBuilder(ms.getId().length() + pageSql.length() + 16 * parameterMappings.size());
+        key.append(ms.getId()).append('\n').append(pageSql);
+        for(ParameterMapping mapping : parameterMappings){
+            key.append('\n').append(mapping.getProperty());
+        }
+        String cacheKey = key.toString();
+        MappedStatement pageMs = statements.get(cacheKey);
+        if(pageMs == null){
+            pageMs = copyFromMappedStatement(ms, new PageSqlSource(ms.getConfiguration(), pageSql, parameterMappings));
+            if(statements.size() < statementCacheSize){
+                MappedStatement cached = statements.putIfAbsent(cacheKey, pageMs);
+                if(cached != null){
+                    pageMs = cached;
+                }
+            }
         }
+        return pageMs;
+    }
+
+    /**
+     * 分页查询的参数：方言展开后的参数Map，并补充foreach等动态SQL产生的附加参数
+     */
+    private Object pageParameter(Dialect dialect, BoundSql boundSql) {
+        Map<String, Object> pageParameter = (Map<String, Object>)dialect.getParameterObject();
+        for(ParameterMapping mapping : boundSql.getParameterMappings()){
+            String name = new PropertyTokenizer(mapping.getProperty()).getName();
+            if(!pageParameter.containsKey(name) && boundSql.hasAdditionalParameter(name)){
+                pageParameter.put(name, boundSql.getAdditionalParameter(name));
+            }
+        }
+        return pageParameter;
+    }
+
+    /**
+     * 等待count结果，超时后取消count语句并返回null，此时分页结果中不包含总记录数
+     */
+    private Paginator awaitCount(MappedStatement ms, Future<Paginator> countFuture, CountStatement countStatement) throws Throwable {
+        try{
+            if(countTimeoutMillis > 0){
+                return countFuture.get(countTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            return countFuture.get();
+        }catch(TimeoutException e){
+            countStatement.cancel();
+            countFuture.cancel(true);
+        }catch(ExecutionException e){
+            if(!(e.getCause() instanceof SQLTimeoutException)){
+                throw e.getCause();
+            }
+        }
+        getCountExecutor().getListener().onTimeout(ms.getId(), countTimeoutMillis);
+        logger.warn("Total count of [{}] timed out after {} ms, page returned without total count", ms.getId(), countTimeoutMillis);
+        return null;
+    }
+
+    private int getCountTimeoutSeconds() {
+        return (int)((countTimeoutMillis + 999) / 1000);
+    }
+
+    synchronized TotalCountExecutor getCountExecutor() {
+        if(countExecutor == null){
+            countExecutor = new TotalCountExecutor(poolMaxSize, poolQueueSize, totalCountListener);
+        }
+        return countExecutor;
+    }
+
+    /**
+     * 关闭count线程池，并释放各SqlSessionFactory的分页statement缓存
+     */
+    public synchronized void close() {
+        if(countExecutor != null){
+            countExecutor.shutdown();
+            countExecutor = null;
+        }
+        pageStatementCache.clear();
     }
 
     private MappedStatement copyFromNewSql(MappedStatement ms, BoundSql boundSql,
@@ -153,8 +489,8 @@ public class OffsetLimitInterceptor implements Interceptor{
 		return newBoundSql;
 	}
 	
-	//see: MapperBuilderAssistant
-	private MappedStatement copyFromMappedStatement(MappedStatement ms,SqlSource newSqlSource) {
+	//see: MapperBuilderAssistant，包内可见以便基准测试直接调用
+	MappedStatement copyFromMappedStatement(MappedStatement ms,SqlSource newSqlSource) {
 		Builder builder = new Builder(ms.getConfiguration(),ms.getId(),newSqlSource,ms.getSqlCommandType());
 		
 		builder.resource(ms.getResource());
@@ -194,15 +530,119 @@ public class OffsetLimitInterceptor implements Interceptor{
 
 	public void setProperties(Properties properties) {
         PropertiesHelper propertiesHelper = new PropertiesHelper(properties);
-		String dialectClass = propertiesHelper.getRequiredString("dialectClass");
-		setDialectClass(dialectClass);
+		String dialectClass = properties.getProperty("dialectClass");
+		if(dialectClass != null){
+		    setDialectClass(dialectClass);
+		}
 
         setAsyncTotalCount(propertiesHelper.getBoolean("asyncTotalCount",false));
 
         setPoolMaxSize(propertiesHelper.getInt("poolMaxSize",0));
 
+        setPoolQueueSize(propertiesHelper.getInt("poolQueueSize",DEFAULT_POOL_QUEUE_SIZE));
+
+        setCountTimeoutMillis(propertiesHelper.getInt("countTimeoutMillis",0));
+
+        int countCacheTtlMillis = propertiesHelper.getInt("countCacheTtlMillis",0);
+        if(countCacheTtlMillis > 0){
+            TotalCountCache countCache = new TotalCountCache(propertiesHelper.getInt("countCacheSize",TotalCountCache.DEFAULT_MAX_SIZE),
+                    countCacheTtlMillis, propertiesHelper.getInt("countCacheStaleMillis",0));
+            countCache.setStatementPolicies(propertiesHelper.getProperty("countCachePolicies"));
+            setTotalCountCache(countCache);
+        }
+
+        setStatementCacheSize(propertiesHelper.getInt("statementCacheSize",DEFAULT_STATEMENT_CACHE_SIZE));
+
 	}
 	
+	/**
+	 * 只保存SQL及参数映射的SqlSource，每次按传入的参数生成BoundSql，可在多次查询间共享
+	 */
+	public static class PageSqlSource implements SqlSource {
+		final Configuration configuration;
+		final String sql;
+		final List<ParameterMapping> parameterMappings;
+		public PageSqlSource(Configuration configuration, String sql, List<ParameterMapping> parameterMappings) {
+			this.configuration = configuration;
+			this.sql = sql;
+			this.parameterMappings = parameterMappings;
+		}
+		public BoundSql getBoundSql(Object parameterObject) {
+			return new BoundSql(configuration, sql, parameterMappings, parameterObject);
+		}
+	}
+
+	/**
+	 * 执行count语句，可设置查询超时，并可在执行过程中通过cancel()取消
+	 */
+	static class CountStatement {
+		private volatile Statement statement;
+		private volatile boolean cancelled;
+
+		int execute(MappedStatement ms, Transaction transaction, String countSql, Object parameter,
+				BoundSql boundSql, int timeoutSeconds) throws SQLException {
+			return execute(ms, transaction, countSql, parameter, boundSql, timeoutSeconds, null);
+		}
+
+		/**
+		 * @param estimator
+		 *            不为空时countSql为执行计划SQL，由估算器读取估算行数
+		 */
+		int execute(MappedStatement ms, Transaction transaction, String countSql, Object parameter,
+				BoundSql boundSql, int timeoutSeconds, TotalCountEstimator estimator) throws SQLException {
+			Connection connection = transaction.getConnection();
+			PreparedStatement countStmt = connection.prepareStatement(countSql);
+			try {
+				if (timeoutSeconds > 0) {
+					countStmt.setQueryTimeout(timeoutSeconds);
+				}
+				statement = countStmt;
+				if (cancelled) {
+					throw new SQLException("Count statement cancelled: " + ms.getId());
+				}
+				new DefaultParameterHandler(ms, parameter, boundSql).setParameters(countStmt);
+				ResultSet rs = countStmt.executeQuery();
+				try {
+					if (estimator != null) {
+						return estimator.getEstimate(rs);
+					}
+					return rs.next() ? rs.getInt(1) : 0;
+				} finally {
+					rs.close();
+				}
+			} finally {
+				statement = null;
+				countStmt.close();
+			}
+		}
+
+		void cancel() {
+			cancelled = true;
+			Statement st = statement;
+			if (st != null) {
+				try {
+					st.cancel();
+				} catch (SQLException e) {
+					logger.debug("Cancel count statement failed", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 一个数据库的方言及总记录数估算器
+	 */
+	static class DatabaseDialect {
+		final DialectFactory factory;
+		/** 为空表示不支持ESTIMATED统计方式 */
+		final TotalCountEstimator countEstimator;
+
+		DatabaseDialect(DialectFactory factory) {
+			this.factory = factory;
+			this.countEstimator = TotalCountEstimator.forDialect(factory.getDialectClass());
+		}
+	}
+
 	public static class BoundSqlSqlSource implements SqlSource {
 		BoundSql boundSql;
 		public BoundSqlSqlSource(BoundSql boundSql) {
@@ -216,6 +656,13 @@ public class OffsetLimitInterceptor implements Interceptor{
     public void setDialectClass(String dialectClass) {
         logger.debug("dialectClass: {} ", dialectClass);
         this.dialectClass = dialectClass;
+        this.defaultDialect = new DatabaseDialect(new DialectFactory(dialectClass));
+        this.pageStatementCache.clear();
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        logger.debug("statementCacheSize: {} ", statementCacheSize);
+        this.statementCacheSize = statementCacheSize;
     }
 
     public void setAsyncTotalCount(boolean asyncTotalCount) {
@@ -223,15 +670,46 @@ public class OffsetLimitInterceptor implements Interceptor{
         this.asyncTotalCount = asyncTotalCount;
     }
 
-    public void setPoolMaxSize(int poolMaxSize) {
+    /**
+     * 设置count线程池的最大线程数，小于等于0时使用默认值
+     */
+    public synchronized void setPoolMaxSize(int poolMaxSize) {
+        logger.debug("poolMaxSize: {} ", poolMaxSize);
+        this.poolMaxSize = poolMaxSize > 0 ? poolMaxSize : DEFAULT_POOL_SIZE;
+        close();
+    }
 
-        if(poolMaxSize > 0){
-            logger.debug("poolMaxSize: {} ", poolMaxSize);
-            Pool = Executors.newFixedThreadPool(poolMaxSize);
-        }else{
-            Pool = Executors.newCachedThreadPool();
-        }
+    public synchronized void setPoolQueueSize(int poolQueueSize) {
+        logger.debug("poolQueueSize: {} ", poolQueueSize);
+        this.poolQueueSize = poolQueueSize > 0 ? poolQueueSize : DEFAULT_POOL_QUEUE_SIZE;
+        close();
+    }
 
+    public void setCountTimeoutMillis(long countTimeoutMillis) {
+        logger.debug("countTimeoutMillis: {} ", countTimeoutMillis);
+        this.countTimeoutMillis = countTimeoutMillis;
+    }
+
+    /**
+     * 设置独立的总记录数缓存，设置后count结果不再放入Mapper的二级缓存
+     */
+    public void setTotalCountCache(TotalCountCache totalCountCache) {
+        this.totalCountCache = totalCountCache;
+    }
+
+    public TotalCountCache getTotalCountCache() {
+        return totalCountCache;
+    }
+
+    public synchronized void setTotalCountListener(TotalCountListener totalCountListener) {
+        this.totalCountListener = totalCountListener;
+        close();
+    }
 
+    /**
+     * 取得count线程池，可用于查看队列深度及活动线程数
+     */
+    public TotalCountExecutor getTotalCountExecutor() {
+        return getCountExecutor();
     }
 }
@@ -2,16 +2,27 @@ package ins.framework.mybatis;
 
 import java.util.Collection;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.github.miemiedev.mybatis.paginator.domain.PageList;
 import com.github.miemiedev.mybatis.paginator.domain.Paginator;
 /**
  * 一页数据
+ * <p>
+ * 通过{@link PageSerializer}序列化为带分页信息及续页令牌的JSON对象
+ * </p>
  * @author zhouxianli
  *
  * @param <PO对象>
  */
+@JsonSerialize(using = PageSerializer.class)
 public class Page<E> extends PageList<E> {
 	private static final long serialVersionUID = 1L;
+	/** Seek分页时下一页的续页令牌，为空表示没有下一页 */
+	private String nextPageToken;
+	/** 总记录数的统计方式 */
+	private CountStrategy countStrategy;
+	/** CAPPED统计时实际记录数超出上限，总记录数为上限值 */
+	private boolean totalCountTruncated;
 
 	public Page() {
 	}
@@ -52,4 +63,31 @@ public class Page<E> extends PageList<E> {
 		return 0;
 	}
 
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	public void setNextPageToken(String nextPageToken) {
+		this.nextPageToken = nextPageToken;
+	}
+
+	/**
+	 * 总记录数的统计方式，未统计总记录数时为空
+	 */
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public boolean isTotalCountTruncated() {
+		return totalCountTruncated;
+	}
+
+	public void setTotalCountTruncated(boolean totalCountTruncated) {
+		this.totalCountTruncated = totalCountTruncated;
+	}
+
 }
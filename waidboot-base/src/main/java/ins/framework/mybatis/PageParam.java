@@ -9,7 +9,17 @@ import com.github.miemiedev.mybatis.paginator.domain.PageBounds;
 
 public class PageParam extends PageBounds {
 	private static final long serialVersionUID = 1L;
+	/** CAPPED统计方式的默认上限 */
+	public static final int DEFAULT_COUNT_CAP = 1000;
     private int totalCount;
+	/** 是否使用Seek（Keyset）分页，按排序字段定位下一页而不是使用offset */
+	private boolean seek;
+	/** Seek分页时上一页最后一条记录的排序字段值，为空表示查询第一页 */
+	private Object[] seekValues;
+	/** 总记录数的统计方式 */
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	/** CAPPED统计方式的上限 */
+	private int countCap = DEFAULT_COUNT_CAP;
     
 	public PageParam() {
 		super();
@@ -75,4 +85,82 @@ public class PageParam extends PageBounds {
 		this.totalCount = totalCount;
 	}
 
+	public boolean isSeek() {
+		return seek;
+	}
+
+	/**
+	 * 设置是否使用Seek（Keyset）分页
+	 * <p>
+	 * Seek分页时必须设置排序字段（orders），排序字段需为查询结果中的列名，且组合后能唯一确定一条记录，
+	 * 下一页的续页令牌通过{@link Page#getNextPageToken()}返回
+	 * </p>
+	 * 
+	 * @param seek
+	 */
+	public void setSeek(boolean seek) {
+		this.seek = seek;
+	}
+
+	public Object[] getSeekValues() {
+		return seekValues;
+	}
+
+	public void setSeekValues(Object... seekValues) {
+		this.seekValues = seekValues;
+	}
+
+	/**
+	 * 根据上一页返回的续页令牌设置Seek分页的起始位置
+	 * 
+	 * @param seekToken
+	 *            续页令牌，为空时表示查询第一页
+	 */
+	public void setSeekToken(String seekToken) {
+		this.seek = true;
+		if (seekToken == null || seekToken.length() == 0) {
+			this.seekValues = null;
+		} else {
+			this.seekValues = SeekToken.decode(seekToken);
+		}
+	}
+
+	public CountStrategy getCountStrategy() {
+		return countStrategy;
+	}
+
+	/**
+	 * 设置总记录数的统计方式，NONE时不统计总记录数
+	 * 
+	 * @param countStrategy
+	 */
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy == null ? CountStrategy.EXACT : countStrategy;
+		if (this.countStrategy == CountStrategy.NONE) {
+			setContainsTotalCount(false);
+		}
+	}
+
+	public int getCountCap() {
+		return countCap;
+	}
+
+	public void setCountCap(int countCap) {
+		if (countCap < 1) {
+			throw new IllegalArgumentException("countCap must be greater than 0");
+		}
+		this.countCap = countCap;
+	}
+
+	/**
+	 * 最多统计到指定上限，超出上限时{@link Page#isTotalCountTruncated()}为true
+	 * 
+	 * @param countCap
+	 *            统计上限
+	 */
+	public void setCappedCount(int countCap) {
+		setCountCap(countCap);
+		setCountStrategy(CountStrategy.CAPPED);
+	}
+
 }
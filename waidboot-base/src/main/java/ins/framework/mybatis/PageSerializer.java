@@ -0,0 +1,44 @@
+package ins.framework.mybatis;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * 把{@link Page}序列化为JSON对象而不是数组
+ * <p>
+ * Page继承自List，Jackson默认只输出其中的记录，分页信息及Seek分页的续页令牌会丢失。输出格式为：
+ * {"list":[...],"pageNo":1,"pageSize":10,"totalCount":100,"nextPageToken":"...","countStrategy":"EXACT","totalCountTruncated":false}，
+ * 客户端将nextPageToken作为_pageToken参数传回即可查询下一页，为null表示没有下一页。
+ * </p>
+ *
+ */
+@SuppressWarnings("rawtypes")
+public class PageSerializer extends StdSerializer<Page> {
+	private static final long serialVersionUID = 1L;
+
+	public PageSerializer() {
+		super(Page.class);
+	}
+
+	@Override
+	public void serialize(Page page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStartObject();
+		gen.writeFieldName("list");
+		gen.writeStartArray();
+		for (Object row : page) {
+			provider.defaultSerializeValue(row, gen);
+		}
+		gen.writeEndArray();
+		gen.writeNumberField("pageNo", page.getPageNo());
+		gen.writeNumberField("pageSize", page.getPageSize());
+		gen.writeNumberField("totalCount", page.getTotalCount());
+		gen.writeStringField("nextPageToken", page.getNextPageToken());
+		gen.writeStringField("countStrategy",
+				page.getCountStrategy() == null ? null : page.getCountStrategy().name());
+		gen.writeBooleanField("totalCountTruncated", page.isTotalCountTruncated());
+		gen.writeEndObject();
+	}
+}
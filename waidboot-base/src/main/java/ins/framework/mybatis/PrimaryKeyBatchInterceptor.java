@@ -0,0 +1,121 @@
+package ins.framework.mybatis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 拆分按主键批量查询/删除的插件
+ * <p>
+ * 直接调用Dao的selectBatchByPrimaryKeys/deleteBatchByPrimaryKeys时，主键列表去重后按批次大小拆分，
+ * 每批补齐到2的幂次长度（与{@link MybatisBatchUtils}相同），分别执行后合并查询结果或累加删除的记录数，
+ * 不会生成包含数万个主键的in条件。
+ * </p>
+ * <p>
+ * 放在插件列表的第一个，其他Executor插件（读写分离、统计等）仍只看到一次调用。
+ * </p>
+ *
+ */
+@Intercepts({
+		@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class,
+				RowBounds.class, ResultHandler.class }),
+		@Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }) })
+public class PrimaryKeyBatchInterceptor implements Interceptor {
+
+	private static final String SELECT_BATCH = ".selectBatchByPrimaryKeys";
+	private static final String DELETE_BATCH = ".deleteBatchByPrimaryKeys";
+
+	private int batchSize = MybatisBatchUtils.DEFAULT_BATCH_SIZE;
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		Object[] args = invocation.getArgs();
+		MappedStatement ms = (MappedStatement) args[0];
+		String id = ms.getId();
+		if (!(id.endsWith(SELECT_BATCH) || id.endsWith(DELETE_BATCH)) || !(args[1] instanceof Map)) {
+			return invocation.proceed();
+		}
+		@SuppressWarnings("unchecked")
+		Map<String, Object> parameter = (Map<String, Object>) args[1];
+		Object ids = parameter.containsKey("list") ? parameter.get("list") : null;
+		if (!(ids instanceof List) || ((List<?>) ids).isEmpty()) {
+			return invocation.proceed();
+		}
+		List<Object> distinctIds = new ArrayList<Object>(new LinkedHashSet<Object>((List<?>) ids));
+		List<List<Object>> batches = MybatisBatchUtils.partition(distinctIds, batchSize);
+		Executor executor = (Executor) invocation.getTarget();
+		if (args.length == 2) {
+			int count = 0;
+			for (List<Object> batch : batches) {
+				count += executor.update(ms, batchParameter(parameter, batch));
+			}
+			return count;
+		}
+		RowBounds rowBounds = (RowBounds) args[2];
+		ResultHandler<?> resultHandler = (ResultHandler<?>) args[3];
+		if (batches.size() == 1) {
+			return executor.query(ms, batchParameter(parameter, batches.get(0)), rowBounds, resultHandler);
+		}
+		List<Object> result = new ArrayList<Object>(distinctIds.size());
+		for (List<Object> batch : batches) {
+			result.addAll(executor.query(ms, batchParameter(parameter, batch), rowBounds, resultHandler));
+		}
+		return result;
+	}
+
+	/**
+	 * 复制参数并替换主键列表（SqlSession把List参数包装为含list及collection的Map）
+	 */
+	private static Map<String, Object> batchParameter(Map<String, Object> parameter, List<Object> batch) {
+		List<Object> padded = MybatisBatchUtils.padToPowerOfTwo(batch);
+		Map<String, Object> batchParameter = new HashMap<String, Object>(parameter);
+		batchParameter.put("list", padded);
+		if (batchParameter.containsKey("collection")) {
+			batchParameter.put("collection", padded);
+		}
+		return batchParameter;
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		if (target instanceof Executor) {
+			return Plugin.wrap(target, this);
+		}
+		return target;
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+		String value = properties.getProperty("batchSize");
+		if (value != null) {
+			setBatchSize(Integer.parseInt(value.trim()));
+		}
+	}
+
+	/**
+	 * 设置每批的主键数，范围为1 ~ {@link MybatisBatchUtils#MAX_BATCH_SIZE}
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1 || batchSize > MybatisBatchUtils.MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("batchSize must between 1 and " + MybatisBatchUtils.MAX_BATCH_SIZE);
+		}
+		this.batchSize = batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+}
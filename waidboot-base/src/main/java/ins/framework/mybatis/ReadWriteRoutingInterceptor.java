@@ -0,0 +1,57 @@
+package ins.framework.mybatis;
+
+import java.util.Properties;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import ins.framework.datasource.ReadWriteRoutingContext;
+
+/**
+ * 为读写分离标记当前语句是读还是写的插件
+ * <p>
+ * select语句执行期间标记为读操作，事务外取得连接时路由到从库；insert/update/delete标记当前线程有过写操作，
+ * 之后一段时间内的读操作都使用主库（见ReadWriteRoutingContext）。flushCache="true"的select语句视为需要读到最新数据，同样使用主库。
+ * </p>
+ *
+ */
+@Intercepts({
+		@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class,
+				RowBounds.class, ResultHandler.class }),
+		@Signature(type = Executor.class, method = "queryCursor", args = { MappedStatement.class, Object.class,
+				RowBounds.class }),
+		@Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }) })
+public class ReadWriteRoutingInterceptor implements Interceptor {
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+		if (ms.getSqlCommandType() != SqlCommandType.SELECT) {
+			ReadWriteRoutingContext.markWritten();
+			return invocation.proceed();
+		}
+		boolean previous = ReadWriteRoutingContext.setRead(!ms.isFlushCacheRequired());
+		try {
+			return invocation.proceed();
+		} finally {
+			ReadWriteRoutingContext.setRead(previous);
+		}
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		return Plugin.wrap(target, this);
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+	}
+}
@@ -0,0 +1,166 @@
+package ins.framework.mybatis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 逐行把查询结果写入输出流，不在内存中保留已写出的行
+ *
+ */
+public abstract class RowWriter {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * 写一行
+	 */
+	public abstract void write(Object row) throws IOException;
+
+	/**
+	 * 把已写的内容发送给客户端
+	 */
+	public abstract void flush() throws IOException;
+
+	/**
+	 * 写完全部行，不关闭输出流
+	 */
+	public abstract void finish() throws IOException;
+
+	/**
+	 * 每行一个JSON对象的NDJSON（application/x-ndjson）
+	 */
+	public static class Ndjson extends RowWriter {
+		private final JsonGenerator generator;
+		private final ObjectWriter writer;
+
+		public Ndjson(ObjectMapper objectMapper, OutputStream out) throws IOException {
+			this.generator = objectMapper.getFactory().createGenerator(out);
+			this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			this.generator.setRootValueSeparator(null);
+			this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		}
+
+		@Override
+		public void write(Object row) throws IOException {
+			writer.writeValue(generator, row);
+			generator.writeRaw('\n');
+		}
+
+		@Override
+		public void flush() throws IOException {
+			generator.flush();
+		}
+
+		@Override
+		public void finish() throws IOException {
+			generator.close();
+		}
+	}
+
+	/**
+	 * 带表头的CSV（UTF-8，带BOM以便Excel识别编码）
+	 * <p>
+	 * 未指定列时使用第一行对象的字段（按声明顺序），值通过getter读取。
+	 * </p>
+	 */
+	public static class Csv extends RowWriter {
+		/** 表格程序中会被当作公式的首字符 */
+		private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+		private final Writer writer;
+		private String[] columns;
+
+		public Csv(OutputStream out, String... columns) throws IOException {
+			this.writer = new OutputStreamWriter(out, UTF_8);
+			this.writer.write('\uFEFF');
+			this.columns = columns == null || columns.length == 0 ? null : columns;
+			if (this.columns != null) {
+				writeHeader();
+			}
+		}
+
+		private void writeHeader() throws IOException {
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writeValue(columns[i]);
+			}
+			writer.write("\r\n");
+		}
+
+		@Override
+		public void write(Object row) throws IOException {
+			if (columns == null) {
+				columns = fieldNames(row.getClass());
+				writeHeader();
+			}
+			MetaObject metaObject = SystemMetaObject.forObject(row);
+			for (int i = 0; i < columns.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writeValue(metaObject.getValue(columns[i]));
+			}
+			writer.write("\r\n");
+		}
+
+		private void writeValue(Object value) throws IOException {
+			if (value == null) {
+				return;
+			}
+			String text = value.toString();
+			// 防止公式注入：以 = + - @ 及制表符、回车开头的文本在Excel等程序中会被当作公式执行，前面加单引号
+			if (!(value instanceof Number) && text.length() > 0 && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+				text = "'" + text;
+			}
+			boolean quote = false;
+			for (int i = 0; i < text.length() && !quote; i++) {
+				char c = text.charAt(i);
+				quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+			}
+			if (!quote) {
+				writer.write(text);
+				return;
+			}
+			writer.write('"');
+			writer.write(text.replace("\"", "\"\""));
+			writer.write('"');
+		}
+
+		private static String[] fieldNames(Class<?> clazz) {
+			List<String> names = new ArrayList<String>();
+			for (Field field : clazz.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					names.add(field.getName());
+				}
+			}
+			return names.toArray(new String[names.size()]);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		public void finish() throws IOException {
+			writer.flush();
+		}
+	}
+}
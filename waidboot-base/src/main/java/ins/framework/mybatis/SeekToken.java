@@ -0,0 +1,121 @@
+package ins.framework.mybatis;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Seek（Keyset）分页的续页令牌
+ * <p>
+ * 将上一页最后一条记录的排序字段值编码为对客户端不透明的字符串，
+ * 只支持Long、Integer、String、BigDecimal、Double、Date、Timestamp类型，不使用Java序列化
+ * </p>
+ *
+ */
+public final class SeekToken {
+
+	private SeekToken() {
+	}
+
+	/**
+	 * 编码排序字段值
+	 *
+	 * @param values
+	 *            排序字段值
+	 * @return 续页令牌
+	 */
+	public static String encode(Object[] values) {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : values) {
+			char type;
+			String text;
+			if (value instanceof Long) {
+				type = 'L';
+				text = value.toString();
+			} else if (value instanceof Integer) {
+				type = 'I';
+				text = value.toString();
+			} else if (value instanceof String) {
+				type = 'S';
+				text = (String) value;
+			} else if (value instanceof BigDecimal) {
+				type = 'B';
+				text = ((BigDecimal) value).toPlainString();
+			} else if (value instanceof Double) {
+				type = 'F';
+				text = value.toString();
+			} else if (value instanceof Timestamp) {
+				type = 'P';
+				text = ((Timestamp) value).getTime() + "." + ((Timestamp) value).getNanos();
+			} else if (value instanceof Date) {
+				type = 'D';
+				text = String.valueOf(((Date) value).getTime());
+			} else {
+				throw new IllegalArgumentException("Unsupported seek value type ["
+						+ (value == null ? "null" : value.getClass().getName()) + "]");
+			}
+			sb.append(type).append(text.length()).append(':').append(text);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 解码续页令牌
+	 *
+	 * @param token
+	 *            续页令牌
+	 * @return 排序字段值
+	 */
+	public static Object[] decode(String token) {
+		List<Object> values = new ArrayList<Object>();
+		try {
+			String s = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int pos = 0;
+			while (pos < s.length()) {
+				char type = s.charAt(pos);
+				int colon = s.indexOf(':', pos);
+				int length = Integer.parseInt(s.substring(pos + 1, colon), 10);
+				String text = s.substring(colon + 1, colon + 1 + length);
+				pos = colon + 1 + length;
+				switch (type) {
+				case 'L':
+					values.add(Long.valueOf(text));
+					break;
+				case 'I':
+					values.add(Integer.valueOf(text));
+					break;
+				case 'S':
+					values.add(text);
+					break;
+				case 'B':
+					values.add(new BigDecimal(text));
+					break;
+				case 'F':
+					values.add(Double.valueOf(text));
+					break;
+				case 'P':
+					int dot = text.indexOf('.');
+					Timestamp timestamp = new Timestamp(Long.parseLong(text.substring(0, dot)));
+					timestamp.setNanos(Integer.parseInt(text.substring(dot + 1)));
+					values.add(timestamp);
+					break;
+				case 'D':
+					values.add(new Date(Long.parseLong(text)));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown seek value type [" + type + "]");
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid page token [" + token + "]", e);
+		}
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("Invalid page token [" + token + "]");
+		}
+		return values.toArray();
+	}
+}
@@ -0,0 +1,368 @@
+package ins.framework.mybatis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 记录慢SQL的插件
+ * <p>
+ * 拦截StatementHandler的query/update，耗时超过阈值时记录SQL、绑定参数（按参数名脱敏，默认全部脱敏）及异常，
+ * 对抽中的select语句在同一连接上执行EXPLAIN取得执行计划。记录保存在固定大小的环形缓冲区中，只保留最近的若干条。
+ * 替代连接池的SlowQueryReport(threshold=0)，不再逐条输出全部SQL。
+ * </p>
+ *
+ */
+@Slf4j
+@Intercepts({
+		@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }),
+		@Signature(type = StatementHandler.class, method = "update", args = { Statement.class }) })
+public class SlowSqlInterceptor implements Interceptor {
+
+	/** 默认的慢SQL阈值（毫秒） */
+	public static final long DEFAULT_THRESHOLD_MILLIS = 1000;
+	/** 默认保留的记录条数 */
+	public static final int DEFAULT_CAPACITY = 200;
+	/**
+	 * 默认脱敏全部参数：监控接口与业务接口使用同一端口，参数值中可能有按参数名无法识别的个人信息
+	 */
+	public static final String DEFAULT_REDACT_PATTERN = ".*";
+	/** 只脱敏常见的敏感参数名，仅在监控接口不对外开放时使用 */
+	public static final String SENSITIVE_REDACT_PATTERN = "(?i)password|passwd|pwd|secret|token|idcard|mobile|phone";
+
+	private static final String REDACTED = "******";
+	private static final int MAX_PLAN_ROWS = 100;
+
+	private volatile long thresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+	/** 默认阈值与各statement阈值中的最小值，低于它的语句不再查找statement阈值 */
+	private volatile long minThresholdMillis = DEFAULT_THRESHOLD_MILLIS;
+	/** 按statement设置的阈值 */
+	private final Map<String, Long> statementThresholds = new ConcurrentHashMap<String, Long>();
+	/** 对慢select执行EXPLAIN的抽样比例，0不执行，1每次都执行 */
+	private volatile double explainSampleRate = 0.1;
+	private volatile Pattern redactPattern = Pattern.compile(DEFAULT_REDACT_PATTERN);
+	/** 单个参数值记录的最大长度 */
+	private volatile int maxValueLength = 256;
+
+	private SlowSqlRecord[] records = new SlowSqlRecord[DEFAULT_CAPACITY];
+	/** 下一条记录的序号，records[next % capacity] */
+	private long next;
+	private final AtomicLong explained = new AtomicLong();
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		long start = System.nanoTime();
+		Throwable error = null;
+		try {
+			return invocation.proceed();
+		} catch (Throwable e) {
+			error = e;
+			throw e;
+		} finally {
+			long elapsedMillis = (System.nanoTime() - start) / 1000000;
+			if (elapsedMillis >= minThresholdMillis) {
+				try {
+					record(invocation, elapsedMillis, error);
+				} catch (RuntimeException e) {
+					// 记录失败不影响语句的执行结果
+					log.debug("Cannot record slow SQL", e);
+				}
+			}
+		}
+	}
+
+	private void record(Invocation invocation, long elapsedMillis, Throwable error) {
+		StatementHandler handler = (StatementHandler) invocation.getTarget();
+		MappedStatement ms = (MappedStatement) unwrap(handler).getValue("delegate.mappedStatement");
+		long threshold = getThresholdMillis(ms.getId());
+		if (elapsedMillis < threshold) {
+			return;
+		}
+		BoundSql boundSql = handler.getBoundSql();
+		SlowSqlRecord record = new SlowSqlRecord();
+		record.setTime(new Date());
+		record.setStatementId(ms.getId());
+		record.setSql(boundSql.getSql());
+		record.setParameters(parameters(ms.getConfiguration(), boundSql));
+		record.setElapsedMillis(elapsedMillis);
+		record.setThresholdMillis(threshold);
+		record.setThread(Thread.currentThread().getName());
+		if (error != null) {
+			record.setError(error.toString());
+		} else if (ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getStatementType() == StatementType.PREPARED
+				&& explainSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+			record.setPlan(explain(handler, (Statement) invocation.getArgs()[0], boundSql.getSql()));
+		}
+		log.warn("Slow SQL [" + ms.getId() + "] took " + elapsedMillis + "ms (threshold " + threshold + "ms)");
+		synchronized (this) {
+			records[(int) (next++ % records.length)] = record;
+		}
+	}
+
+	/**
+	 * 取得StatementHandler被其他插件代理前的对象
+	 */
+	private static MetaObject unwrap(Object target) {
+		MetaObject metaObject = SystemMetaObject.forObject(target);
+		while (metaObject.hasGetter("h")) {
+			metaObject = SystemMetaObject.forObject(metaObject.getValue("h.target"));
+		}
+		return metaObject;
+	}
+
+	/**
+	 * 按DefaultParameterHandler的规则取得绑定的参数值
+	 */
+	private List<Object> parameters(Configuration configuration, BoundSql boundSql) {
+		List<Object> values = new ArrayList<Object>();
+		Object parameterObject = boundSql.getParameterObject();
+		TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+		MetaObject metaObject = null;
+		for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+			if (mapping.getMode() == ParameterMode.OUT) {
+				continue;
+			}
+			String property = mapping.getProperty();
+			Object value;
+			if (boundSql.hasAdditionalParameter(property)) {
+				value = boundSql.getAdditionalParameter(property);
+			} else if (parameterObject == null) {
+				value = null;
+			} else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+				value = parameterObject;
+			} else {
+				if (metaObject == null) {
+					metaObject = configuration.newMetaObject(parameterObject);
+				}
+				value = metaObject.getValue(property);
+			}
+			values.add(redact(property, value));
+		}
+		return values;
+	}
+
+	private Object redact(String property, Object value) {
+		if (value == null) {
+			return null;
+		}
+		Pattern pattern = redactPattern;
+		if (pattern != null && pattern.matcher(property).find()) {
+			return REDACTED;
+		}
+		if (value instanceof byte[]) {
+			return "byte[" + ((byte[]) value).length + "]";
+		}
+		if (value instanceof Number || value instanceof Boolean || value instanceof Date) {
+			return value;
+		}
+		String text = value.toString();
+		return text.length() > maxValueLength ? text.substring(0, maxValueLength) + "..." : text;
+	}
+
+	/**
+	 * 在执行语句的连接上取得执行计划，数据库不支持或执行失败时返回null
+	 */
+	private List<Map<String, Object>> explain(StatementHandler handler, Statement statement, String sql) {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			Connection connection = statement.getConnection();
+			DialectFactory dialectFactory = DialectFactory
+					.forDatabase(connection.getMetaData().getDatabaseProductName());
+			TotalCountEstimator estimator = TotalCountEstimator.forDialect(dialectFactory.getDialectClass());
+			if (estimator == null) {
+				return null;
+			}
+			ps = connection.prepareStatement(estimator.getExplainSql(sql));
+			handler.getParameterHandler().setParameters(ps);
+			rs = ps.executeQuery();
+			ResultSetMetaData metaData = rs.getMetaData();
+			List<Map<String, Object>> plan = new ArrayList<Map<String, Object>>();
+			while (rs.next() && plan.size() < MAX_PLAN_ROWS) {
+				Map<String, Object> row = new LinkedHashMap<String, Object>();
+				for (int i = 1; i <= metaData.getColumnCount(); i++) {
+					row.put(metaData.getColumnLabel(i), rs.getObject(i));
+				}
+				plan.add(row);
+			}
+			explained.incrementAndGet();
+			return plan;
+		} catch (Exception e) {
+			log.debug("Cannot explain slow SQL: " + sql, e);
+			return null;
+		} finally {
+			close(rs);
+			close(ps);
+		}
+	}
+
+	private static void close(AutoCloseable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (Exception e) {
+				// ignore
+			}
+		}
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		if (target instanceof StatementHandler) {
+			return Plugin.wrap(target, this);
+		}
+		return target;
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+	}
+
+	/**
+	 * 取得语句的慢SQL阈值
+	 */
+	public long getThresholdMillis(String statementId) {
+		Long threshold = statementThresholds.get(statementId);
+		return threshold != null ? threshold : thresholdMillis;
+	}
+
+	public long getThresholdMillis() {
+		return thresholdMillis;
+	}
+
+	public void setThresholdMillis(long thresholdMillis) {
+		this.thresholdMillis = thresholdMillis;
+		updateMinThreshold();
+	}
+
+	/**
+	 * 设置单个statement的阈值，用于比默认阈值更严或更宽的语句
+	 */
+	public void setStatementThreshold(String statementId, long thresholdMillis) {
+		statementThresholds.put(statementId, thresholdMillis);
+		updateMinThreshold();
+	}
+
+	private void updateMinThreshold() {
+		long min = thresholdMillis;
+		for (Long threshold : statementThresholds.values()) {
+			min = Math.min(min, threshold);
+		}
+		minThresholdMillis = min;
+	}
+
+	/**
+	 * 按配置设置statement的阈值
+	 *
+	 * @param thresholds
+	 *            格式为 statementId=thresholdMillis，多个以逗号分隔
+	 */
+	public void setStatementThresholds(String thresholds) {
+		if (thresholds == null || thresholds.trim().length() == 0) {
+			return;
+		}
+		for (String threshold : thresholds.split(",")) {
+			int eq = threshold.lastIndexOf('=');
+			if (eq <= 0) {
+				throw new IllegalArgumentException("Invalid slow sql threshold [" + threshold + "]");
+			}
+			setStatementThreshold(threshold.substring(0, eq).trim(), Long.parseLong(threshold.substring(eq + 1).trim()));
+		}
+	}
+
+	public void setExplainSampleRate(double explainSampleRate) {
+		this.explainSampleRate = explainSampleRate;
+	}
+
+	/**
+	 * 设置脱敏的参数名（正则表达式，参数名中包含匹配部分即脱敏），为空时不脱敏；默认{@link #DEFAULT_REDACT_PATTERN}脱敏全部参数
+	 */
+	public void setRedactPattern(String redactPattern) {
+		this.redactPattern = redactPattern == null || redactPattern.trim().length() == 0 ? null
+				: Pattern.compile(redactPattern);
+	}
+
+	public void setMaxValueLength(int maxValueLength) {
+		this.maxValueLength = maxValueLength;
+	}
+
+	/**
+	 * 设置保留的记录条数，已有记录将被清空
+	 */
+	public synchronized void setCapacity(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.records = new SlowSqlRecord[capacity];
+		this.next = 0;
+	}
+
+	/**
+	 * 取得保留的慢SQL记录，最近的在前
+	 *
+	 * @param statementId
+	 *            为空时取得全部语句的记录
+	 */
+	public synchronized List<SlowSqlRecord> getRecords(String statementId) {
+		List<SlowSqlRecord> result = new ArrayList<SlowSqlRecord>();
+		long first = Math.max(next - records.length, 0);
+		for (long i = next - 1; i >= first; i--) {
+			SlowSqlRecord record = records[(int) (i % records.length)];
+			if (statementId == null || statementId.equals(record.getStatementId())) {
+				result.add(record);
+			}
+		}
+		return result;
+	}
+
+	public synchronized void clear() {
+		records = new SlowSqlRecord[records.length];
+		next = 0;
+	}
+
+	/**
+	 * 统计结果，用于监控
+	 */
+	public synchronized Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("thresholdMillis", thresholdMillis);
+		statistics.put("statementThresholds", new LinkedHashMap<String, Long>(statementThresholds));
+		statistics.put("explainSampleRate", explainSampleRate);
+		statistics.put("capacity", records.length);
+		statistics.put("recorded", next);
+		statistics.put("explained", explained.get());
+		return statistics;
+	}
+}
@@ -0,0 +1,34 @@
+package ins.framework.mybatis;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * 一条慢SQL记录
+ *
+ */
+@Data
+public class SlowSqlRecord {
+
+	/** 执行完成的时间 */
+	private Date time;
+	/** MappedStatement的ID */
+	private String statementId;
+	/** 实际执行的SQL */
+	private String sql;
+	/** 绑定的参数值，按参数名脱敏（默认全部脱敏） */
+	private List<Object> parameters;
+	/** 执行耗时（毫秒） */
+	private long elapsedMillis;
+	/** 该语句的慢SQL阈值（毫秒） */
+	private long thresholdMillis;
+	/** 执行的线程 */
+	private String thread;
+	/** 执行失败时的异常信息 */
+	private String error;
+	/** 抽样取得的执行计划，未抽中或数据库不支持时为空 */
+	private List<Map<String, Object>> plan;
+}
@@ -0,0 +1,57 @@
+package ins.framework.mybatis;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.springframework.boot.bind.PropertySourcesPropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import lombok.Data;
+
+/**
+ * 手工创建的SqlSessionFactory的执行参数
+ * <p>
+ * SqlSessionFactoryBean不会读取mybatis.executor-type等配置，由本类绑定后写入Configuration。
+ * 依次绑定各前缀下的配置，后面的覆盖前面的，例如 mybatis 下为所有SqlSessionFactory的默认值，mybatis.factories.&lt;名称&gt;
+ * 下为单个SqlSessionFactory的配置。
+ * </p>
+ *
+ */
+@Data
+public class SqlSessionFactorySettings {
+
+	/** 执行器类型：SIMPLE、REUSE（同一SqlSession中复用PreparedStatement）、BATCH */
+	private ExecutorType executorType = ExecutorType.SIMPLE;
+	/** 默认的fetchSize，为空时使用驱动的默认值 */
+	private Integer defaultFetchSize;
+	/** 默认的语句超时时间（秒），为空时不超时 */
+	private Integer defaultStatementTimeout;
+	/** 一级缓存范围：SESSION或STATEMENT */
+	private LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+
+	/**
+	 * 依次绑定各前缀下的配置
+	 */
+	public static SqlSessionFactorySettings bind(ConfigurableEnvironment environment, String... prefixes) {
+		SqlSessionFactorySettings settings = new SqlSessionFactorySettings();
+		for (String prefix : prefixes) {
+			RelaxedDataBinder binder = new RelaxedDataBinder(settings, prefix);
+			binder.setIgnoreUnknownFields(true);
+			binder.bind(new PropertySourcesPropertyValues(environment.getPropertySources()));
+		}
+		return settings;
+	}
+
+	/**
+	 * 创建使用这些参数的Configuration，用于SqlSessionFactoryBean.setConfiguration
+	 */
+	public Configuration newConfiguration() {
+		Configuration configuration = new Configuration();
+		configuration.setDefaultExecutorType(executorType);
+		configuration.setDefaultFetchSize(defaultFetchSize);
+		configuration.setDefaultStatementTimeout(defaultStatementTimeout);
+		configuration.setLocalCacheScope(localCacheScope);
+		return configuration;
+	}
+}
@@ -0,0 +1,84 @@
+package ins.framework.mybatis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 记录各SqlSessionFactory启动时查找Mapper XML、创建SqlSessionFactory、解析XML的耗时
+ *
+ */
+@Slf4j
+public class StartupTimingReport {
+
+	private final List<Map<String, Object>> factories = Collections
+			.synchronizedList(new ArrayList<Map<String, Object>>());
+
+	/**
+	 * 开始记录一个SqlSessionFactory
+	 */
+	public Timing start(String factoryName) {
+		return new Timing(factoryName);
+	}
+
+	public List<Map<String, Object>> getFactories() {
+		synchronized (factories) {
+			return new ArrayList<Map<String, Object>>(factories);
+		}
+	}
+
+	/**
+	 * 一个SqlSessionFactory的耗时，依次调用scanned、built、parsed
+	 */
+	public class Timing {
+		private final String factoryName;
+		private final long startNanos = System.nanoTime();
+		private long lastNanos = startNanos;
+		private final Map<String, Object> report = new LinkedHashMap<String, Object>();
+
+		Timing(String factoryName) {
+			this.factoryName = factoryName;
+			report.put("name", factoryName);
+		}
+
+		private long lap() {
+			long now = System.nanoTime();
+			long millis = (now - lastNanos) / 1000000;
+			lastNanos = now;
+			return millis;
+		}
+
+		/**
+		 * 已找到要加载的Mapper XML
+		 */
+		public void scanned(int mappers, int candidates) {
+			report.put("scanMillis", lap());
+			report.put("mappers", mappers);
+			report.put("candidates", candidates);
+		}
+
+		/**
+		 * 已创建SqlSessionFactory（不含解析XML）
+		 */
+		public void built() {
+			report.put("buildMillis", lap());
+		}
+
+		/**
+		 * 已解析全部Mapper XML
+		 */
+		public void parsed() {
+			report.put("parseMillis", lap());
+			report.put("totalMillis", (lastNanos - startNanos) / 1000000);
+			factories.add(report);
+			log.info("SqlSessionFactory [" + factoryName + "] started in " + report.get("totalMillis")
+					+ "ms: scan " + report.get("scanMillis") + "ms (" + report.get("mappers") + " of "
+					+ report.get("candidates") + " mapper xml), build " + report.get("buildMillis") + "ms, parse "
+					+ report.get("parseMillis") + "ms");
+		}
+	}
+}
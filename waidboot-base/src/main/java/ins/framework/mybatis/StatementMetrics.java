@@ -0,0 +1,90 @@
+package ins.framework.mybatis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Data;
+
+/**
+ * 一个MappedStatement的调用耗时、取得连接耗时、执行耗时及返回行数
+ *
+ */
+public class StatementMetrics {
+
+	private final String statementId;
+	/** 每次调用的总耗时 */
+	private final LatencyHistogram total = new LatencyHistogram();
+	/** 从调用开始到创建或复用Statement（主要是取得连接）的耗时，只统计访问了数据库的调用 */
+	private final LatencyHistogram acquire = new LatencyHistogram();
+	/** Statement执行及读取结果的耗时，只统计访问了数据库的调用 */
+	private final LatencyHistogram execute = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rows = new LongAdder();
+	private final AtomicLong maxRows = new AtomicLong();
+
+	public StatementMetrics(String statementId) {
+		this.statementId = statementId;
+	}
+
+	/**
+	 * 记录一次调用
+	 *
+	 * @param totalNanos
+	 *            总耗时
+	 * @param acquireNanos
+	 *            取得连接的耗时，小于0表示未访问数据库（命中缓存等）
+	 * @param executeNanos
+	 *            执行耗时
+	 * @param rowCount
+	 *            返回行数或更新行数
+	 * @param failed
+	 *            是否执行失败
+	 */
+	public void record(long totalNanos, long acquireNanos, long executeNanos, long rowCount, boolean failed) {
+		total.record(totalNanos);
+		if (acquireNanos >= 0) {
+			acquire.record(acquireNanos);
+			execute.record(executeNanos);
+		}
+		if (failed) {
+			errors.increment();
+		}
+		if (rowCount > 0) {
+			rows.add(rowCount);
+			long current = maxRows.get();
+			while (rowCount > current && !maxRows.compareAndSet(current, rowCount)) {
+				current = maxRows.get();
+			}
+		}
+	}
+
+	public Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot();
+		snapshot.setStatementId(statementId);
+		snapshot.setTotal(total.snapshot());
+		snapshot.setAcquire(acquire.snapshot());
+		snapshot.setExecute(execute.snapshot());
+		snapshot.setCalls(snapshot.getTotal().getCount());
+		snapshot.setErrors(errors.sum());
+		snapshot.setRows(rows.sum());
+		snapshot.setMaxRows(maxRows.get());
+		return snapshot;
+	}
+
+	/**
+	 * 统计结果，calls与访问数据库次数（execute.count）之差为命中缓存等未访问数据库的次数
+	 */
+	@Data
+	public static class Snapshot {
+		private String statementId;
+		private long calls;
+		private long errors;
+		/** 累计返回行数 */
+		private long rows;
+		/** 单次最大返回行数 */
+		private long maxRows;
+		private LatencyHistogram.Snapshot total;
+		private LatencyHistogram.Snapshot acquire;
+		private LatencyHistogram.Snapshot execute;
+	}
+}
@@ -0,0 +1,178 @@
+package ins.framework.mybatis;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 按MappedStatement统计耗时分布的插件
+ * <p>
+ * Executor的query/update计为一次调用，记录总耗时及返回行数；调用中StatementHandler第一次被调用（prepare或复用Statement时的执行）之前的耗时
+ * 计为取得连接，StatementHandler的query/update计为执行。耗时记录在无锁的{@link LatencyHistogram}中，
+ * 每次调用只有几次System.nanoTime及原子加一，可在生产环境中常开。
+ * </p>
+ * <p>
+ * 每个SqlSessionFactory使用单独的实例，放在分页插件之后以统计原语句（含count）；
+ * 实现了MXBean接口，声明为Spring Bean时由Spring Boot的JMX自动导出。
+ * </p>
+ *
+ */
+@Intercepts({
+		@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class,
+				RowBounds.class, ResultHandler.class }),
+		@Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }),
+		@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+		@Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }),
+		@Signature(type = StatementHandler.class, method = "update", args = { Statement.class }) })
+public class StatementMetricsInterceptor implements Interceptor, StatementMetricsMXBean {
+
+	/** 当前线程正在进行的调用，嵌套查询结束后恢复为外层调用 */
+	private static final ThreadLocal<Call> CURRENT = new ThreadLocal<Call>();
+
+	private final String name;
+	private volatile ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<String, StatementMetrics>();
+
+	/**
+	 * @param name
+	 *            SqlSessionFactory的名称
+	 */
+	public StatementMetricsInterceptor(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		if (invocation.getTarget() instanceof Executor) {
+			return interceptExecutor(invocation);
+		}
+		Call call = CURRENT.get();
+		if (call == null || call.interceptor != this) {
+			return invocation.proceed();
+		}
+		long start = System.nanoTime();
+		if (call.acquireNanos < 0) {
+			call.acquireNanos = start - call.start;
+		}
+		if ("prepare".equals(invocation.getMethod().getName())) {
+			return invocation.proceed();
+		}
+		try {
+			return invocation.proceed();
+		} finally {
+			call.executeNanos += System.nanoTime() - start;
+		}
+	}
+
+	private Object interceptExecutor(Invocation invocation) throws Throwable {
+		Call parent = CURRENT.get();
+		Call call = new Call(this);
+		CURRENT.set(call);
+		Object result = null;
+		boolean failed = true;
+		try {
+			result = invocation.proceed();
+			failed = false;
+			return result;
+		} finally {
+			long totalNanos = System.nanoTime() - call.start;
+			CURRENT.set(parent);
+			MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+			metrics(ms.getId()).record(totalNanos, call.acquireNanos, call.executeNanos, rowCount(result), failed);
+		}
+	}
+
+	private StatementMetrics metrics(String statementId) {
+		ConcurrentMap<String, StatementMetrics> current = statements;
+		StatementMetrics metrics = current.get(statementId);
+		if (metrics == null) {
+			metrics = new StatementMetrics(statementId);
+			StatementMetrics existing = current.putIfAbsent(statementId, metrics);
+			if (existing != null) {
+				metrics = existing;
+			}
+		}
+		return metrics;
+	}
+
+	private static long rowCount(Object result) {
+		if (result instanceof List) {
+			return ((List<?>) result).size();
+		}
+		if (result instanceof Integer) {
+			return (Integer) result;
+		}
+		return 0;
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		if (target instanceof Executor || target instanceof StatementHandler) {
+			return Plugin.wrap(target, this);
+		}
+		return target;
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 各语句的统计结果，按p99总耗时从高到低排列
+	 */
+	@Override
+	public List<StatementMetrics.Snapshot> getStatements() {
+		List<StatementMetrics.Snapshot> snapshots = new ArrayList<StatementMetrics.Snapshot>();
+		for (StatementMetrics metrics : statements.values()) {
+			snapshots.add(metrics.snapshot());
+		}
+		Collections.sort(snapshots, new Comparator<StatementMetrics.Snapshot>() {
+			@Override
+			public int compare(StatementMetrics.Snapshot o1, StatementMetrics.Snapshot o2) {
+				return Double.compare(o2.getTotal().getP99Micros(), o1.getTotal().getP99Micros());
+			}
+		});
+		return snapshots;
+	}
+
+	@Override
+	public void reset() {
+		statements = new ConcurrentHashMap<String, StatementMetrics>();
+	}
+
+	/**
+	 * 一次Executor调用
+	 */
+	private static final class Call {
+		final StatementMetricsInterceptor interceptor;
+		final long start = System.nanoTime();
+		/** 小于0表示尚未调用StatementHandler */
+		long acquireNanos = -1;
+		long executeNanos;
+
+		Call(StatementMetricsInterceptor interceptor) {
+			this.interceptor = interceptor;
+		}
+	}
+}
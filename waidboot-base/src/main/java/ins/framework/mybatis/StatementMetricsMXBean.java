@@ -0,0 +1,25 @@
+package ins.framework.mybatis;
+
+import java.util.List;
+
+/**
+ * 通过JMX查看一个SqlSessionFactory各语句的耗时统计
+ *
+ */
+public interface StatementMetricsMXBean {
+
+	/**
+	 * SqlSessionFactory的名称
+	 */
+	String getName();
+
+	/**
+	 * 各语句的统计结果
+	 */
+	List<StatementMetrics.Snapshot> getStatements();
+
+	/**
+	 * 清空统计
+	 */
+	void reset();
+}
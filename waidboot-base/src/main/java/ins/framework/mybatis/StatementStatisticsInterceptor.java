@@ -0,0 +1,103 @@
+package ins.framework.mybatis;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+
+/**
+ * 统计一个SqlSessionFactory中新建与复用的Statement数量的插件
+ * <p>
+ * 每次执行语句都会绑定参数（parameterize），只有新建Statement时才调用prepare；REUSE/BATCH执行器复用Statement时不调用prepare，
+ * 因此 复用次数 = 执行次数 - 新建次数。每个SqlSessionFactory使用单独的实例。
+ * </p>
+ *
+ */
+@Intercepts({ @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+		@Signature(type = StatementHandler.class, method = "parameterize", args = { Statement.class }) })
+public class StatementStatisticsInterceptor implements Interceptor {
+
+	private final String name;
+	private ExecutorType executorType;
+	private final AtomicLong prepared = new AtomicLong();
+	private final AtomicLong executed = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            SqlSessionFactory的名称
+	 */
+	public StatementStatisticsInterceptor(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		if ("prepare".equals(invocation.getMethod().getName())) {
+			prepared.incrementAndGet();
+		} else {
+			executed.incrementAndGet();
+		}
+		return invocation.proceed();
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		if (target instanceof StatementHandler) {
+			return Plugin.wrap(target, this);
+		}
+		return target;
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public ExecutorType getExecutorType() {
+		return executorType;
+	}
+
+	public void setExecutorType(ExecutorType executorType) {
+		this.executorType = executorType;
+	}
+
+	public long getPrepared() {
+		return prepared.get();
+	}
+
+	public long getExecuted() {
+		return executed.get();
+	}
+
+	public long getReused() {
+		return Math.max(executed.get() - prepared.get(), 0);
+	}
+
+	/**
+	 * 统计结果，用于监控
+	 */
+	public Map<String, Object> getStatistics() {
+		long executedCount = executed.get();
+		long preparedCount = prepared.get();
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("name", name);
+		statistics.put("executorType", executorType);
+		statistics.put("executed", executedCount);
+		statistics.put("prepared", preparedCount);
+		statistics.put("reused", Math.max(executedCount - preparedCount, 0));
+		return statistics;
+	}
+}
@@ -0,0 +1,228 @@
+package ins.framework.mybatis;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 把查询结果逐行直接写入响应的StreamingResponseBody，用于大分页及导出
+ * <p>
+ * 行来自{@link MybatisBaseDao#streamByEntity}等逐行回调的查询，写出后即可回收，每个请求占用的内存不随行数增长；
+ * 第一行写出后立即flush，之后每{@value #FLUSH_ROWS}行flush一次。客户端读取缓慢时查询连接会一直占用到写完为止。
+ * 在Spring MVC的异步线程中执行，导出时间较长时需调大 spring.mvc.async.request-timeout；
+ * 异步线程池应为有界线程池，并通过许可（Semaphore）限制同时进行的导出数，取不到许可时返回503。
+ * </p>
+ * <p>
+ * 例：return StreamingRows.response(StreamingRows.Format.of(format), "userinfo", StreamingRows.acceptsGzip(request),
+ * objectMapper, source);
+ * </p>
+ *
+ * @param <T>
+ *            行对象
+ */
+public class StreamingRows<T> implements StreamingResponseBody {
+
+	/** 每写出多少行flush一次 */
+	public static final int FLUSH_ROWS = 1000;
+
+	/**
+	 * 逐行提供查询结果
+	 */
+	public interface RowSource<T> {
+		void forEach(Consumer<? super T> consumer);
+	}
+
+	/**
+	 * 输出格式
+	 */
+	public enum Format {
+		NDJSON("application/x-ndjson;charset=UTF-8", "ndjson"), CSV("text/csv;charset=UTF-8", "csv");
+
+		private final String contentType;
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		/**
+		 * 按名称（不区分大小写）取得格式，为空或无法识别时为NDJSON
+		 */
+		public static Format of(String name) {
+			if (name != null) {
+				for (Format format : values()) {
+					if (format.name().equalsIgnoreCase(name.trim())) {
+						return format;
+					}
+				}
+			}
+			return NDJSON;
+		}
+	}
+
+	private final RowSource<T> source;
+	private final Format format;
+	private final boolean gzip;
+	private final ObjectMapper objectMapper;
+	private final String[] columns;
+	/** 导出结束时释放的许可，可以为空 */
+	private Semaphore permits;
+
+	/**
+	 * @param source
+	 *            查询结果
+	 * @param format
+	 *            输出格式
+	 * @param gzip
+	 *            是否gzip压缩
+	 * @param objectMapper
+	 *            NDJSON使用的ObjectMapper
+	 * @param columns
+	 *            CSV的列（属性名），为空时为行对象的全部字段
+	 */
+	public StreamingRows(RowSource<T> source, Format format, boolean gzip, ObjectMapper objectMapper,
+			String... columns) {
+		this.source = source;
+		this.format = format;
+		this.gzip = gzip;
+		this.objectMapper = objectMapper;
+		this.columns = columns;
+	}
+
+	@Override
+	public void writeTo(OutputStream outputStream) throws IOException {
+		try {
+			write(outputStream);
+		} finally {
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+	private void write(OutputStream outputStream) throws IOException {
+		// syncFlush，使flush时已压缩的数据立即发送
+		OutputStream out = gzip ? new GZIPOutputStream(outputStream, 8192, true) : outputStream;
+		final RowWriter writer = format == Format.CSV ? new RowWriter.Csv(out, columns)
+				: new RowWriter.Ndjson(objectMapper, out);
+		try {
+			source.forEach(new Consumer<T>() {
+				private long count;
+
+				@Override
+				public void accept(T row) {
+					try {
+						writer.write(row);
+						if (++count == 1 || count % FLUSH_ROWS == 0) {
+							writer.flush();
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			// 客户端断开等写出失败被MyBatis包装后抛出，还原为IOException
+			for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+				if (cause instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) cause).getCause();
+				}
+			}
+			throw e;
+		}
+		writer.finish();
+		if (gzip) {
+			((GZIPOutputStream) out).finish();
+		}
+	}
+
+	/**
+	 * 创建流式响应
+	 *
+	 * @param format
+	 *            输出格式
+	 * @param fileName
+	 *            下载的文件名（不含扩展名），为空时不作为附件下载
+	 * @param gzip
+	 *            是否gzip压缩
+	 * @param objectMapper
+	 *            NDJSON使用的ObjectMapper
+	 * @param source
+	 *            查询结果
+	 * @param columns
+	 *            CSV的列（属性名），为空时为行对象的全部字段
+	 * @return 响应
+	 */
+	public static <T> ResponseEntity<StreamingResponseBody> response(Format format, String fileName, boolean gzip,
+			ObjectMapper objectMapper, RowSource<T> source, String... columns) {
+		return response(null, format, fileName, gzip, objectMapper, source, columns);
+	}
+
+	/**
+	 * 创建流式响应，同时进行的导出数受permits限制
+	 *
+	 * @param permits
+	 *            导出许可，取不到时返回503（Service Unavailable），导出结束时释放；为空时不限制
+	 * @param format
+	 *            输出格式
+	 * @param fileName
+	 *            下载的文件名（不含扩展名），为空时不作为附件下载
+	 * @param gzip
+	 *            是否gzip压缩
+	 * @param objectMapper
+	 *            NDJSON使用的ObjectMapper
+	 * @param source
+	 *            查询结果
+	 * @param columns
+	 *            CSV的列（属性名），为空时为行对象的全部字段
+	 * @return 响应
+	 */
+	public static <T> ResponseEntity<StreamingResponseBody> response(Semaphore permits, Format format,
+			String fileName, boolean gzip, ObjectMapper objectMapper, RowSource<T> source, String... columns) {
+		if (permits != null && !permits.tryAcquire()) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "10")
+					.body((StreamingResponseBody) null);
+		}
+		StreamingRows<T> body = new StreamingRows<T>(source, format, gzip, objectMapper, columns);
+		body.permits = permits;
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.CONTENT_TYPE, format.getContentType());
+		if (gzip) {
+			headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		if (fileName != null) {
+			headers.set(HttpHeaders.CONTENT_DISPOSITION,
+					"attachment; filename=\"" + fileName + "." + format.getExtension() + "\"");
+		}
+		return ResponseEntity.ok().headers(headers).body((StreamingResponseBody) body);
+	}
+
+	/**
+	 * 客户端是否接受gzip，可用参数_gzip=false关闭压缩
+	 */
+	public static boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		return acceptEncoding != null && acceptEncoding.contains("gzip") && !"false".equals(request.getParameter("_gzip"));
+	}
+}
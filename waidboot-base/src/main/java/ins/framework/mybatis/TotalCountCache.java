@@ -0,0 +1,314 @@
+package ins.framework.mybatis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 分页总记录数缓存
+ * <p>
+ * 与Mapper的二级缓存相互独立，按规范化后的count SQL及绑定参数缓存，有独立的容量上限及过期时间，
+ * 不会因为表的写操作而被清空。可按statement设置过期时间及容忍的过期时长：
+ * 在容忍时长内缓存过期后只有一个线程重新count，其他线程直接使用过期的值。
+ * </p>
+ *
+ */
+public class TotalCountCache {
+
+	/** 默认最大缓存条数 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final int maxSize;
+	private final Policy defaultPolicy;
+	private final ConcurrentMap<String, Policy> statementPolicies = new ConcurrentHashMap<String, Policy>();
+	private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<Key, Entry>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong staleHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *            最大缓存条数
+	 * @param ttlMillis
+	 *            默认过期时间（毫秒），小于等于0表示不缓存
+	 * @param staleMillis
+	 *            默认容忍的过期时长（毫秒）
+	 */
+	public TotalCountCache(int maxSize, long ttlMillis, long staleMillis) {
+		this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+		this.defaultPolicy = new Policy(ttlMillis, staleMillis);
+	}
+
+	/**
+	 * 设置指定statement的过期时间及容忍的过期时长
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param ttlMillis
+	 *            过期时间（毫秒），小于等于0表示该statement不缓存
+	 * @param staleMillis
+	 *            容忍的过期时长（毫秒）
+	 */
+	public void setStatementPolicy(String statementId, long ttlMillis, long staleMillis) {
+		statementPolicies.put(statementId, new Policy(ttlMillis, staleMillis));
+	}
+
+	/**
+	 * 批量设置statement的缓存策略，格式为 statementId=ttlMillis[:staleMillis]，多个以逗号分隔
+	 *
+	 * @param policies
+	 *            缓存策略
+	 */
+	public void setStatementPolicies(String policies) {
+		if (policies == null || policies.trim().length() == 0) {
+			return;
+		}
+		for (String policy : policies.split(",")) {
+			int eq = policy.lastIndexOf('=');
+			if (eq <= 0) {
+				throw new IllegalArgumentException("Invalid count cache policy [" + policy + "]");
+			}
+			String[] times = policy.substring(eq + 1).trim().split(":");
+			long ttlMillis = Long.parseLong(times[0].trim());
+			long staleMillis = times.length > 1 ? Long.parseLong(times[1].trim()) : 0;
+			setStatementPolicy(policy.substring(0, eq).trim(), ttlMillis, staleMillis);
+		}
+	}
+
+	/**
+	 * 取得count结果，缓存不存在或已过期时调用loader重新count
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param key
+	 *            缓存Key
+	 * @param loader
+	 *            执行count的任务
+	 * @return 总记录数
+	 */
+	public Integer get(String statementId, Key key, Callable<Integer> loader) throws Exception {
+		Policy policy = statementPolicies.get(statementId);
+		if (policy == null) {
+			policy = defaultPolicy;
+		}
+		if (policy.ttlMillis <= 0) {
+			return loader.call();
+		}
+		long now = System.currentTimeMillis();
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			long age = now - entry.loadTime;
+			if (age < policy.ttlMillis) {
+				hits.incrementAndGet();
+				return entry.count;
+			}
+			if (age < policy.ttlMillis + policy.staleMillis) {
+				if (!entry.refreshing.compareAndSet(false, true)) {
+					staleHits.incrementAndGet();
+					return entry.count;
+				}
+				try {
+					return load(key, loader);
+				} catch (Exception e) {
+					entry.refreshing.set(false);
+					throw e;
+				}
+			}
+		}
+		return load(key, loader);
+	}
+
+	private Integer load(Key key, Callable<Integer> loader) throws Exception {
+		misses.incrementAndGet();
+		Integer count = loader.call();
+		if (entries.size() >= maxSize) {
+			evict();
+		}
+		entries.put(key, new Entry(count, System.currentTimeMillis()));
+		return count;
+	}
+
+	/**
+	 * 缓存已满时先清除最长过期时间外的记录，仍超出时按遍历顺序清除十分之一
+	 */
+	private void evict() {
+		long maxAge = defaultPolicy.ttlMillis + defaultPolicy.staleMillis;
+		for (Policy policy : statementPolicies.values()) {
+			maxAge = Math.max(maxAge, policy.ttlMillis + policy.staleMillis);
+		}
+		long now = System.currentTimeMillis();
+		for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			if (now - it.next().loadTime >= maxAge) {
+				it.remove();
+			}
+		}
+		int toRemove = entries.size() - maxSize * 9 / 10;
+		for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext() && toRemove > 0; toRemove--) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getStaleHits() {
+		return staleHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	static class Policy {
+		final long ttlMillis;
+		final long staleMillis;
+
+		Policy(long ttlMillis, long staleMillis) {
+			this.ttlMillis = ttlMillis;
+			this.staleMillis = Math.max(staleMillis, 0);
+		}
+	}
+
+	static class Entry {
+		final Integer count;
+		final long loadTime;
+		final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+		Entry(Integer count, long loadTime) {
+			this.count = count;
+			this.loadTime = loadTime;
+		}
+	}
+
+	/**
+	 * 缓存Key：Configuration + statement ID + 规范化后的count SQL + 绑定参数值
+	 * <p>
+	 * 各SqlSessionFactory（如各分片）的同名statement访问的是不同的数据库，按Configuration实例区分，不共用count结果。
+	 * </p>
+	 */
+	public static class Key {
+		private final Configuration configuration;
+		private final String statementId;
+		private final String sql;
+		private final List<Object> parameters;
+		private final int hashCode;
+
+		Key(Configuration configuration, String statementId, String sql, List<Object> parameters) {
+			this.configuration = configuration;
+			this.statementId = statementId;
+			this.sql = sql;
+			this.parameters = parameters;
+			int h = System.identityHashCode(configuration);
+			h = 31 * h + statementId.hashCode();
+			h = 31 * h + sql.hashCode();
+			h = 31 * h + parameters.hashCode();
+			this.hashCode = h;
+		}
+
+		/**
+		 * 按DefaultParameterHandler相同的规则取出绑定参数值生成缓存Key
+		 *
+		 * @param ms
+		 *            原MappedStatement
+		 * @param boundSql
+		 *            原查询的BoundSql
+		 * @param parameter
+		 *            查询参数
+		 * @param countSql
+		 *            count SQL
+		 * @return 缓存Key
+		 */
+		public static Key of(MappedStatement ms, BoundSql boundSql, Object parameter, String countSql) {
+			Configuration configuration = ms.getConfiguration();
+			List<ParameterMapping> mappings = boundSql.getParameterMappings();
+			List<Object> values;
+			if (mappings.isEmpty()) {
+				values = Collections.emptyList();
+			} else {
+				values = new ArrayList<Object>(mappings.size());
+				MetaObject metaObject = null;
+				for (ParameterMapping mapping : mappings) {
+					if (mapping.getMode() == ParameterMode.OUT) {
+						continue;
+					}
+					String property = mapping.getProperty();
+					Object value;
+					if (boundSql.hasAdditionalParameter(property)) {
+						value = boundSql.getAdditionalParameter(property);
+					} else if (parameter == null) {
+						value = null;
+					} else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+						value = parameter;
+					} else {
+						if (metaObject == null) {
+							metaObject = configuration.newMetaObject(parameter);
+						}
+						value = metaObject.getValue(property);
+					}
+					values.add(value);
+				}
+			}
+			return new Key(configuration, ms.getId(), normalize(countSql), values);
+		}
+
+		static String normalize(String sql) {
+			StringBuilder sb = new StringBuilder(sql.length());
+			boolean space = false;
+			for (int i = 0; i < sql.length(); i++) {
+				char c = sql.charAt(i);
+				if (Character.isWhitespace(c)) {
+					space = sb.length() > 0;
+				} else {
+					if (space) {
+						sb.append(' ');
+						space = false;
+					}
+					sb.append(c);
+				}
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hashCode == other.hashCode && configuration == other.configuration
+					&& statementId.equals(other.statementId) && sql.equals(other.sql)
+					&& parameters.equals(other.parameters);
+		}
+	}
+}
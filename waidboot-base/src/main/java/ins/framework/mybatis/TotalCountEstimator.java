@@ -0,0 +1,114 @@
+package ins.framework.mybatis;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.github.miemiedev.mybatis.paginator.dialect.Dialect;
+import com.github.miemiedev.mybatis.paginator.dialect.MySQLDialect;
+import com.github.miemiedev.mybatis.paginator.dialect.PostgreSQLDialect;
+
+/**
+ * 根据数据库执行计划估算查询的总记录数
+ * <p>
+ * 估算值来自优化器的统计信息，不保证准确，适用于只显示“约N条”或“共多页”的大表分页
+ * </p>
+ *
+ */
+public abstract class TotalCountEstimator {
+
+	/**
+	 * 生成取得执行计划的SQL
+	 *
+	 * @param sql
+	 *            原查询SQL
+	 * @return 执行计划SQL
+	 */
+	public abstract String getExplainSql(String sql);
+
+	/**
+	 * 从执行计划结果中读取估算行数
+	 *
+	 * @param rs
+	 *            执行计划结果
+	 * @return 估算行数
+	 */
+	public abstract int getEstimate(ResultSet rs) throws SQLException;
+
+	/**
+	 * 取得方言对应的估算器
+	 *
+	 * @param dialectClass
+	 *            方言类
+	 * @return 估算器，方言不支持估算时返回null
+	 */
+	public static TotalCountEstimator forDialect(Class<? extends Dialect> dialectClass) {
+		if (MySQLDialect.class.isAssignableFrom(dialectClass)) {
+			return new MySQLEstimator();
+		}
+		if (PostgreSQLDialect.class.isAssignableFrom(dialectClass)) {
+			return new PostgreSQLEstimator();
+		}
+		return null;
+	}
+
+	static int toInt(double value) {
+		if (value <= 0) {
+			return 0;
+		}
+		return value >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.round(value);
+	}
+
+	/**
+	 * MySQL：取EXPLAIN第一行的rows，存在filtered列(5.7+)时乘以过滤比例
+	 */
+	static class MySQLEstimator extends TotalCountEstimator {
+
+		@Override
+		public String getExplainSql(String sql) {
+			return "EXPLAIN " + sql;
+		}
+
+		@Override
+		public int getEstimate(ResultSet rs) throws SQLException {
+			if (!rs.next()) {
+				return 0;
+			}
+			double rows = rs.getDouble("rows");
+			ResultSetMetaData metaData = rs.getMetaData();
+			for (int i = 1; i <= metaData.getColumnCount(); i++) {
+				if ("filtered".equalsIgnoreCase(metaData.getColumnLabel(i))) {
+					double filtered = rs.getDouble(i);
+					if (!rs.wasNull()) {
+						rows = rows * filtered / 100;
+					}
+					break;
+				}
+			}
+			return toInt(rows);
+		}
+	}
+
+	/**
+	 * PostgreSQL：取EXPLAIN顶层计划节点的rows，已考虑where条件，比pg_class.reltuples更贴近查询结果
+	 */
+	static class PostgreSQLEstimator extends TotalCountEstimator {
+		private static final Pattern ROWS = Pattern.compile("\\brows=(\\d+)");
+
+		@Override
+		public String getExplainSql(String sql) {
+			return "EXPLAIN " + sql;
+		}
+
+		@Override
+		public int getEstimate(ResultSet rs) throws SQLException {
+			if (!rs.next()) {
+				return 0;
+			}
+			Matcher matcher = ROWS.matcher(rs.getString(1));
+			return matcher.find() ? toInt(Double.parseDouble(matcher.group(1))) : 0;
+		}
+	}
+}
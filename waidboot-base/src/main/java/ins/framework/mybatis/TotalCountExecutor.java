@@ -0,0 +1,108 @@
+package ins.framework.mybatis;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步执行分页总记录数查询的有界线程池
+ * <p>
+ * 线程数和队列长度均有上限，线程池已满时count任务退化为在调用线程中同步执行，
+ * 避免突发的分页请求创建大量线程并各自占用数据库连接
+ * </p>
+ *
+ */
+public class TotalCountExecutor {
+
+	private final ThreadPoolExecutor pool;
+	private final TotalCountListener listener;
+
+	/**
+	 * @param poolSize
+	 *            最大线程数
+	 * @param queueSize
+	 *            等待队列长度
+	 * @param listener
+	 *            监控回调
+	 */
+	public TotalCountExecutor(int poolSize, int queueSize, TotalCountListener listener) {
+		this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new NamedThreadFactory("mybatis-count"),
+				new ThreadPoolExecutor.AbortPolicy());
+		this.pool.allowCoreThreadTimeOut(true);
+		this.listener = listener;
+	}
+
+	/**
+	 * 提交count任务，线程池已满时在调用线程中同步执行
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param task
+	 *            count任务
+	 * @return count结果
+	 */
+	public <T> Future<T> submit(String statementId, Callable<T> task) {
+		try {
+			Future<T> future = pool.submit(timed(statementId, task, true));
+			listener.onSubmitted(statementId, pool.getQueue().size(), pool.getActiveCount());
+			return future;
+		} catch (RejectedExecutionException e) {
+			listener.onRejected(statementId);
+			return run(statementId, task);
+		}
+	}
+
+	/**
+	 * 在调用线程中同步执行count任务
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param task
+	 *            count任务
+	 * @return 已执行完成的count结果
+	 */
+	public <T> Future<T> run(String statementId, Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(timed(statementId, task, false));
+		future.run();
+		return future;
+	}
+
+	private <T> Callable<T> timed(final String statementId, final Callable<T> task, final boolean async) {
+		return new Callable<T>() {
+			public T call() throws Exception {
+				long start = System.nanoTime();
+				T result = task.call();
+				listener.onCompleted(statementId, System.nanoTime() - start, async);
+				return result;
+			}
+		};
+	}
+
+	public TotalCountListener getListener() {
+		return listener;
+	}
+
+	/** 队列中等待执行的count任务数 */
+	public int getQueueDepth() {
+		return pool.getQueue().size();
+	}
+
+	/** 正在执行count任务的线程数 */
+	public int getActiveThreads() {
+		return pool.getActiveCount();
+	}
+
+	/** 已完成的count任务数 */
+	public long getCompletedCount() {
+		return pool.getCompletedTaskCount();
+	}
+
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+}
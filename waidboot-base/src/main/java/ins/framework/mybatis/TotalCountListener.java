@@ -0,0 +1,84 @@
+package ins.framework.mybatis;
+
+/**
+ * 分页总记录数查询的监控回调，可用于上报队列深度、活动线程数及count耗时
+ *
+ */
+public interface TotalCountListener {
+
+	/**
+	 * count任务提交到线程池
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param queueDepth
+	 *            提交时线程池队列中等待的任务数
+	 * @param activeThreads
+	 *            提交时线程池中正在执行任务的线程数
+	 */
+	void onSubmitted(String statementId, int queueDepth, int activeThreads);
+
+	/**
+	 * 线程池已满，count任务在调用线程中同步执行
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 */
+	void onRejected(String statementId);
+
+	/**
+	 * count任务执行完成
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param elapsedNanos
+	 *            count语句耗时（纳秒）
+	 * @param async
+	 *            是否在线程池中执行
+	 */
+	void onCompleted(String statementId, long elapsedNanos, boolean async);
+
+	/**
+	 * count任务超时并已取消
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 * @param timeoutMillis
+	 *            超时时间（毫秒）
+	 */
+	void onTimeout(String statementId, long timeoutMillis);
+
+	/**
+	 * 列表查询失败，count任务已取消
+	 *
+	 * @param statementId
+	 *            MappedStatement的ID
+	 */
+	void onCancelled(String statementId);
+
+	/**
+	 * 空实现，按需覆盖其中的方法
+	 */
+	public static class Adapter implements TotalCountListener {
+
+		@Override
+		public void onSubmitted(String statementId, int queueDepth, int activeThreads) {
+		}
+
+		@Override
+		public void onRejected(String statementId) {
+		}
+
+		@Override
+		public void onCompleted(String statementId, long elapsedNanos, boolean async) {
+		}
+
+		@Override
+		public void onTimeout(String statementId, long timeoutMillis) {
+		}
+
+		@Override
+		public void onCancelled(String statementId) {
+		}
+	}
+}
@@ -0,0 +1,627 @@
+package ins.framework.mybatis.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 按权重限制容量、使用W-TinyLFU准入策略的MyBatis二级缓存，用于替代默认的&lt;cache/&gt;
+ * <p>
+ * 新记录先进入占总权重1%的窗口区(LRU)，被挤出窗口时与主区(LRU)最久未访问的记录比较访问频率（Count-Min Sketch），
+ * 频率更高才能进入主区，避免一次性的大查询把热点数据挤出缓存。记录的权重为结果的行数。
+ * </p>
+ * <p>
+ * 可按statement设置过期时间；配合NearCacheInvalidationInterceptor，按主键的更新/删除只清除包含该主键的记录及非主键查询的结果，
+ * 不再清空整个namespace。非按主键查询的结果单独登记，清除时不需要遍历整个缓存。
+ * </p>
+ * <p>
+ * 解析Mapper XML后需调用{@link #register(Configuration)}登记（NearCacheInvalidationInterceptor.addConfiguration），
+ * 同一namespace在多个SqlSessionFactory中的缓存按Configuration区分，SqlSessionFactory关闭时调用{@link #unregister(Configuration)}。
+ * </p>
+ *
+ * <pre>
+ * &lt;cache type="ins.framework.mybatis.cache.BoundedNearCache"&gt;
+ *   &lt;property name="maxWeight" value="10000"/&gt;
+ *   &lt;property name="ttlMillis" value="600000"/&gt;
+ *   &lt;property name="statementTtls" value="selectPage=60000"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ */
+public class BoundedNearCache implements Cache {
+
+	/** 默认最大权重（行数） */
+	public static final long DEFAULT_MAX_WEIGHT = 10000;
+	/**
+	 * 默认过期时间（毫秒）：从库延迟或提交晚于清除时，读到的旧记录可能在清除之后放入缓存，过期时间限制旧记录存在的时长
+	 */
+	public static final long DEFAULT_TTL_MILLIS = 60000;
+	/** 默认的按主键查询的statement，其结果只在对应主键变化时清除 */
+	public static final String DEFAULT_KEY_STATEMENTS = "selectByPrimaryKey,selectBatchByPrimaryKeys";
+
+	private static final ConcurrentMap<Configuration, Map<String, BoundedNearCache>> CACHES = new ConcurrentHashMap<Configuration, Map<String, BoundedNearCache>>();
+
+	private final String id;
+	private long maxWeight = DEFAULT_MAX_WEIGHT;
+	private long ttlMillis = DEFAULT_TTL_MILLIS;
+	private final Map<String, Long> statementTtls = new HashMap<String, Long>();
+	private final Set<String> keyStatements = new HashSet<String>();
+	private String idProperty = "id";
+	private boolean serialize = true;
+
+	private final LinkedHashMap<Object, Entry> window = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+	private final LinkedHashMap<Object, Entry> main = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+	private final Map<Object, Set<Object>> idIndex = new HashMap<Object, Set<Object>>();
+	/** 非按主键查询的结果，任何写操作后都要清除 */
+	private final Set<Object> queryKeys = new HashSet<Object>();
+	/** 结果为空的按主键查询，插入后要清除 */
+	private final Set<Object> emptyKeys = new HashSet<Object>();
+	private long windowWeight;
+	private long mainWeight;
+	private FrequencySketch sketch;
+
+	private long hits;
+	private long misses;
+	private long puts;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+
+	public BoundedNearCache(String id) {
+		this.id = id;
+		this.sketch = new FrequencySketch(maxWeight);
+		setKeyStatements(DEFAULT_KEY_STATEMENTS);
+	}
+
+	/**
+	 * 登记Configuration中的BoundedNearCache，需在解析Mapper XML之后调用
+	 */
+	public static void register(Configuration configuration) {
+		Map<String, BoundedNearCache> caches = new HashMap<String, BoundedNearCache>();
+		for (String name : configuration.getCacheNames()) {
+			Cache cache;
+			try {
+				cache = configuration.getCache(name);
+			} catch (IllegalArgumentException e) {
+				// 多个namespace的简称相同
+				continue;
+			}
+			BoundedNearCache nearCache = unwrap(cache);
+			// 同一缓存还以namespace的简称登记
+			if (nearCache != null && nearCache.getId().equals(name)) {
+				caches.put(name, nearCache);
+			}
+		}
+		if (caches.isEmpty()) {
+			CACHES.remove(configuration);
+		} else {
+			CACHES.put(configuration, Collections.unmodifiableMap(caches));
+		}
+	}
+
+	/**
+	 * 移除Configuration中登记的缓存
+	 */
+	public static void unregister(Configuration configuration) {
+		CACHES.remove(configuration);
+	}
+
+	/**
+	 * 取得Configuration中namespace对应的缓存
+	 *
+	 * @return 未登记或namespace不使用BoundedNearCache时为null
+	 */
+	public static BoundedNearCache forNamespace(Configuration configuration, String namespace) {
+		Map<String, BoundedNearCache> caches = CACHES.get(configuration);
+		return caches == null ? null : caches.get(namespace);
+	}
+
+	/**
+	 * 取得所有Configuration中namespace对应的缓存，多个SqlSessionFactory加载同一Mapper时有多个
+	 */
+	public static List<BoundedNearCache> forNamespace(String namespace) {
+		List<BoundedNearCache> result = new ArrayList<BoundedNearCache>(2);
+		for (Map<String, BoundedNearCache> caches : CACHES.values()) {
+			BoundedNearCache cache = caches.get(namespace);
+			if (cache != null) {
+				result.add(cache);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 所有的缓存，用于监控
+	 */
+	public static Map<String, List<BoundedNearCache>> getCaches() {
+		Map<String, List<BoundedNearCache>> result = new HashMap<String, List<BoundedNearCache>>();
+		for (Map<String, BoundedNearCache> caches : CACHES.values()) {
+			for (Map.Entry<String, BoundedNearCache> entry : caches.entrySet()) {
+				List<BoundedNearCache> namespaceCaches = result.get(entry.getKey());
+				if (namespaceCaches == null) {
+					namespaceCaches = new ArrayList<BoundedNearCache>(2);
+					result.put(entry.getKey(), namespaceCaches);
+				}
+				namespaceCaches.add(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 取出装饰器（如LoggingCache）中的BoundedNearCache
+	 */
+	static BoundedNearCache unwrap(Cache cache) {
+		while (cache != null && !(cache instanceof BoundedNearCache)) {
+			MetaObject metaObject = SystemMetaObject.forObject(cache);
+			if (!metaObject.hasGetter("delegate")) {
+				return null;
+			}
+			cache = (Cache) metaObject.getValue("delegate");
+		}
+		return (BoundedNearCache) cache;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public synchronized void putObject(Object key, Object value) {
+		String statementId = statementId(key);
+		long weight = value instanceof Collection ? Math.max(((Collection<?>) value).size(), 1) : 1;
+		removeEntry(key);
+		if (value == null || weight > mainMaxWeight()) {
+			return;
+		}
+		Entry entry = new Entry(key, serialize ? serialize(value) : value, weight);
+		long ttl = ttlOf(statementId);
+		entry.expireAt = ttl > 0 ? System.currentTimeMillis() + ttl : 0;
+		entry.keyStatement = statementId != null && keyStatements.contains(simpleName(statementId));
+		entry.ids = rowIds(value);
+		entry.empty = value instanceof Collection && ((Collection<?>) value).isEmpty();
+		puts++;
+		sketch.increment(key);
+		window.put(key, entry);
+		windowWeight += weight;
+		index(entry);
+		long windowMax = windowMaxWeight();
+		while (windowWeight > windowMax && !window.isEmpty()) {
+			Iterator<Entry> it = window.values().iterator();
+			Entry candidate = it.next();
+			it.remove();
+			windowWeight -= candidate.weight;
+			admit(candidate);
+		}
+	}
+
+	/**
+	 * 窗口区挤出的记录进入主区：主区空间不足时，只有频率高于所有需要淘汰的记录时才进入
+	 */
+	private void admit(Entry candidate) {
+		long mainMax = mainMaxWeight();
+		if (mainWeight + candidate.weight > mainMax) {
+			int frequency = sketch.frequency(candidate.key);
+			long freed = 0;
+			List<Entry> victims = new ArrayList<Entry>();
+			for (Iterator<Entry> it = main.values().iterator(); it.hasNext()
+					&& mainWeight - freed + candidate.weight > mainMax;) {
+				Entry victim = it.next();
+				if (sketch.frequency(victim.key) >= frequency) {
+					unindex(candidate);
+					evictions++;
+					return;
+				}
+				victims.add(victim);
+				freed += victim.weight;
+			}
+			for (Entry victim : victims) {
+				main.remove(victim.key);
+				mainWeight -= victim.weight;
+				unindex(victim);
+				evictions++;
+			}
+		}
+		main.put(candidate.key, candidate);
+		mainWeight += candidate.weight;
+	}
+
+	@Override
+	public synchronized Object getObject(Object key) {
+		sketch.increment(key);
+		Entry entry = window.get(key);
+		if (entry == null) {
+			entry = main.get(key);
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		if (entry.expireAt > 0 && entry.expireAt <= System.currentTimeMillis()) {
+			removeEntry(key);
+			expirations++;
+			misses++;
+			return null;
+		}
+		hits++;
+		return serialize ? deserialize((byte[]) entry.value) : entry.value;
+	}
+
+	@Override
+	public synchronized Object removeObject(Object key) {
+		Entry entry = removeEntry(key);
+		if (entry == null) {
+			return null;
+		}
+		return serialize ? deserialize((byte[]) entry.value) : entry.value;
+	}
+
+	@Override
+	public synchronized void clear() {
+		invalidations += window.size() + main.size();
+		window.clear();
+		main.clear();
+		idIndex.clear();
+		queryKeys.clear();
+		emptyKeys.clear();
+		windowWeight = 0;
+		mainWeight = 0;
+	}
+
+	@Override
+	public synchronized int getSize() {
+		return window.size() + main.size();
+	}
+
+	@Override
+	public ReadWriteLock getReadWriteLock() {
+		return null;
+	}
+
+	/**
+	 * 按主键更新/删除后清除缓存：包含这些主键的记录，以及所有非按主键查询的结果（条件查询的结果可能因此变化）
+	 *
+	 * @param ids
+	 *            变化的主键
+	 */
+	public synchronized void invalidate(Collection<?> ids) {
+		Set<Object> keys = new HashSet<Object>();
+		for (Object rowId : ids) {
+			Set<Object> indexed = idIndex.get(rowId);
+			if (indexed != null) {
+				keys.addAll(indexed);
+			}
+		}
+		for (Object key : keys) {
+			if (removeEntry(key) != null) {
+				invalidations++;
+			}
+		}
+		invalidateMatching(false);
+	}
+
+	/**
+	 * 插入后清除缓存：所有非按主键查询的结果，以及按主键查询结果为空的记录
+	 */
+	public synchronized void invalidateForInsert() {
+		invalidateMatching(true);
+	}
+
+	private void invalidateMatching(boolean includeEmpty) {
+		List<Object> keys = new ArrayList<Object>(queryKeys);
+		if (includeEmpty) {
+			keys.addAll(emptyKeys);
+		}
+		for (Object key : keys) {
+			if (removeEntry(key) != null) {
+				invalidations++;
+			}
+		}
+	}
+
+	private Entry removeEntry(Object key) {
+		Entry entry = window.remove(key);
+		if (entry != null) {
+			windowWeight -= entry.weight;
+		} else {
+			entry = main.remove(key);
+			if (entry != null) {
+				mainWeight -= entry.weight;
+			}
+		}
+		if (entry != null) {
+			unindex(entry);
+		}
+		return entry;
+	}
+
+	private void index(Entry entry) {
+		if (!entry.keyStatement) {
+			queryKeys.add(entry.key);
+		} else if (entry.empty) {
+			emptyKeys.add(entry.key);
+		}
+		if (entry.ids == null) {
+			return;
+		}
+		for (Object rowId : entry.ids) {
+			Set<Object> keys = idIndex.get(rowId);
+			if (keys == null) {
+				keys = new HashSet<Object>(4);
+				idIndex.put(rowId, keys);
+			}
+			keys.add(entry.key);
+		}
+	}
+
+	private void unindex(Entry entry) {
+		if (!entry.keyStatement) {
+			queryKeys.remove(entry.key);
+		} else if (entry.empty) {
+			emptyKeys.remove(entry.key);
+		}
+		if (entry.ids == null) {
+			return;
+		}
+		for (Object rowId : entry.ids) {
+			Set<Object> keys = idIndex.get(rowId);
+			if (keys != null) {
+				keys.remove(entry.key);
+				if (keys.isEmpty()) {
+					idIndex.remove(rowId);
+				}
+			}
+		}
+	}
+
+	private Object[] rowIds(Object value) {
+		Collection<?> rows = value instanceof Collection ? (Collection<?>) value : Collections.singleton(value);
+		List<Object> ids = null;
+		for (Object row : rows) {
+			if (row == null) {
+				continue;
+			}
+			MetaObject metaObject = SystemMetaObject.forObject(row);
+			if (!metaObject.hasGetter(idProperty)) {
+				return null;
+			}
+			Object rowId = metaObject.getValue(idProperty);
+			if (rowId != null) {
+				if (ids == null) {
+					ids = new ArrayList<Object>(rows.size());
+				}
+				ids.add(rowId);
+			}
+		}
+		return ids == null ? null : ids.toArray();
+	}
+
+	/**
+	 * CacheKey的格式为 hashcode:checksum:statementId:offset:limit:sql:参数...
+	 */
+	static String statementId(Object key) {
+		String[] parts = key.toString().split(":", 4);
+		return parts.length >= 3 ? parts[2] : null;
+	}
+
+	private static String simpleName(String statementId) {
+		return statementId.substring(statementId.lastIndexOf('.') + 1);
+	}
+
+	private long ttlOf(String statementId) {
+		if (statementId != null) {
+			Long ttl = statementTtls.get(statementId);
+			if (ttl == null) {
+				ttl = statementTtls.get(simpleName(statementId));
+			}
+			if (ttl != null) {
+				return ttl;
+			}
+		}
+		return ttlMillis;
+	}
+
+	private long windowMaxWeight() {
+		return Math.max(maxWeight / 100, 1);
+	}
+
+	private long mainMaxWeight() {
+		return Math.max(maxWeight - windowMaxWeight(), 1);
+	}
+
+	private byte[] serialize(Object value) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject((Serializable) value);
+			oos.flush();
+			oos.close();
+			return bos.toByteArray();
+		} catch (Exception e) {
+			throw new CacheException("Error serializing object.  Cause: " + e, e);
+		}
+	}
+
+	private Object deserialize(byte[] value) {
+		try {
+			ObjectInputStream ois = new CustomObjectInputStream(new ByteArrayInputStream(value));
+			try {
+				return ois.readObject();
+			} finally {
+				ois.close();
+			}
+		} catch (Exception e) {
+			throw new CacheException("Error deserializing object.  Cause: " + e, e);
+		}
+	}
+
+	/**
+	 * 按MyBatis的类加载规则反序列化，与SerializedCache一致
+	 */
+	static class CustomObjectInputStream extends ObjectInputStream {
+
+		CustomObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			return Resources.classForName(desc.getName());
+		}
+	}
+
+	static class Entry {
+		final Object key;
+		final Object value;
+		final long weight;
+		long expireAt;
+		boolean keyStatement;
+		boolean empty;
+		Object[] ids;
+
+		Entry(Object key, Object value, long weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * 设置最大权重（缓存的总行数）
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		if (maxWeight < 1) {
+			throw new IllegalArgumentException("maxWeight must be greater than 0");
+		}
+		this.maxWeight = maxWeight;
+		this.sketch = new FrequencySketch(maxWeight);
+		clear();
+	}
+
+	/**
+	 * 设置默认过期时间（毫秒），默认为{@link #DEFAULT_TTL_MILLIS}，小于等于0表示不过期
+	 * <p>
+	 * 使用读写分离或多节点部署时不要设置为不过期，否则从库延迟时读到的旧记录会一直留在缓存中
+	 * </p>
+	 */
+	public synchronized void setTtlMillis(long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+	}
+
+	public synchronized long getTtlMillis() {
+		return ttlMillis;
+	}
+
+	/**
+	 * 按statement设置过期时间，格式为 statementId=ttlMillis，多个以逗号分隔，statementId可以只写方法名
+	 */
+	public synchronized void setStatementTtls(String statementTtls) {
+		this.statementTtls.clear();
+		if (statementTtls == null) {
+			return;
+		}
+		for (String statementTtl : statementTtls.split(",")) {
+			if (statementTtl.trim().length() == 0) {
+				continue;
+			}
+			int eq = statementTtl.lastIndexOf('=');
+			if (eq <= 0) {
+				throw new IllegalArgumentException("Invalid statement ttl [" + statementTtl + "]");
+			}
+			this.statementTtls.put(statementTtl.substring(0, eq).trim(),
+					Long.parseLong(statementTtl.substring(eq + 1).trim()));
+		}
+	}
+
+	/**
+	 * 设置按主键查询的statement方法名，多个以逗号分隔
+	 */
+	public synchronized void setKeyStatements(String keyStatements) {
+		this.keyStatements.clear();
+		for (String keyStatement : keyStatements.split(",")) {
+			if (keyStatement.trim().length() > 0) {
+				this.keyStatements.add(keyStatement.trim());
+			}
+		}
+	}
+
+	public synchronized void setIdProperty(String idProperty) {
+		this.idProperty = idProperty;
+	}
+
+	/**
+	 * 是否序列化保存（默认为true），为false时直接返回缓存的对象，调用方不能修改查询结果
+	 */
+	public synchronized void setSerialize(boolean serialize) {
+		this.serialize = serialize;
+		clear();
+	}
+
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized long getWeight() {
+		return windowWeight + mainWeight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getPuts() {
+		return puts;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o;
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode();
+	}
+}
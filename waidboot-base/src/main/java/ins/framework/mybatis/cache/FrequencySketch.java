@@ -0,0 +1,93 @@
+package ins.framework.mybatis.cache;
+
+/**
+ * 近似统计访问频率的Count-Min Sketch（TinyLFU）
+ * <p>
+ * 4行计数器，每个计数器4位（最大15），累计增加次数达到采样数后所有计数器减半，使频率随时间衰减。
+ * 非线程安全，由调用方加锁。
+ * </p>
+ *
+ */
+class FrequencySketch {
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/** 每个long保存16个4位计数器 */
+	private final long[] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int size;
+
+	/**
+	 * @param maximumSize
+	 *            缓存的最大条数，用于确定计数器数量及采样数
+	 */
+	FrequencySketch(long maximumSize) {
+		int capacity = (int) Math.min(Math.max(maximumSize, 16), 1 << 24);
+		int length = Integer.highestOneBit(capacity - 1) << 1;
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = 10 * capacity;
+	}
+
+	/**
+	 * 取得元素的估算频率
+	 */
+	int frequency(Object e) {
+		int hash = spread(e.hashCode());
+		int frequency = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = counterOffset(hash, i);
+			frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xfL));
+		}
+		return frequency;
+	}
+
+	/**
+	 * 增加元素的频率
+	 */
+	void increment(Object e) {
+		int hash = spread(e.hashCode());
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = counterOffset(hash, i);
+			long mask = 0xfL << offset;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && ++size >= sampleSize) {
+			reset();
+		}
+	}
+
+	/**
+	 * 所有计数器减半
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size >>>= 1;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private int counterOffset(int hash, int i) {
+		return (((hash >>> (i << 3)) & 0xf) << 2);
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
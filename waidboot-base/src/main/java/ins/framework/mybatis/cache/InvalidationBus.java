@@ -0,0 +1,160 @@
+package ins.framework.mybatis.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.session.Configuration;
+
+import ins.framework.mybatis.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 在多个节点之间广播Mapper缓存清除通知
+ * <p>
+ * 本节点的写操作提交后，NearCacheInvalidationInterceptor将清除通知交给publish，合并windowMillis毫秒内同一namespace的通知后
+ * 通过InvalidationTransport发送；收到其他节点的通知时，BoundedNearCache按主键清除，其他类型的缓存清空整个namespace。
+ * </p>
+ *
+ */
+@Slf4j
+public class InvalidationBus implements InvalidationTransport.Listener {
+
+	private final InvalidationTransport transport;
+	private final String nodeId;
+	private final long windowMillis;
+	private final ScheduledExecutorService scheduler;
+	/** 用于清除非BoundedNearCache的缓存 */
+	private final List<Configuration> configurations = new CopyOnWriteArrayList<Configuration>();
+
+	private Map<String, InvalidationMessage> pending = new LinkedHashMap<String, InvalidationMessage>();
+	private boolean flushScheduled;
+
+	private long published;
+	private long received;
+
+	/**
+	 * @param transport
+	 *            通知的传递方式
+	 * @param nodeId
+	 *            本节点的标识，为空时随机生成
+	 * @param windowMillis
+	 *            合并通知的时间窗口（毫秒），小于等于0时立即发送
+	 */
+	public InvalidationBus(InvalidationTransport transport, String nodeId, long windowMillis) {
+		this.transport = transport;
+		this.nodeId = nodeId == null || nodeId.length() == 0 ? UUID.randomUUID().toString() : nodeId;
+		this.windowMillis = windowMillis;
+		this.scheduler = windowMillis > 0
+				? Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("cache-invalidation")) : null;
+		transport.subscribe(this);
+	}
+
+	/**
+	 * 登记SqlSessionFactory的Configuration，收到通知时清除其中非BoundedNearCache的缓存
+	 */
+	public void addConfiguration(Configuration configuration) {
+		configurations.add(configuration);
+	}
+
+	/**
+	 * 登记要广播的通知，时间窗口内同一namespace的通知合并发送
+	 */
+	public void publish(InvalidationMessage message) {
+		boolean flushNow;
+		synchronized (this) {
+			InvalidationMessage merged = pending.get(message.getNamespace());
+			if (merged == null) {
+				merged = new InvalidationMessage(message.getNamespace());
+				merged.setSourceNode(nodeId);
+				pending.put(message.getNamespace(), merged);
+			}
+			merged.merge(message);
+			flushNow = scheduler == null;
+			if (!flushNow && !flushScheduled) {
+				flushScheduled = true;
+				scheduler.schedule(new Runnable() {
+					public void run() {
+						flush();
+					}
+				}, windowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (flushNow) {
+			flush();
+		}
+	}
+
+	/**
+	 * 立即发送已登记的通知
+	 */
+	public void flush() {
+		List<InvalidationMessage> messages;
+		synchronized (this) {
+			flushScheduled = false;
+			if (pending.isEmpty()) {
+				return;
+			}
+			messages = new ArrayList<InvalidationMessage>(pending.values());
+			pending = new LinkedHashMap<String, InvalidationMessage>();
+			published += messages.size();
+		}
+		try {
+			transport.publish(messages);
+		} catch (RuntimeException e) {
+			// 其他节点的缓存只能等过期或下一次通知清除
+			log.error("Publish cache invalidation failed: " + messages, e);
+		}
+	}
+
+	@Override
+	public void onMessages(List<InvalidationMessage> messages) {
+		for (InvalidationMessage message : messages) {
+			if (nodeId.equals(message.getSourceNode())) {
+				continue;
+			}
+			synchronized (this) {
+				received++;
+			}
+			List<BoundedNearCache> caches = BoundedNearCache.forNamespace(message.getNamespace());
+			for (BoundedNearCache cache : caches) {
+				message.applyTo(cache);
+			}
+			if (caches.isEmpty()) {
+				for (Configuration configuration : configurations) {
+					if (configuration.hasCache(message.getNamespace())) {
+						configuration.getCache(message.getNamespace()).clear();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 发送剩余的通知并停止定时发送
+	 */
+	public void close() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		flush();
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public synchronized long getPublished() {
+		return published;
+	}
+
+	public synchronized long getReceived() {
+		return received;
+	}
+}
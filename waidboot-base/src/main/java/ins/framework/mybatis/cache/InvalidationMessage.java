@@ -0,0 +1,123 @@
+package ins.framework.mybatis.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 一个namespace的缓存清除通知
+ * <p>
+ * 同一namespace的多次写操作合并为一条通知：变化的主键、是否有插入、是否需要清空整个namespace。
+ * 主键超过MAX_IDS个时改为清空整个namespace，避免通知过大。
+ * </p>
+ *
+ */
+public class InvalidationMessage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 一条通知中最多的主键个数 */
+	public static final int MAX_IDS = 1000;
+
+	private final String namespace;
+	private final Set<Object> ids = new LinkedHashSet<Object>();
+	private boolean inserted;
+	private boolean cleared;
+	private String sourceNode;
+
+	public InvalidationMessage(String namespace) {
+		this.namespace = namespace;
+	}
+
+	/**
+	 * 主键对应的记录被更新或删除
+	 */
+	public void addIds(Collection<?> changedIds) {
+		if (cleared) {
+			return;
+		}
+		ids.addAll(changedIds);
+		if (ids.size() > MAX_IDS) {
+			clear();
+		}
+	}
+
+	/**
+	 * 有新记录插入
+	 */
+	public void insert() {
+		if (!cleared) {
+			inserted = true;
+		}
+	}
+
+	/**
+	 * 需要清空整个namespace
+	 */
+	public void clear() {
+		cleared = true;
+		inserted = false;
+		ids.clear();
+	}
+
+	/**
+	 * 合并同一namespace的另一条通知
+	 */
+	public void merge(InvalidationMessage other) {
+		if (other.cleared) {
+			clear();
+			return;
+		}
+		addIds(other.ids);
+		if (other.inserted) {
+			insert();
+		}
+	}
+
+	/**
+	 * 按通知清除缓存
+	 */
+	public void applyTo(BoundedNearCache cache) {
+		if (cleared) {
+			cache.clear();
+			return;
+		}
+		if (!ids.isEmpty()) {
+			cache.invalidate(ids);
+		}
+		if (inserted) {
+			cache.invalidateForInsert();
+		}
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public Set<Object> getIds() {
+		return ids;
+	}
+
+	public boolean isInserted() {
+		return inserted;
+	}
+
+	public boolean isCleared() {
+		return cleared;
+	}
+
+	public String getSourceNode() {
+		return sourceNode;
+	}
+
+	public void setSourceNode(String sourceNode) {
+		this.sourceNode = sourceNode;
+	}
+
+	@Override
+	public String toString() {
+		return "InvalidationMessage [namespace=" + namespace + ", ids=" + ids + ", inserted=" + inserted + ", cleared="
+				+ cleared + ", sourceNode=" + sourceNode + "]";
+	}
+}
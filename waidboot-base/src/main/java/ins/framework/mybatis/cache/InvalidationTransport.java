@@ -0,0 +1,37 @@
+package ins.framework.mybatis.cache;
+
+import java.util.List;
+
+/**
+ * 在各节点之间传递缓存清除通知的方式，可基于Redis发布订阅、消息队列等实现
+ * <p>
+ * publish的通知应投递给所有订阅者，包括本节点；InvalidationBus会忽略本节点发出的通知。
+ * </p>
+ *
+ */
+public interface InvalidationTransport {
+
+	/**
+	 * 发送一批通知
+	 *
+	 * @param messages
+	 *            通知
+	 */
+	void publish(List<InvalidationMessage> messages);
+
+	/**
+	 * 订阅通知
+	 *
+	 * @param listener
+	 *            收到通知时调用
+	 */
+	void subscribe(Listener listener);
+
+	/**
+	 * 收到通知时的回调
+	 */
+	interface Listener {
+
+		void onMessages(List<InvalidationMessage> messages);
+	}
+}
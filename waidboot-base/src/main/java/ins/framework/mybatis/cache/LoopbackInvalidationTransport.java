@@ -0,0 +1,28 @@
+package ins.framework.mybatis.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 同一JVM内的通知传递方式，在发送线程中直接调用各订阅者
+ * <p>
+ * 未配置其他InvalidationTransport时使用；多个InvalidationBus共用一个实例即可在单个JVM中模拟多个节点。
+ * </p>
+ *
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	@Override
+	public void publish(List<InvalidationMessage> messages) {
+		for (Listener listener : listeners) {
+			listener.onMessages(messages);
+		}
+	}
+
+	@Override
+	public void subscribe(Listener listener) {
+		listeners.add(listener);
+	}
+}
@@ -0,0 +1,215 @@
+package ins.framework.mybatis.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 按主键清除BoundedNearCache的插件
+ * <p>
+ * 生成的Mapper中按主键的更新/删除及插入语句设置了flushCache="false"，不再清空整个namespace的缓存，
+ * 由本插件在事务提交后只清除受影响的记录；事务回滚时不清除。其他写语句（如自定义Mapper中的语句）提交后清空该namespace的缓存。
+ * </p>
+ * <p>
+ * 设置了InvalidationBus时，提交后的清除通知同时广播给其他节点。
+ * </p>
+ * <p>
+ * 每个SqlSessionFactory解析Mapper XML后需调用{@link #addConfiguration(Configuration)}登记其中的BoundedNearCache，
+ * 本节点的写操作只清除执行该语句的SqlSessionFactory中的缓存；关闭时（{@link #close()}）移除登记。
+ * </p>
+ *
+ */
+@Intercepts({ @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }),
+		@Signature(type = Executor.class, method = "commit", args = { boolean.class }),
+		@Signature(type = Executor.class, method = "rollback", args = { boolean.class }),
+		@Signature(type = Executor.class, method = "close", args = { boolean.class }) })
+public class NearCacheInvalidationInterceptor implements Interceptor {
+
+	private static final Set<String> KEY_WRITES = new HashSet<String>(Arrays.asList("updateByPrimaryKey",
+			"updateSelectiveByPrimaryKey", "updateBatchByPrimaryKey", "deleteByPrimaryKey", "deleteBatchByPrimaryKeys"));
+	private static final Set<String> INSERTS = new HashSet<String>(
+			Arrays.asList("insert", "insertSelective", "insertBatch"));
+	private static final Set<String> UPSERTS = new HashSet<String>(Arrays.asList("upsert", "upsertBatch"));
+
+	/** 各Executor（SqlSession）中尚未提交的清除操作 */
+	private final Map<Executor, PendingInvalidations> pending = Collections
+			.synchronizedMap(new WeakHashMap<Executor, PendingInvalidations>());
+	private final List<Configuration> configurations = new CopyOnWriteArrayList<Configuration>();
+	private String idProperty = "id";
+	private InvalidationBus invalidationBus;
+
+	@Override
+	public Object intercept(Invocation invocation) throws Throwable {
+		Executor executor = (Executor) invocation.getTarget();
+		String method = invocation.getMethod().getName();
+		if ("update".equals(method)) {
+			Object result = invocation.proceed();
+			MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+			if (ms.getCache() != null
+					|| BoundedNearCache.forNamespace(ms.getConfiguration(), namespace(ms)) != null) {
+				PendingInvalidations invalidations = pending.get(executor);
+				if (invalidations == null) {
+					invalidations = new PendingInvalidations(ms.getConfiguration());
+					pending.put(executor, invalidations);
+				}
+				invalidations.messages.add(invalidation(ms, invocation.getArgs()[1]));
+			}
+			return result;
+		}
+		if ("rollback".equals(method) || ("close".equals(method) && (Boolean) invocation.getArgs()[0])) {
+			pending.remove(executor);
+			return invocation.proceed();
+		}
+		// commit，或未回滚就关闭时清除
+		Object result = invocation.proceed();
+		PendingInvalidations invalidations = pending.remove(executor);
+		if (invalidations != null) {
+			for (InvalidationMessage invalidation : invalidations.messages) {
+				BoundedNearCache cache = BoundedNearCache.forNamespace(invalidations.configuration,
+						invalidation.getNamespace());
+				if (cache != null) {
+					invalidation.applyTo(cache);
+				}
+				if (invalidationBus != null) {
+					invalidationBus.publish(invalidation);
+				}
+			}
+		}
+		return result;
+	}
+
+	private InvalidationMessage invalidation(MappedStatement ms, Object parameter) {
+		String id = ms.getId();
+		String name = id.substring(id.lastIndexOf('.') + 1);
+		InvalidationMessage invalidation = new InvalidationMessage(namespace(ms));
+		if (ms.getCache() != null && ms.getCache().getId().equals(namespace(ms)) && !ms.isFlushCacheRequired()) {
+			if (KEY_WRITES.contains(name)) {
+				invalidation.addIds(ids(parameter));
+				return invalidation;
+			}
+			if (INSERTS.contains(name)) {
+				invalidation.insert();
+				return invalidation;
+			}
+			if (UPSERTS.contains(name)) {
+				invalidation.addIds(ids(parameter));
+				invalidation.insert();
+				return invalidation;
+			}
+		}
+		invalidation.clear();
+		return invalidation;
+	}
+
+	private static String namespace(MappedStatement ms) {
+		String id = ms.getId();
+		return id.substring(0, id.lastIndexOf('.'));
+	}
+
+	/**
+	 * 从参数中取出主键：单个主键、实体对象，或包含主键/实体对象的List
+	 */
+	private Collection<Object> ids(Object parameter) {
+		List<Object> ids = new ArrayList<Object>();
+		Object value = parameter;
+		if (parameter instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) parameter;
+			value = map.containsKey("list") ? map.get("list") : map.get("param1");
+		}
+		if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				addId(ids, element);
+			}
+		} else {
+			addId(ids, value);
+		}
+		return ids;
+	}
+
+	private void addId(List<Object> ids, Object value) {
+		if (value == null) {
+			return;
+		}
+		MetaObject metaObject = SystemMetaObject.forObject(value);
+		if (metaObject.hasGetter(idProperty) && !(value instanceof Map)) {
+			value = metaObject.getValue(idProperty);
+		}
+		if (value != null) {
+			ids.add(value);
+		}
+	}
+
+	/**
+	 * 登记SqlSessionFactory的Configuration中的BoundedNearCache，需在解析Mapper XML之后调用
+	 */
+	public void addConfiguration(Configuration configuration) {
+		BoundedNearCache.register(configuration);
+		configurations.add(configuration);
+	}
+
+	/**
+	 * 移除登记的缓存，在SqlSessionFactory关闭时调用
+	 */
+	public void close() {
+		for (Configuration configuration : configurations) {
+			BoundedNearCache.unregister(configuration);
+		}
+		configurations.clear();
+	}
+
+	/**
+	 * 一个Executor（SqlSession）中尚未提交的清除操作，Executor只属于一个Configuration
+	 */
+	private static class PendingInvalidations {
+		final Configuration configuration;
+		final List<InvalidationMessage> messages = new ArrayList<InvalidationMessage>();
+
+		PendingInvalidations(Configuration configuration) {
+			this.configuration = configuration;
+		}
+	}
+
+	@Override
+	public Object plugin(Object target) {
+		return Plugin.wrap(target, this);
+	}
+
+	@Override
+	public void setProperties(Properties properties) {
+		String value = properties.getProperty("idProperty");
+		if (value != null) {
+			idProperty = value;
+		}
+	}
+
+	public void setIdProperty(String idProperty) {
+		this.idProperty = idProperty;
+	}
+
+	public InvalidationBus getInvalidationBus() {
+		return invalidationBus;
+	}
+
+	public void setInvalidationBus(InvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
+}
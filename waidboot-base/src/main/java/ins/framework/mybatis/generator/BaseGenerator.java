@@ -184,8 +184,45 @@ abstract class BaseGenerator {
 		return sb.toString();
 	}
 
+	/**
+	 * 当前数据库是否为ORACLE
+	 *
+	 * @return
+	 */
+	protected boolean isOracle() {
+		return database.getProductName().toLowerCase().contains("oracle");
+	}
+
+	/**
+	 * 当前数据库是否为MySQL或MariaDB
+	 *
+	 * @return
+	 */
+	protected boolean isMysql() {
+		String productName = database.getProductName().toLowerCase();
+		return productName.contains("mysql") || productName.contains("mariadb");
+	}
+
+	/**
+	 * 当前数据库是否为PostgreSQL
+	 *
+	 * @return
+	 */
+	protected boolean isPostgresql() {
+		return database.getProductName().toLowerCase().contains("postgresql");
+	}
+
+	/**
+	 * 当前数据库是否为H2
+	 *
+	 * @return
+	 */
+	protected boolean isH2() {
+		return database.getProductName().toLowerCase().contains("h2");
+	}
+
 	protected String processType(String type) {
-		if (database.getProductName().toLowerCase().contains("oracle")) {
+		if (isOracle()) {
 			return oracleProcessType(type);
 		}
 		return mysqlProcessType(type);
@@ -7,6 +7,6 @@ package ins.framework.mybatis.generator;
  *
  */
 public enum GenType {
-	VO, PO, DAO, BASE_MAPPER_XML, MAPPER_XML
+	VO, PO, CONVERTER, DAO, BASE_MAPPER_XML, MAPPER_XML
 
 }
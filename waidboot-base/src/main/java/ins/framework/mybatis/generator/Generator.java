@@ -11,6 +11,7 @@ import java.util.List;
 public class Generator extends BaseGenerator {
 	private GenFileInfo voInfo;
 	private GenFileInfo poInfo;
+	private GenFileInfo converterInfo;
 	private GenFileInfo daoInfo;
 	private GenFileInfo baseMapperXmlInfo;
 	private GenFileInfo mapperXmlInfo;
@@ -45,6 +46,11 @@ public class Generator extends BaseGenerator {
 		packageName = assemblePackage("po", module);
 		path = getFilePath(saveDir, getPathFromPackageName(packageName));
 		poInfo = new GenFileInfo(name, packageName, path);
+		// Converter
+		name = beanName + "Converter";
+		packageName = assemblePackage("converter", module);
+		path = getFilePath(saveDir, getPathFromPackageName(packageName));
+		converterInfo = new GenFileInfo(name, packageName, path);
 
 		// Dao
 		name = beanName + "Dao";
@@ -94,6 +100,10 @@ public class Generator extends BaseGenerator {
 		if (containsGenType(GenType.PO) && validFile(poInfo.getPath(), poInfo.getName(), JAVA_SUFFIX)) {
 			buildPo(table);
 		}
+		if (containsGenType(GenType.CONVERTER)
+				&& validFile(converterInfo.getPath(), converterInfo.getName(), JAVA_SUFFIX)) {
+			buildConverter(table);
+		}
 
 		fileOvervide = false;
 		if (containsGenType(GenType.DAO) && validFile(daoInfo.getPath(), daoInfo.getName(), JAVA_SUFFIX)) {
@@ -262,6 +272,125 @@ public class Generator extends BaseGenerator {
 		System.out.println("Generate VO file " + beanFile.getAbsolutePath());
 	}
 
+	/**
+	 * 生成PO与VO的转换类，逐个字段调用getter/setter，不使用反射
+	 *
+	 * @param table
+	 *            table
+	 */
+	protected void buildConverter(Table table) throws IOException {
+		String po = poInfo.getName();
+		String vo = voInfo.getName();
+		File converterFile = new File(converterInfo.getPath(), converterInfo.getName() + ".java");
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(converterFile), "utf-8"));
+		bw.write("package " + converterInfo.getPackageName() + ";");
+		bw.newLine();
+		bw.newLine();
+		bw.write("import java.util.ArrayList;");
+		bw.newLine();
+		bw.write("import java.util.List;");
+		bw.newLine();
+		bw.newLine();
+		bw.write("import " + poInfo.getPackageName() + "." + po + ";");
+		bw.newLine();
+		bw.write("import " + voInfo.getPackageName() + "." + vo + ";");
+		bw.newLine();
+		bw.newLine();
+		bw.write("import ins.framework.mybatis.Page;");
+		bw.newLine();
+		bw = buildClassComment(bw, "通过ins-framework-mybatis工具自动生成，请勿手工修改。表" + table.getName() + "的PO与VO转换类<br/>",
+				"直接调用getter/setter复制字段，参数为null时返回null");
+		bw.newLine();
+		bw.write("public final class " + converterInfo.getName() + " {");
+		bw.newLine();
+		bw.newLine();
+		bw.write("\tprivate " + converterInfo.getName() + "() {");
+		bw.newLine();
+		bw.write("\t}");
+		bw.newLine();
+		List<Column> columns = table.getColumns();
+		buildConverterMethod(bw, "toVo", po, vo, columns);
+		buildConverterMethod(bw, "toPo", vo, po, columns);
+		buildConverterListMethod(bw, "toVoList", "toVo", po, vo);
+		buildConverterListMethod(bw, "toPoList", "toPo", vo, po);
+		bw.newLine();
+		bw.write("\tpublic static Page<" + vo + "> toVoPage(Page<" + po + "> source) {");
+		bw.newLine();
+		bw.write("\t\tif (source == null) {");
+		bw.newLine();
+		bw.write("\t\t\treturn null;");
+		bw.newLine();
+		bw.write("\t\t}");
+		bw.newLine();
+		bw.write("\t\tPage<" + vo + "> target = new Page<" + vo + ">(toVoList(source), source.getPaginator());");
+		bw.newLine();
+		bw.write("\t\ttarget.setNextPageToken(source.getNextPageToken());");
+		bw.newLine();
+		bw.write("\t\ttarget.setCountStrategy(source.getCountStrategy());");
+		bw.newLine();
+		bw.write("\t\ttarget.setTotalCountTruncated(source.isTotalCountTruncated());");
+		bw.newLine();
+		bw.write("\t\treturn target;");
+		bw.newLine();
+		bw.write("\t}");
+		bw.newLine();
+		bw.write("}");
+		bw.newLine();
+		bw.flush();
+		bw.close();
+		System.out.println("Generate Converter file " + converterFile.getAbsolutePath());
+	}
+
+	private void buildConverterMethod(BufferedWriter bw, String method, String from, String to, List<Column> columns)
+			throws IOException {
+		bw.newLine();
+		bw.write("\tpublic static " + to + " " + method + "(" + from + " source) {");
+		bw.newLine();
+		bw.write("\t\tif (source == null) {");
+		bw.newLine();
+		bw.write("\t\t\treturn null;");
+		bw.newLine();
+		bw.write("\t\t}");
+		bw.newLine();
+		bw.write("\t\t" + to + " target = new " + to + "();");
+		bw.newLine();
+		for (Column column : columns) {
+			String field = processField(column.getName());
+			String property = field.substring(0, 1).toUpperCase() + field.substring(1);
+			bw.write("\t\ttarget.set" + property + "(source.get" + property + "());");
+			bw.newLine();
+		}
+		bw.write("\t\treturn target;");
+		bw.newLine();
+		bw.write("\t}");
+		bw.newLine();
+	}
+
+	private void buildConverterListMethod(BufferedWriter bw, String method, String elementMethod, String from,
+			String to) throws IOException {
+		bw.newLine();
+		bw.write("\tpublic static List<" + to + "> " + method + "(List<" + from + "> source) {");
+		bw.newLine();
+		bw.write("\t\tif (source == null) {");
+		bw.newLine();
+		bw.write("\t\t\treturn null;");
+		bw.newLine();
+		bw.write("\t\t}");
+		bw.newLine();
+		bw.write("\t\tList<" + to + "> target = new ArrayList<" + to + ">(source.size());");
+		bw.newLine();
+		bw.write("\t\tfor (" + from + " element : source) {");
+		bw.newLine();
+		bw.write("\t\t\ttarget.add(" + elementMethod + "(element));");
+		bw.newLine();
+		bw.write("\t\t}");
+		bw.newLine();
+		bw.write("\t\treturn target;");
+		bw.newLine();
+		bw.write("\t}");
+		bw.newLine();
+	}
+
 	/**
 	 * 构建Mapper文件
 	 *
@@ -342,9 +471,15 @@ public class Generator extends BaseGenerator {
 		bw.newLine();
 		bw.write("<mapper namespace=\"" + daoInfo.getPackageName() + "." + daoInfo.getName() + "\">");
 		bw.newLine();
-		bw.write("\t<!-- 默认开启二级缓存,使用Least Recently Used（LRU，最近最少使用的）算法来收回 -->");
+		bw.write("\t<!-- 默认开启二级缓存,使用W-TinyLFU算法按记录数收回，按主键的写操作提交后只清除受影响的记录，60秒后过期 -->");
 		bw.newLine();
-		bw.write("\t<cache/>");
+		bw.write("\t<cache type=\"ins.framework.mybatis.cache.BoundedNearCache\">");
+		bw.newLine();
+		bw.write("\t\t<property name=\"maxWeight\" value=\"10000\"/>");
+		bw.newLine();
+		bw.write("\t\t<property name=\"ttlMillis\" value=\"60000\"/>");
+		bw.newLine();
+		bw.write("\t</cache>");
 		bw.newLine();
 		/*
 		 * 下面开始写SqlMapper中的方法
@@ -356,16 +491,26 @@ public class Generator extends BaseGenerator {
 		buildBaseDaoSQL_Base_Column_List(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_Base_Select_By_Entity_Where(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_Base_Select_By_Entity(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_Projection_Column_List(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_Projection_Select_By_Entity_Where(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_SelectByPrimaryKey(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_SelectBatchByPrimaryKeys(bw, table, primaryKey, columns);
 //		buildBaseDaoSQL_SelectOne(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_SelectPage(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_SelectPageColumns(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_SelectCursor(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_StreamByEntity(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_SelectColumnar(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_DeleteByPrimaryKey(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_DeleteBatchByPrimaryKeys(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_Insert(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_InsertSelective(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_InsertBatch(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_UpdateSelectiveByPrimaryKey(bw, table, primaryKey, columns);
 		buildBaseDaoSQL_UpdateByPrimaryKey(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_UpdateBatchByPrimaryKey(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_Upsert(bw, table, primaryKey, columns);
+		buildBaseDaoSQL_UpsertBatch(bw, table, primaryKey, columns);
 
 		bw.write("</mapper>");
 		bw.flush();
@@ -511,6 +656,78 @@ public class Generator extends BaseGenerator {
 		bw.newLine();
 	}
 
+	/**
+	 * 按属性名选择的查询结果列，只允许本表的列，未知的属性名被忽略，总是包含主键；每列按表中的顺序判断是否在columns中，重复的属性名只查询一次
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_Projection_Column_List(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按属性名选择的查询结果列（只允许本表的列，总是包含主键，按表中的顺序每列只出现一次） -->");
+		bw.newLine();
+		bw.write("\t<sql id=\"Projection_Column_List\">");
+		bw.newLine();
+		bw.write("\t\t " + primaryKey.getColumnName());
+		if (primaryKey.getColumnName().contains("_")) {
+			bw.write(" AS " + processField(primaryKey.getColumnName()));
+		}
+		bw.newLine();
+		bw.write("\t\t<if test=\"columns != null\">");
+		bw.newLine();
+		for (Column column : columns) {
+			if (column.getName().equalsIgnoreCase(primaryKey.getColumnName())) {
+				continue;
+			}
+			bw.write("\t\t\t<if test='\"" + processField(column.getName()) + "\" in columns'>, " + column.getName());
+			if (column.getName().contains("_")) {
+				bw.write(" AS " + processField(column.getName()));
+			}
+			bw.write("</if>");
+			bw.newLine();
+		}
+		bw.write("\t\t</if>");
+		bw.newLine();
+		bw.write("\t</sql>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 按列查询时的WHERE部分，查询条件为参数entity
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_Projection_Select_By_Entity_Where(BufferedWriter bw, Table table,
+			PrimaryKey primaryKey, List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按列查询记录的WHERE部分（条件为参数entity） -->");
+		bw.newLine();
+		bw.write("\t<sql id=\"Projection_Select_By_Entity_Where\">");
+		bw.newLine();
+		bw.write("\t\t<if test=\"entity != null\" >");
+		bw.newLine();
+		for (Column column : columns) {
+			bw.write("\t\t\t<if test=\"entity." + processField(column.getName()) + " != null\" >");
+			bw.newLine();
+			bw.write("\t\t\t\tand " + column.getName() + " = #{entity." + processField(column.getName()) + "}");
+			bw.newLine();
+			bw.write("\t\t\t</if>");
+			bw.newLine();
+		}
+		bw.write("\t\t</if>");
+		bw.newLine();
+		bw.write("\t</sql>");
+		bw.newLine();
+		bw.newLine();
+	}
+
 	protected void buildBaseDaoSQL_SelectByPrimaryKey(BufferedWriter bw, Table table, PrimaryKey primaryKey,
 			List<Column> columns) throws IOException {
 		bw.write("\t<!-- 按主键查询一条记录 -->");
@@ -583,11 +800,106 @@ public class Generator extends BaseGenerator {
 		bw.newLine();
 	}
 
+	/**
+	 * 按对象查询一页记录，只查询指定的列，结果对象中其余属性为null
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_SelectPageColumns(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按对象查询一页记录（只查询指定的列） -->");
+		bw.newLine();
+		bw.write("\t<select id=\"selectPageColumns\" resultMap=\"BaseResultMap\" parameterType=\"map\">");
+		bw.newLine();
+		bw.write("\t\tselect");
+		bw.newLine();
+		bw.write("\t\t\t<include refid=\"Projection_Column_List\" />");
+		bw.newLine();
+		bw.write("\t\tfrom " + table.getName());
+		bw.newLine();
+		bw.write("\t\t<where>");
+		bw.newLine();
+		bw.write("\t\t\t<include refid=\"Projection_Select_By_Entity_Where\" />");
+		bw.newLine();
+		bw.write("\t\t</where>");
+		bw.newLine();
+		bw.write("\t</select>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 流式查询的fetchSize
+	 * <p>
+	 * MySQL驱动只有为Integer.MIN_VALUE时才逐行读取结果；其他数据库的驱动不接受负数，使用正数按批读取
+	 * （PostgreSQL需在事务中才按批读取）。
+	 * </p>
+	 */
+	protected String getStreamingFetchSize() {
+		return isMysql() ? String.valueOf(Integer.MIN_VALUE) : "1000";
+	}
+
+	protected void buildBaseDaoSQL_SelectCursor(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按对象游标查询记录（逐行读取，需在事务中遍历） -->");
+		bw.newLine();
+		bw.write("\t<select id=\"selectCursor\" resultMap=\"BaseResultMap\" parameterType=\"" + poInfo.getPackageName()
+				+ "." + poInfo.getName() + "\" fetchSize=\"" + getStreamingFetchSize() + "\" useCache=\"false\">");
+		bw.newLine();
+		bw.write("\t\t<include refid=\"Base_Select_By_Entity\" />");
+		bw.newLine();
+		bw.write("\t</select>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	protected void buildBaseDaoSQL_StreamByEntity(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按对象流式查询记录（逐行回调ResultHandler） -->");
+		bw.newLine();
+		bw.write("\t<select id=\"streamByEntity\" resultMap=\"BaseResultMap\" parameterType=\"" + poInfo.getPackageName()
+				+ "." + poInfo.getName() + "\" fetchSize=\"" + getStreamingFetchSize() + "\" useCache=\"false\">");
+		bw.newLine();
+		bw.write("\t\t<include refid=\"Base_Select_By_Entity\" />");
+		bw.newLine();
+		bw.write("\t</select>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 按列查询记录，由ColumnarResultSetInterceptor读入ColumnarPage
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_SelectColumnar(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 按对象按列查询记录（数值列为基本类型数组，字符串列字典编码） -->");
+		bw.newLine();
+		bw.write("\t<select id=\"selectColumnar\" resultType=\"ins.framework.mybatis.ColumnarPage\" parameterType=\""
+				+ poInfo.getPackageName() + "." + poInfo.getName() + "\" fetchSize=\"" + getStreamingFetchSize()
+				+ "\" useCache=\"false\">");
+		bw.newLine();
+		bw.write("\t\t<include refid=\"Base_Select_By_Entity\" />");
+		bw.newLine();
+		bw.write("\t</select>");
+		bw.newLine();
+		bw.newLine();
+	}
+
 	protected void buildBaseDaoSQL_DeleteByPrimaryKey(BufferedWriter bw, Table table, PrimaryKey primaryKey,
 			List<Column> columns) throws IOException {
 		bw.write("\t<!-- 按主键删除一条记录 -->");
 		bw.newLine();
-		bw.write("\t<delete id=\"deleteByPrimaryKey\" parameterType=\"map\">");
+		bw.write("\t<delete id=\"deleteByPrimaryKey\" parameterType=\"map\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tdelete from " + table.getName());
 		bw.newLine();
@@ -602,7 +914,7 @@ public class Generator extends BaseGenerator {
 			List<Column> columns) throws IOException {
 		bw.write("\t<!-- 按主键List删除多条记录 -->");
 		bw.newLine();
-		bw.write("\t<delete id=\"deleteBatchByPrimaryKeys\" parameterType=\"map\">");
+		bw.write("\t<delete id=\"deleteBatchByPrimaryKeys\" parameterType=\"map\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tdelete from " + table.getName());
 		bw.newLine();
@@ -632,7 +944,8 @@ public class Generator extends BaseGenerator {
 		int size = columns.size();
 		bw.write("\t<!-- 完整插入一条记录-->");
 		bw.newLine();
-		bw.write("\t<insert id=\"insert\" parameterType=\"" + poInfo.getPackageName() + "." + poInfo.getName() + "\">");
+		bw.write("\t<insert id=\"insert\" parameterType=\"" + poInfo.getPackageName() + "." + poInfo.getName()
+				+ "\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tinsert into " + table.getName() + " (");
 		for (int i = 0; i < size; i++) {
@@ -674,7 +987,7 @@ public class Generator extends BaseGenerator {
 		bw.write("\t<!-- 插入一条记录(为空的字段不操作) -->");
 		bw.newLine();
 		bw.write("\t<insert id=\"insertSelective\" parameterType=\"" + poInfo.getPackageName() + "." + poInfo.getName()
-				+ "\">");
+				+ "\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tinsert into " + table.getName() + "");
 		bw.newLine();
@@ -709,13 +1022,73 @@ public class Generator extends BaseGenerator {
 		bw.newLine();
 	}
 
+	/**
+	 * 批量插入多条记录，MYSQL等使用多行VALUES，ORACLE使用INSERT ALL
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_InsertBatch(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		int size = columns.size();
+		StringBuilder columnList = new StringBuilder();
+		StringBuilder valueList = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			Column column = columns.get(i);
+			columnList.append(column.getName());
+			valueList.append("#{item." + processField(column.getName()) + "}");
+			if (i != size - 1) {
+				columnList.append(", ");
+				valueList.append(", ");
+			}
+		}
+		bw.write("\t<!-- 批量插入多条记录 -->");
+		bw.newLine();
+		if (isOracle()) {
+			bw.write("\t<insert id=\"insertBatch\" parameterType=\"java.util.List\" flushCache=\"false\">");
+			bw.newLine();
+			bw.write("\t\tinsert all");
+			bw.newLine();
+			bw.write("\t\t<foreach item=\"item\" index=\"index\" collection=\"list\">");
+			bw.newLine();
+			bw.write("\t\t\tinto " + table.getName() + " (" + columnList + ")");
+			bw.newLine();
+			bw.write("\t\t\tvalues(" + valueList + ")");
+			bw.newLine();
+			bw.write("\t\t</foreach>");
+			bw.newLine();
+			bw.write("\t\tselect 1 from dual");
+			bw.newLine();
+		} else {
+			bw.write("\t<insert id=\"insertBatch\" parameterType=\"java.util.List\" useGeneratedKeys=\"true\" keyProperty=\""
+					+ processField(primaryKey.getColumnName()) + "\" flushCache=\"false\">");
+			bw.newLine();
+			bw.write("\t\tinsert into " + table.getName() + " (" + columnList + ")");
+			bw.newLine();
+			bw.write("\t\tvalues");
+			bw.newLine();
+			bw.write("\t\t<foreach item=\"item\" index=\"index\" collection=\"list\" separator=\",\">");
+			bw.newLine();
+			bw.write("\t\t\t(" + valueList + ")");
+			bw.newLine();
+			bw.write("\t\t</foreach>");
+			bw.newLine();
+		}
+		bw.write("\t</insert>");
+		bw.newLine();
+		bw.newLine();
+	}
+
 	protected void buildBaseDaoSQL_UpdateSelectiveByPrimaryKey(BufferedWriter bw, Table table, PrimaryKey primaryKey,
 			List<Column> columns) throws IOException {
 		int size = columns.size();
 		bw.write("\t<!-- 更新一条记录(为空的字段不操作) -->");
 		bw.newLine();
 		bw.write("\t<update id=\"updateSelectiveByPrimaryKey\" parameterType=\"" + poInfo.getPackageName() + "."
-				+ poInfo.getName() + "\">");
+				+ poInfo.getName() + "\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tupdate " + table.getName());
 		bw.newLine();
@@ -748,7 +1121,7 @@ public class Generator extends BaseGenerator {
 		bw.write("\t<!-- 完整更新一条记录 -->");
 		bw.newLine();
 		bw.write("\t<update id=\"updateByPrimaryKey\" parameterType=\"" + poInfo.getPackageName() + "."
-				+ poInfo.getName() + "\">");
+				+ poInfo.getName() + "\" flushCache=\"false\">");
 		bw.newLine();
 		bw.write("\t\tupdate " + table.getName());
 		bw.newLine();
@@ -773,4 +1146,213 @@ public class Generator extends BaseGenerator {
 		bw.newLine();
 		bw.newLine();
 	}
+
+	/**
+	 * 按主键批量更新多条记录，使用CASE WHEN在一条语句中完成
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_UpdateBatchByPrimaryKey(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		String idColumn = primaryKey.getColumnName();
+		String idField = processField(idColumn);
+		bw.write("\t<!-- 按主键List批量更新多条记录 -->");
+		bw.newLine();
+		bw.write("\t<update id=\"updateBatchByPrimaryKey\" parameterType=\"java.util.List\" flushCache=\"false\">");
+		bw.newLine();
+		bw.write("\t\tupdate " + table.getName());
+		bw.newLine();
+		bw.write("\t\t<trim prefix=\"set\" suffixOverrides=\",\" >");
+		bw.newLine();
+		for (Column column : columns) {
+			if (column.getName().equalsIgnoreCase(idColumn)) {
+				continue;
+			}
+			bw.write("\t\t\t" + column.getName() + " = case " + idColumn);
+			bw.newLine();
+			bw.write("\t\t\t<foreach item=\"item\" index=\"index\" collection=\"list\">");
+			bw.newLine();
+			bw.write("\t\t\t\twhen #{item." + idField + "} then #{item." + processField(column.getName()) + "}");
+			bw.newLine();
+			bw.write("\t\t\t</foreach>");
+			bw.newLine();
+			bw.write("\t\t\tend,");
+			bw.newLine();
+		}
+		bw.write("\t\t</trim>");
+		bw.newLine();
+		bw.write("\t\twhere " + idColumn + " in");
+		bw.newLine();
+		bw.write("\t\t<foreach item=\"item\" index=\"index\" collection=\"list\" open=\"(\" separator=\",\" close=\")\">");
+		bw.newLine();
+		bw.write("\t\t\t#{item." + idField + "}");
+		bw.newLine();
+		bw.write("\t\t</foreach>");
+		bw.newLine();
+		bw.write("\t</update>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 插入或更新一条记录，MYSQL使用INSERT ... ON DUPLICATE KEY UPDATE，PostgreSQL使用INSERT ... ON CONFLICT DO UPDATE，
+	 * ORACLE使用MERGE ... USING DUAL，H2使用MERGE ... KEY，其他数据库不支持
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_Upsert(BufferedWriter bw, Table table, PrimaryKey primaryKey, List<Column> columns)
+			throws IOException {
+		bw.write("\t<!-- 插入或更新一条记录(按主键) -->");
+		bw.newLine();
+		bw.write("\t<insert id=\"upsert\" parameterType=\"" + poInfo.getPackageName() + "." + poInfo.getName()
+				+ "\" flushCache=\"false\">");
+		bw.newLine();
+		writeUpsert(bw, table, primaryKey, columns, "");
+		bw.write("\t</insert>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 批量插入或更新多条记录，生成一条语句
+	 *
+	 * @param bw
+	 * @param table
+	 * @param primaryKey
+	 * @param columns
+	 * @throws IOException
+	 */
+	protected void buildBaseDaoSQL_UpsertBatch(BufferedWriter bw, Table table, PrimaryKey primaryKey,
+			List<Column> columns) throws IOException {
+		bw.write("\t<!-- 批量插入或更新多条记录(按主键) -->");
+		bw.newLine();
+		bw.write("\t<insert id=\"upsertBatch\" parameterType=\"java.util.List\" flushCache=\"false\">");
+		bw.newLine();
+		writeUpsert(bw, table, primaryKey, columns, "item.");
+		bw.write("\t</insert>");
+		bw.newLine();
+		bw.newLine();
+	}
+
+	/**
+	 * 写入upsert语句体，itemPrefix为空时是单条记录，为"item."时是批量
+	 */
+	private void writeUpsert(BufferedWriter bw, Table table, PrimaryKey primaryKey, List<Column> columns,
+			String itemPrefix) throws IOException {
+		if (!isOracle() && !isMysql() && !isPostgresql() && !isH2()) {
+			throw new IllegalStateException("upsert is not supported for database " + database.getProductName());
+		}
+		boolean batch = itemPrefix.length() > 0;
+		String idColumn = primaryKey.getColumnName();
+		StringBuilder columnList = new StringBuilder();
+		StringBuilder valueList = new StringBuilder();
+		StringBuilder sourceList = new StringBuilder();
+		StringBuilder sourceValueList = new StringBuilder();
+		List<String> updateColumns = new ArrayList<String>();
+		for (int i = 0; i < columns.size(); i++) {
+			Column column = columns.get(i);
+			String value = "#{" + itemPrefix + processField(column.getName()) + "}";
+			if (i > 0) {
+				columnList.append(", ");
+				valueList.append(", ");
+				sourceList.append(", ");
+				sourceValueList.append(", ");
+			}
+			columnList.append(column.getName());
+			valueList.append(value);
+			sourceList.append(value + " " + column.getName());
+			sourceValueList.append("s." + column.getName());
+			if (!column.getName().equalsIgnoreCase(idColumn)) {
+				updateColumns.add(column.getName());
+			}
+		}
+		if (isOracle()) {
+			bw.write("\t\tmerge into " + table.getName() + " t");
+			bw.newLine();
+			if (batch) {
+				bw.write("\t\tusing (");
+				bw.newLine();
+				bw.write("\t\t<foreach item=\"item\" index=\"index\" collection=\"list\" separator=\"union all\">");
+				bw.newLine();
+				bw.write("\t\t\tselect " + sourceList + " from dual");
+				bw.newLine();
+				bw.write("\t\t</foreach>");
+				bw.newLine();
+				bw.write("\t\t) s");
+			} else {
+				bw.write("\t\tusing (select " + sourceList + " from dual) s");
+			}
+			bw.newLine();
+			bw.write("\t\ton (t." + idColumn + " = s." + idColumn + ")");
+			bw.newLine();
+			if (!updateColumns.isEmpty()) {
+				bw.write("\t\twhen matched then update set ");
+				for (int i = 0; i < updateColumns.size(); i++) {
+					if (i > 0) {
+						bw.write(", ");
+					}
+					bw.write("t." + updateColumns.get(i) + " = s." + updateColumns.get(i));
+				}
+				bw.newLine();
+			}
+			bw.write("\t\twhen not matched then insert (" + columnList + ")");
+			bw.newLine();
+			bw.write("\t\t\tvalues(" + sourceValueList + ")");
+			bw.newLine();
+			return;
+		}
+		if (isH2()) {
+			bw.write("\t\tmerge into " + table.getName() + " (" + columnList + ") key (" + idColumn + ")");
+		} else {
+			bw.write("\t\tinsert into " + table.getName() + " (" + columnList + ")");
+		}
+		bw.newLine();
+		if (batch) {
+			bw.write("\t\tvalues");
+			bw.newLine();
+			bw.write("\t\t<foreach item=\"item\" index=\"index\" collection=\"list\" separator=\",\">");
+			bw.newLine();
+			bw.write("\t\t\t(" + valueList + ")");
+			bw.newLine();
+			bw.write("\t\t</foreach>");
+		} else {
+			bw.write("\t\tvalues(" + valueList + ")");
+		}
+		bw.newLine();
+		if (isPostgresql()) {
+			bw.write("\t\ton conflict (" + idColumn + ") do ");
+			if (updateColumns.isEmpty()) {
+				bw.write("nothing");
+			} else {
+				bw.write("update set ");
+				for (int i = 0; i < updateColumns.size(); i++) {
+					if (i > 0) {
+						bw.write(", ");
+					}
+					bw.write(updateColumns.get(i) + " = excluded." + updateColumns.get(i));
+				}
+			}
+			bw.newLine();
+		} else if (isMysql()) {
+			if (updateColumns.isEmpty()) {
+				updateColumns.add(idColumn);
+			}
+			bw.write("\t\ton duplicate key update ");
+			for (int i = 0; i < updateColumns.size(); i++) {
+				if (i > 0) {
+					bw.write(", ");
+				}
+				bw.write(updateColumns.get(i) + " = values(" + updateColumns.get(i) + ")");
+			}
+			bw.newLine();
+		}
+	}
 }
@@ -0,0 +1,34 @@
+package ins.framework.mybatis.shard;
+
+/**
+ * 按主键hash取模的分片策略
+ * <p>
+ * 对hashCode再做一次扰动，使连续的数值主键均匀分布到各分片；分片数变化后记录所在分片会变化，扩容时需要迁移数据
+ * </p>
+ *
+ * @param <I>
+ *            主键类型
+ */
+public class HashShardStrategy<I> implements ShardStrategy<I> {
+
+	@Override
+	public int shard(I id, int shardCount) {
+		if (id == null) {
+			throw new IllegalArgumentException("Shard key must not be null");
+		}
+		long hash = id instanceof Number ? ((Number) id).longValue() : id.hashCode();
+		return (int) Math.floorMod(mix(hash), (long) shardCount);
+	}
+
+	/**
+	 * MurmurHash3的64位finalizer
+	 */
+	static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
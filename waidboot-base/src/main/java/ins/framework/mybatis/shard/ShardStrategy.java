@@ -0,0 +1,21 @@
+package ins.framework.mybatis.shard;
+
+/**
+ * 分片策略：根据主键确定记录所在的分片
+ *
+ * @param <I>
+ *            主键类型
+ */
+public interface ShardStrategy<I> {
+
+	/**
+	 * 取得主键所在的分片
+	 *
+	 * @param id
+	 *            主键，不为空
+	 * @param shardCount
+	 *            分片数
+	 * @return 分片下标，0 ~ shardCount-1
+	 */
+	int shard(I id, int shardCount);
+}
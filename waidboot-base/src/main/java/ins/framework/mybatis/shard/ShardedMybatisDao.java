@@ -0,0 +1,574 @@
+package ins.framework.mybatis.shard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+import com.github.miemiedev.mybatis.paginator.domain.Paginator;
+
+import ins.framework.mybatis.ColumnarPage;
+import ins.framework.mybatis.MybatisBaseDao;
+import ins.framework.mybatis.MybatisBatchUtils;
+import ins.framework.mybatis.Page;
+import ins.framework.mybatis.PageParam;
+import ins.framework.mybatis.SeekToken;
+
+/**
+ * 按主键分片的Dao，每个分片为一个连接不同数据库的MybatisBaseDao
+ * <p>
+ * 按主键的操作路由到主键所在的分片；批量操作按分片拆分，查询在各分片上并行执行，按主键批量查询/删除在每个分片内
+ * 再通过{@link MybatisBatchUtils}按批次拆分；
+ * selectPage在各分片上并行查询前 offset+limit 条记录，按排序字段多路归并后取出当前页，总记录数为各分片之和。
+ * 未设置排序字段时各分片的结果按分片顺序拼接。
+ * </p>
+ * <p>
+ * 归并在Java中按排序字段的compareTo比较，与数据库的排序规则不完全一致：字符串按UTF-16编码逐字符比较，
+ * 与MySQL不区分大小写的排序规则（如utf8_general_ci）不同；null视为最小值，与MySQL升序时null在前一致，
+ * 其他数据库（如Oracle、PostgreSQL）升序时null在后。跨分片排序分页时应使用数值、日期等比较结果与数据库一致、
+ * 且不为null的字段，字符串字段需使用二进制排序规则（如utf8_bin）。
+ * </p>
+ * <p>
+ * 记录所在分片由主键决定，插入时主键不能为空（不能使用数据库自增主键），需由应用生成
+ * </p>
+ *
+ * @param <T>
+ *            PO对象
+ * @param <I>
+ *            主键类型
+ */
+public class ShardedMybatisDao<T, I> implements MybatisBaseDao<T, I> {
+
+	private final List<MybatisBaseDao<T, I>> shards;
+	private final ShardStrategy<I> shardStrategy;
+	private final String idProperty;
+	private final ExecutorService executor;
+
+	/**
+	 * @param shards
+	 *            各分片的Dao，顺序即分片下标
+	 * @param shardStrategy
+	 *            分片策略
+	 * @param idProperty
+	 *            PO对象中主键的属性名
+	 * @param executor
+	 *            并行查询各分片的线程池
+	 */
+	public ShardedMybatisDao(List<? extends MybatisBaseDao<T, I>> shards, ShardStrategy<I> shardStrategy,
+			String idProperty, ExecutorService executor) {
+		if (shards == null || shards.isEmpty()) {
+			throw new IllegalArgumentException("shards must not be empty");
+		}
+		this.shards = new ArrayList<MybatisBaseDao<T, I>>(shards);
+		this.shardStrategy = shardStrategy;
+		this.idProperty = idProperty;
+		this.executor = executor;
+	}
+
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * 取得主键所在分片的Dao
+	 */
+	public MybatisBaseDao<T, I> getShard(I id) {
+		return shards.get(shardStrategy.shard(id, shards.size()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private I getId(T entity) {
+		return (I) SystemMetaObject.forObject(entity).getValue(idProperty);
+	}
+
+	private MybatisBaseDao<T, I> getShardByEntity(T entity) {
+		I id = getId(entity);
+		if (id == null) {
+			throw new IllegalArgumentException("Sharded entity requires [" + idProperty + "]");
+		}
+		return getShard(id);
+	}
+
+	private Map<Integer, List<I>> groupIds(List<I> idList) {
+		Map<Integer, List<I>> groups = new TreeMap<Integer, List<I>>();
+		for (I id : idList) {
+			Integer shard = shardStrategy.shard(id, shards.size());
+			List<I> group = groups.get(shard);
+			if (group == null) {
+				group = new ArrayList<I>();
+				groups.put(shard, group);
+			}
+			group.add(id);
+		}
+		return groups;
+	}
+
+	private Map<Integer, List<T>> groupEntities(List<T> entityList) {
+		Map<Integer, List<T>> groups = new TreeMap<Integer, List<T>>();
+		for (T entity : entityList) {
+			I id = getId(entity);
+			if (id == null) {
+				throw new IllegalArgumentException("Sharded entity requires [" + idProperty + "]");
+			}
+			Integer shard = shardStrategy.shard(id, shards.size());
+			List<T> group = groups.get(shard);
+			if (group == null) {
+				group = new ArrayList<T>();
+				groups.put(shard, group);
+			}
+			group.add(entity);
+		}
+		return groups;
+	}
+
+	/**
+	 * 并行执行各分片的查询，只有一个任务时在调用线程中执行
+	 */
+	private <R> List<R> invokeAll(List<Callable<R>> tasks) {
+		try {
+			if (tasks.size() == 1) {
+				return Collections.singletonList(tasks.get(0).call());
+			}
+			List<R> results = new ArrayList<R>(tasks.size());
+			for (Future<R> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			throw propagate(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while querying shards", e);
+		} catch (Exception e) {
+			throw propagate(e);
+		}
+	}
+
+	private static RuntimeException propagate(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e.getMessage(), e);
+	}
+
+	@Override
+	public int insert(T entity) {
+		return getShardByEntity(entity).insert(entity);
+	}
+
+	@Override
+	public int insertSelective(T entity) {
+		return getShardByEntity(entity).insertSelective(entity);
+	}
+
+	@Override
+	public int insertBatch(List<T> entityList) {
+		int count = 0;
+		for (Map.Entry<Integer, List<T>> group : groupEntities(entityList).entrySet()) {
+			count += shards.get(group.getKey()).insertBatch(group.getValue());
+		}
+		return count;
+	}
+
+	@Override
+	public int deleteByPrimaryKey(I id) {
+		return getShard(id).deleteByPrimaryKey(id);
+	}
+
+	@Override
+	public int deleteBatchByPrimaryKeys(List<I> idList) {
+		int count = 0;
+		for (Map.Entry<Integer, List<I>> group : groupIds(idList).entrySet()) {
+			count += MybatisBatchUtils.deleteBatchByPrimaryKeys(shards.get(group.getKey()), group.getValue());
+		}
+		return count;
+	}
+
+	@Override
+	public int updateByPrimaryKey(T entity) {
+		return getShardByEntity(entity).updateByPrimaryKey(entity);
+	}
+
+	@Override
+	public int updateSelectiveByPrimaryKey(T entity) {
+		return getShardByEntity(entity).updateSelectiveByPrimaryKey(entity);
+	}
+
+	@Override
+	public int updateBatchByPrimaryKey(List<T> entityList) {
+		int count = 0;
+		for (Map.Entry<Integer, List<T>> group : groupEntities(entityList).entrySet()) {
+			count += shards.get(group.getKey()).updateBatchByPrimaryKey(group.getValue());
+		}
+		return count;
+	}
+
+	@Override
+	public int upsert(T entity) {
+		return getShardByEntity(entity).upsert(entity);
+	}
+
+	@Override
+	public int upsertBatch(List<T> entityList) {
+		int count = 0;
+		for (Map.Entry<Integer, List<T>> group : groupEntities(entityList).entrySet()) {
+			count += shards.get(group.getKey()).upsertBatch(group.getValue());
+		}
+		return count;
+	}
+
+	@Override
+	public T selectByPrimaryKey(I id) {
+		return getShard(id).selectByPrimaryKey(id);
+	}
+
+	/**
+	 * 各分片并行查询，每个分片内按批次依次执行；结果按各分片的顺序拼接，分片内按传入的主键顺序排列
+	 */
+	@Override
+	public List<T> selectBatchByPrimaryKeys(List<I> idList) {
+		List<Callable<List<T>>> tasks = new ArrayList<Callable<List<T>>>();
+		for (final Map.Entry<Integer, List<I>> group : groupIds(idList).entrySet()) {
+			tasks.add(new Callable<List<T>>() {
+				public List<T> call() throws Exception {
+					return MybatisBatchUtils.selectBatchByPrimaryKeys(shards.get(group.getKey()), group.getValue(),
+							idProperty);
+				}
+			});
+		}
+		List<T> result = new ArrayList<T>(idList.size());
+		if (tasks.isEmpty()) {
+			return result;
+		}
+		for (List<T> rows : invokeAll(tasks)) {
+			result.addAll(rows);
+		}
+		return result;
+	}
+
+	@Override
+	public Page<T> selectPage(PageParam pageParam, T entity) {
+		return selectPage(pageParam, entity, null);
+	}
+
+	@Override
+	public Page<T> selectPageColumns(PageParam pageParam, T entity, String... columns) {
+		return selectPage(pageParam, entity, columns == null ? new String[0] : columns);
+	}
+
+	/**
+	 * columns为null时查询所有列
+	 */
+	private Page<T> selectPage(PageParam pageParam, final T entity, final String[] columns) {
+		I id = entity == null ? null : getId(entity);
+		if (id != null) {
+			return selectPage(getShard(id), pageParam, entity, columns);
+		}
+		List<Order> orders = pageParam.getOrders();
+		int limit = pageParam.getLimit();
+		boolean paged = limit != RowBounds.NO_ROW_LIMIT;
+		final PageParam shardParam;
+		if (pageParam.isSeek()) {
+			shardParam = new PageParam(PageParam.NO_PAGE, limit, orders, pageParam.isContainsTotalCount());
+			shardParam.setSeek(true);
+			shardParam.setSeekValues(pageParam.getSeekValues());
+		} else if (paged) {
+			shardParam = new PageParam(1, pageParam.getOffset() + limit, orders, pageParam.isContainsTotalCount());
+		} else {
+			shardParam = new PageParam(orders);
+		}
+		shardParam.setCountCap(pageParam.getCountCap());
+		shardParam.setCountStrategy(pageParam.getCountStrategy());
+		shardParam.setAsyncTotalCount(pageParam.getAsyncTotalCount());
+
+		List<Callable<Page<T>>> tasks = new ArrayList<Callable<Page<T>>>(shards.size());
+		for (final MybatisBaseDao<T, I> shard : shards) {
+			tasks.add(new Callable<Page<T>>() {
+				public Page<T> call() throws Exception {
+					return selectPage(shard, shardParam, entity, columns);
+				}
+			});
+		}
+		List<Page<T>> shardPages = invokeAll(tasks);
+
+		int from = pageParam.isSeek() || !paged ? 0 : pageParam.getOffset();
+		int to = paged ? from + limit : Integer.MAX_VALUE;
+		List<T> rows = merge(shardPages, orders, from, to);
+
+		Paginator paginator = sumPaginator(shardPages, pageParam);
+		Page<T> page = paginator == null ? new Page<T>(rows) : new Page<T>(rows, paginator);
+		for (Page<T> shardPage : shardPages) {
+			if (shardPage.getPaginator() != null) {
+				page.setCountStrategy(shardPage.getCountStrategy());
+				page.setTotalCountTruncated(page.isTotalCountTruncated() || shardPage.isTotalCountTruncated());
+			}
+		}
+		if (pageParam.isSeek() && paged && rows.size() >= limit) {
+			page.setNextPageToken(SeekToken.encode(sortKey(rows.get(rows.size() - 1), orders)));
+		}
+		return page;
+	}
+
+	private Page<T> selectPage(MybatisBaseDao<T, I> shard, PageParam pageParam, T entity, String[] columns) {
+		return columns == null ? shard.selectPage(pageParam, entity)
+				: shard.selectPageColumns(pageParam, entity, columns);
+	}
+
+	private Paginator sumPaginator(List<Page<T>> shardPages, PageParam pageParam) {
+		int totalCount = 0;
+		for (Page<T> shardPage : shardPages) {
+			if (shardPage.getPaginator() == null) {
+				return null;
+			}
+			totalCount += shardPage.getPaginator().getTotalCount();
+		}
+		return new Paginator(pageParam.getPage(), pageParam.getLimit(), totalCount);
+	}
+
+	/**
+	 * 按排序字段多路归并各分片已排序的结果，取出第from ~ to-1条
+	 */
+	static <T> List<T> merge(List<? extends List<T>> sortedLists, final List<Order> orders, int from, int to) {
+		List<T> result = new ArrayList<T>();
+		if (orders == null || orders.isEmpty()) {
+			int index = 0;
+			for (List<T> rows : sortedLists) {
+				for (T row : rows) {
+					if (index >= to) {
+						return result;
+					}
+					if (index++ >= from) {
+						result.add(row);
+					}
+				}
+			}
+			return result;
+		}
+		PriorityQueue<MergeSource<T>> queue = new PriorityQueue<MergeSource<T>>(Math.max(sortedLists.size(), 1));
+		for (List<T> rows : sortedLists) {
+			MergeSource<T> source = new MergeSource<T>(rows.iterator(), orders);
+			if (source.advance()) {
+				queue.add(source);
+			}
+		}
+		int index = 0;
+		while (!queue.isEmpty() && index < to) {
+			MergeSource<T> source = queue.poll();
+			if (index++ >= from) {
+				result.add(source.row);
+			}
+			if (source.advance()) {
+				queue.add(source);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 取出记录中排序字段的值，排序字段为列名时按驼峰规则查找属性
+	 */
+	static Object[] sortKey(Object row, List<Order> orders) {
+		MetaObject metaObject = SystemMetaObject.forObject(row);
+		Object[] key = new Object[orders.size()];
+		for (int i = 0; i < orders.size(); i++) {
+			String column = orders.get(i).getProperty();
+			String property = metaObject.findProperty(column, true);
+			key[i] = metaObject.getValue(property == null ? column : property);
+		}
+		return key;
+	}
+
+	/**
+	 * 比较两条记录的排序字段值，null小于任何值，其他值使用compareTo比较，见类说明中与数据库排序规则的差异
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static int compareKeys(Object[] a, Object[] b, List<Order> orders) {
+		for (int i = 0; i < orders.size(); i++) {
+			int c;
+			if (a[i] == b[i]) {
+				c = 0;
+			} else if (a[i] == null) {
+				c = -1;
+			} else if (b[i] == null) {
+				c = 1;
+			} else {
+				c = ((Comparable) a[i]).compareTo(b[i]);
+			}
+			if (c != 0) {
+				return orders.get(i).getDirection() == Order.Direction.DESC ? -c : c;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 归并时的一路数据源，比较时使用预先取出的排序字段值
+	 */
+	static class MergeSource<T> implements Comparable<MergeSource<T>> {
+		final Iterator<T> iterator;
+		final List<Order> orders;
+		T row;
+		Object[] key;
+
+		MergeSource(Iterator<T> iterator, List<Order> orders) {
+			this.iterator = iterator;
+			this.orders = orders;
+		}
+
+		boolean advance() {
+			if (!iterator.hasNext()) {
+				return false;
+			}
+			row = iterator.next();
+			key = sortKey(row, orders);
+			return true;
+		}
+
+		@Override
+		public int compareTo(MergeSource<T> other) {
+			return compareKeys(key, other.key, orders);
+		}
+	}
+
+	@Override
+	public ColumnarPage selectColumnar(final T entity) {
+		I id = entity == null ? null : getId(entity);
+		if (id != null) {
+			return getShard(id).selectColumnar(entity);
+		}
+		List<Callable<ColumnarPage>> tasks = new ArrayList<Callable<ColumnarPage>>(shards.size());
+		for (final MybatisBaseDao<T, I> shard : shards) {
+			tasks.add(new Callable<ColumnarPage>() {
+				public ColumnarPage call() throws Exception {
+					return shard.selectColumnar(entity);
+				}
+			});
+		}
+		return ColumnarPage.concat(invokeAll(tasks));
+	}
+
+	@Override
+	public Cursor<T> selectCursor(T entity) {
+		I id = entity == null ? null : getId(entity);
+		if (id != null) {
+			return getShard(id).selectCursor(entity);
+		}
+		return new ShardCursor<T>(shards, entity);
+	}
+
+	@Override
+	public void streamByEntity(T entity, ResultHandler<T> resultHandler) {
+		I id = entity == null ? null : getId(entity);
+		if (id != null) {
+			getShard(id).streamByEntity(entity, resultHandler);
+			return;
+		}
+		for (MybatisBaseDao<T, I> shard : shards) {
+			shard.streamByEntity(entity, resultHandler);
+		}
+	}
+
+	/**
+	 * 依次遍历各分片的游标，前一个分片遍历完成后才打开下一个分片的游标
+	 */
+	static class ShardCursor<T> implements Cursor<T> {
+		private final List<? extends MybatisBaseDao<T, ?>> shards;
+		private final T entity;
+		private int shardIndex;
+		private Cursor<T> current;
+		private Iterator<T> currentIterator;
+		private int index = -1;
+		private boolean iteratorRetrieved;
+		private boolean closed;
+
+		ShardCursor(List<? extends MybatisBaseDao<T, ?>> shards, T entity) {
+			this.shards = shards;
+			this.entity = entity;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !closed;
+		}
+
+		@Override
+		public boolean isConsumed() {
+			return shardIndex >= shards.size() && current == null;
+		}
+
+		@Override
+		public int getCurrentIndex() {
+			return index;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			if (iteratorRetrieved) {
+				throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+			}
+			iteratorRetrieved = true;
+			return new Iterator<T>() {
+				public boolean hasNext() {
+					while (!closed && (currentIterator == null || !currentIterator.hasNext())) {
+						closeCurrent();
+						if (shardIndex >= shards.size()) {
+							return false;
+						}
+						current = shards.get(shardIndex++).selectCursor(entity);
+						currentIterator = current.iterator();
+					}
+					return !closed;
+				}
+
+				public T next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					index++;
+					return currentIterator.next();
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException("Cannot remove element from Cursor");
+				}
+			};
+		}
+
+		private void closeCurrent() {
+			if (current != null) {
+				try {
+					current.close();
+				} catch (IOException e) {
+					throw new IllegalStateException("Close shard cursor failed", e);
+				}
+				current = null;
+				currentIterator = null;
+			}
+		}
+
+		@Override
+		public void close() {
+			closeCurrent();
+			closed = true;
+		}
+	}
+}
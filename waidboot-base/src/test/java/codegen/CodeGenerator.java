@@ -26,10 +26,11 @@ public class CodeGenerator {
 		gc.setDbSchema("myframework1");
 		gc.setDbPassword("wydwyd");
 		gc.setDbUrl("jdbc:mysql://localhost:3306/myframework1?useUnicode=true&characterEncoding=utf-8&useSSL=false");
-		// 生成PO\VO（自动覆盖）、BaseMapperXML（覆盖）、Dao（不覆盖）、MapperXML（不覆盖）
+		// 生成PO\VO（自动覆盖）、Converter（覆盖）、BaseMapperXML（覆盖）、Dao（不覆盖）、MapperXML（不覆盖）
 		// 支持生成的文件类型
 		gc.setGenTypes(
-				new GenType[] { GenType.VO, GenType.PO, GenType.DAO, GenType.BASE_MAPPER_XML, GenType.MAPPER_XML });
+				new GenType[] { GenType.VO, GenType.PO, GenType.CONVERTER, GenType.DAO, GenType.BASE_MAPPER_XML,
+						GenType.MAPPER_XML });
 		Generator generator = new Generator();
 		generator.setGenConfig(gc);
 		generator.setParamList(paramList);
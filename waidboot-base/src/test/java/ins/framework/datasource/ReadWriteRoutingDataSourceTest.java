@@ -0,0 +1,96 @@
+package ins.framework.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ins.framework.mybatis.H2Support;
+
+public class ReadWriteRoutingDataSourceTest {
+
+	private static final long STICKY_MILLIS = 100;
+
+	private PooledDataSource writer;
+	private PooledDataSource replica;
+	private ReadWriteRoutingDataSource routingDataSource;
+
+	@Before
+	public void setUp() throws Exception {
+		writer = H2Support.userinfoDataSource("routingWriter");
+		replica = H2Support.userinfoDataSource("routingReplica");
+		routingDataSource = new ReadWriteRoutingDataSource("test", writer);
+		routingDataSource.addReplica("replica1", replica, 1);
+		routingDataSource.afterPropertiesSet();
+		ReadWriteRoutingContext.setStickyMillis(STICKY_MILLIS);
+		ReadWriteRoutingContext.clear();
+	}
+
+	@After
+	public void tearDown() {
+		ReadWriteRoutingContext.clear();
+		ReadWriteRoutingContext.setStickyMillis(ReadWriteRoutingContext.DEFAULT_STICKY_MILLIS);
+		routingDataSource.close();
+		writer.forceCloseAll();
+		replica.forceCloseAll();
+	}
+
+	/**
+	 * 事务外的读操作使用从库，其他操作使用主库
+	 */
+	@Test
+	public void readsOutsideTransactionUseReplica() {
+		assertEquals(ReadWriteRoutingDataSource.WRITER, routingDataSource.determineCurrentLookupKey());
+		ReadWriteRoutingContext.setRead(true);
+		assertEquals("replica1", routingDataSource.determineCurrentLookupKey());
+	}
+
+	/**
+	 * 写操作后的读操作使用主库，超过时间后恢复使用从库，没有请求结束时的清除也不会一直使用主库
+	 */
+	@Test
+	public void writeStickinessExpires() throws Exception {
+		ReadWriteRoutingContext.setRead(true);
+		ReadWriteRoutingContext.markWritten();
+		assertTrue(ReadWriteRoutingContext.isWritten());
+		assertEquals(ReadWriteRoutingDataSource.WRITER, routingDataSource.determineCurrentLookupKey());
+
+		Thread.sleep(STICKY_MILLIS * 2);
+		assertFalse(ReadWriteRoutingContext.isWritten());
+		assertEquals("replica1", routingDataSource.determineCurrentLookupKey());
+	}
+
+	/**
+	 * 事务中的写操作从事务结束时重新计时，事务持续时间超过时长时提交后的读操作仍使用主库
+	 */
+	@Test
+	public void writeInTransactionSticksFromCompletion() throws Exception {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(writer));
+		transactionTemplate.execute(new TransactionCallback<Object>() {
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+				ReadWriteRoutingContext.markWritten();
+				ReadWriteRoutingContext.markWritten();
+				try {
+					Thread.sleep(STICKY_MILLIS * 2);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}
+		});
+		ReadWriteRoutingContext.setRead(true);
+		assertEquals(ReadWriteRoutingDataSource.WRITER, routingDataSource.determineCurrentLookupKey());
+
+		Thread.sleep(STICKY_MILLIS * 2);
+		assertEquals("replica1", routingDataSource.determineCurrentLookupKey());
+	}
+}
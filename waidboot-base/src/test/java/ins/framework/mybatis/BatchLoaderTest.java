@@ -0,0 +1,127 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+public class BatchLoaderTest {
+
+	private PooledDataSource dataSource;
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private SqlSession session;
+	/** 每次selectBatchByPrimaryKeys的主键列表 */
+	private final List<List<Long>> batches = new ArrayList<List<Long>>();
+	private UserinfoDao dao;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = H2Support.userinfoDataSource("batchLoader");
+		H2Support.insertUserinfo(dataSource, 1, 1, 2, 3, 4, 5);
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		session = H2Support.userinfoSqlSessionFactory("batchLoader", dataSource, offsetLimitInterceptor)
+				.openSession();
+		final UserinfoDao target = session.getMapper(UserinfoDao.class);
+		dao = (UserinfoDao) Proxy.newProxyInstance(UserinfoDao.class.getClassLoader(),
+				new Class<?>[] { UserinfoDao.class }, new InvocationHandler() {
+					@SuppressWarnings("unchecked")
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if ("selectBatchByPrimaryKeys".equals(method.getName())) {
+							batches.add(new ArrayList<Long>((List<Long>) args[0]));
+						}
+						try {
+							return method.invoke(target, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	@After
+	public void tearDown() {
+		session.close();
+		offsetLimitInterceptor.close();
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 重复的主键返回同一个Future且只查询一次，不存在的记录为null，结果与主键顺序对应
+	 */
+	@Test
+	public void loadAllDeduplicatesIds() {
+		BatchLoader<Userinfo, Long> loader = new BatchLoader<Userinfo, Long>(dao, "id");
+		assertSame(loader.load(3L), loader.load(3L));
+
+		List<Userinfo> rows = loader.loadAll(Arrays.asList(2L, 3L, 99L, 2L));
+		assertEquals(4, rows.size());
+		assertEquals(Long.valueOf(2), rows.get(0).getId());
+		assertEquals(Long.valueOf(3), rows.get(1).getId());
+		assertNull(rows.get(2));
+		assertSame(rows.get(0), rows.get(3));
+		assertEquals(Arrays.asList(Arrays.asList(3L, 2L, 99L)), batches);
+
+		// 已加载的主键不再查询
+		loader.loadAll(Arrays.asList(2L, 3L));
+		assertEquals(1, batches.size());
+	}
+
+	/**
+	 * 登记的主键达到批次大小时立即查询，loadAll按批次大小拆分查询
+	 */
+	@Test
+	public void splitsIntoBatches() {
+		BatchLoader<Userinfo, Long> loader = new BatchLoader<Userinfo, Long>(dao, "id", 2);
+		CompletableFuture<Userinfo> first = loader.load(1L);
+		assertFalse(first.isDone());
+		loader.load(2L);
+		assertTrue(first.isDone());
+		assertEquals(Arrays.asList(Arrays.asList(1L, 2L)), batches);
+
+		List<Userinfo> rows = loader.loadAll(Arrays.asList(1L, 3L, 4L, 5L));
+		assertEquals(4, rows.size());
+		assertEquals(Long.valueOf(5), rows.get(3).getId());
+		assertEquals(Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList(3L, 4L), Arrays.asList(5L)), batches);
+	}
+
+	/**
+	 * 不调用dispatch()时，第一次join()在调用线程中查询所有登记的主键
+	 */
+	@Test
+	public void joinDispatchesPendingIds() throws Exception {
+		BatchLoader<Userinfo, Long> loader = new BatchLoader<Userinfo, Long>(dao, "id");
+		CompletableFuture<Userinfo> first = loader.load(1L);
+		CompletableFuture<Userinfo> second = loader.load(2L);
+		CompletableFuture<Userinfo> missing = loader.load(99L);
+		assertTrue(batches.isEmpty());
+
+		assertEquals("user1", first.join().getUsername());
+		assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 99L)), batches);
+		assertTrue(second.isDone());
+		assertEquals("user2", second.get().getUsername());
+		assertNull(missing.get());
+
+		CompletableFuture<Userinfo> third = loader.load(3L);
+		assertEquals("user3", third.get().getUsername());
+		assertEquals(2, batches.size());
+	}
+}
@@ -0,0 +1,138 @@
+package ins.framework.mybatis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import com.waidboot.po.userinfo.Userinfo;
+
+/**
+ * 测试用的内嵌H2数据库，使用项目中userinfo表的Mapper XML
+ *
+ */
+public final class H2Support {
+
+	private H2Support() {
+	}
+
+	/**
+	 * 创建只含空userinfo表的内存数据库
+	 *
+	 * @param name
+	 *            数据库名，同名时为同一个数据库
+	 */
+	public static PooledDataSource userinfoDataSource(String name) throws SQLException {
+		PooledDataSource dataSource = new PooledDataSource("org.h2.Driver",
+				"jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("drop table if exists userinfo");
+			statement.execute("create table userinfo (id bigint primary key, username varchar(50), sex int, age int)");
+			statement.close();
+		} finally {
+			connection.close();
+		}
+		return dataSource;
+	}
+
+	/**
+	 * 插入userinfo记录，username为user+id，age为18+id
+	 */
+	public static void insertUserinfo(DataSource dataSource, int sex, long... ids) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			PreparedStatement insert = connection.prepareStatement("insert into userinfo values (?, ?, ?, ?)");
+			for (long id : ids) {
+				insert.setLong(1, id);
+				insert.setString(2, "user" + id);
+				insert.setInt(3, sex);
+				insert.setLong(4, 18 + id);
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * 插入userinfo记录
+	 */
+	public static void insertUserinfo(DataSource dataSource, List<Userinfo> rows) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			PreparedStatement insert = connection.prepareStatement("insert into userinfo values (?, ?, ?, ?)");
+			for (Userinfo row : rows) {
+				insert.setLong(1, row.getId());
+				insert.setString(2, row.getUsername());
+				insert.setInt(3, row.getSex());
+				insert.setInt(4, row.getAge());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+			insert.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * userinfo表的记录数
+	 */
+	public static int countUserinfo(DataSource dataSource) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery("select count(1) from userinfo");
+			rs.next();
+			int count = rs.getInt(1);
+			statement.close();
+			return count;
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 * 加载userinfo的Mapper XML，关闭二级缓存
+	 *
+	 * @param name
+	 *            SqlSessionFactory的名称
+	 * @param offsetLimitInterceptor
+	 *            分页插件，可由多个SqlSessionFactory共用
+	 * @param interceptors
+	 *            其他插件
+	 */
+	public static SqlSessionFactory userinfoSqlSessionFactory(String name, DataSource dataSource,
+			OffsetLimitInterceptor offsetLimitInterceptor, Interceptor... interceptors) throws Exception {
+		Configuration configuration = new Configuration(
+				new Environment(name, new JdbcTransactionFactory(), dataSource));
+		configuration.setCacheEnabled(false);
+		configuration.addInterceptor(offsetLimitInterceptor);
+		for (Interceptor interceptor : interceptors) {
+			configuration.addInterceptor(interceptor);
+		}
+		MapperLocations.parse(configuration,
+				new Resource[] { new ClassPathResource("mapper/base/userinfo/UserinfoBaseDao.xml"),
+						new ClassPathResource("mapper/custom/userinfo/UserinfoDao.xml") });
+		offsetLimitInterceptor.registerDialect(name, configuration);
+		return new SqlSessionFactoryBuilder().build(configuration);
+	}
+}
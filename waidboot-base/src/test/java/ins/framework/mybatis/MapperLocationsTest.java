@@ -0,0 +1,58 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import org.junit.Test;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+public class MapperLocationsTest {
+
+	private static final String HEAD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n";
+
+	/**
+	 * 按namespace所在的包过滤，读到&lt;mapper&gt;开始标签即停止，不读取XML的其余部分
+	 */
+	@Test
+	public void filterReadsOnlyUpToMapperElement() throws IOException {
+		Resource main = new MapperResource(HEAD + "<mapper\n\tnamespace=\"com.waidboot.dao.mainsource.userinfo.UserinfoDao\">\n");
+		Resource second = new MapperResource(HEAD + "<mapper namespace='com.waidboot.dao.secondsource.AddressinfoDao'>\n");
+		Resource other = new MapperResource(HEAD + "<mapper namespace=\"com.waidboot.dao.mainsourcex.OtherDao\">\n");
+
+		assertArrayEquals(new Resource[] { main },
+				MapperLocations.filter(new Resource[] { main, second, other }, "com.waidboot.dao.mainsource"));
+	}
+
+	/**
+	 * &lt;mapper&gt;开始标签之后读取即失败的XML
+	 */
+	private static class MapperResource extends AbstractResource {
+
+		private final String head;
+
+		MapperResource(String head) {
+			this.head = head;
+		}
+
+		@Override
+		public String getDescription() {
+			return "mapper " + head.hashCode();
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			return new SequenceInputStream(new ByteArrayInputStream(head.getBytes("UTF-8")), new InputStream() {
+				@Override
+				public int read() throws IOException {
+					throw new IOException("read past <mapper>");
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+public class MybatisBatchUtilsTest {
+
+	private PooledDataSource dataSource;
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private SqlSession session;
+	private UserinfoDao dao;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = H2Support.userinfoDataSource("batchUtils");
+		H2Support.insertUserinfo(dataSource, 1, 1, 2, 3, 4, 5);
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		session = H2Support.userinfoSqlSessionFactory("batchUtils", dataSource, offsetLimitInterceptor)
+				.openSession();
+		dao = session.getMapper(UserinfoDao.class);
+	}
+
+	@After
+	public void tearDown() {
+		session.close();
+		offsetLimitInterceptor.close();
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 结果按传入的主键顺序返回，跨批次及并行执行时也一样，不存在的主键没有对应记录
+	 */
+	@Test
+	public void selectBatchKeepsRequestedOrder() {
+		List<Long> ids = Arrays.asList(5L, 1L, 99L, 3L, 2L);
+		assertEquals(Arrays.asList(5L, 1L, 3L, 2L), ids(MybatisBatchUtils.selectBatchByPrimaryKeys(dao, ids, "id")));
+		assertEquals(Arrays.asList(5L, 1L, 3L, 2L),
+				ids(MybatisBatchUtils.selectBatchByPrimaryKeys(dao, ids, "id", 2, null)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			assertEquals(Arrays.asList(5L, 1L, 3L, 2L),
+					ids(MybatisBatchUtils.selectBatchByPrimaryKeys(dao, ids, "id", 2, executor)));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 重复的主键只返回一条，位置为第一次出现的位置
+	 */
+	@Test
+	public void selectBatchReturnsDuplicateIdsOnce() {
+		List<Userinfo> rows = MybatisBatchUtils.selectBatchByPrimaryKeys(dao, Arrays.asList(3L, 1L, 3L, 1L, 4L),
+				"id", 2, null);
+		assertEquals(Arrays.asList(3L, 1L, 4L), ids(rows));
+	}
+
+	/**
+	 * Integer主键可以对应Long类型的主键属性
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Test
+	public void selectBatchNormalizesIntegerIds() {
+		MybatisBaseDao rawDao = dao;
+		List<Userinfo> rows = MybatisBatchUtils.selectBatchByPrimaryKeys(rawDao, Arrays.asList(2, 1, 2), "id");
+		assertEquals(Arrays.asList(2L, 1L), ids(rows));
+	}
+
+	/**
+	 * 查询结果无法与传入的主键对应时抛出异常，而不是返回空结果
+	 */
+	@Test
+	public void selectBatchFailsOnUnmatchedIdProperty() {
+		try {
+			MybatisBatchUtils.selectBatchByPrimaryKeys(dao, Arrays.asList(1L, 2L), "username");
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("username"));
+		}
+	}
+
+	@Test
+	public void primaryKeyValueNormalizesIntegralNumbers() {
+		assertEquals(Long.valueOf(7), MybatisBatchUtils.primaryKeyValue(7));
+		assertEquals(Long.valueOf(7), MybatisBatchUtils.primaryKeyValue((short) 7));
+		assertEquals(Long.valueOf(7), MybatisBatchUtils.primaryKeyValue(new BigDecimal("7.00")));
+		BigDecimal fraction = new BigDecimal("7.5");
+		assertSame(fraction, MybatisBatchUtils.primaryKeyValue(fraction));
+		assertEquals("7", MybatisBatchUtils.primaryKeyValue("7"));
+	}
+
+	private static List<Long> ids(List<Userinfo> rows) {
+		List<Long> ids = new ArrayList<Long>(rows.size());
+		for (Userinfo row : rows) {
+			ids.add(row.getId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,126 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+public class OffsetLimitInterceptorTest {
+
+	private PooledDataSource dataSource;
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private SqlSessionFactory sqlSessionFactory;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = H2Support.userinfoDataSource("offsetLimit");
+		H2Support.insertUserinfo(dataSource, 1, 1, 2, 3, 4, 5);
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		sqlSessionFactory = H2Support.userinfoSqlSessionFactory("offsetLimit", dataSource, offsetLimitInterceptor);
+	}
+
+	@After
+	public void tearDown() {
+		offsetLimitInterceptor.close();
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 两个SqlSessionFactory的同名statement分别缓存分页MappedStatement，分页SQL使用各自的Configuration
+	 */
+	@Test
+	public void pageStatementsAreCachedPerConfiguration() throws Exception {
+		PooledDataSource otherDataSource = H2Support.userinfoDataSource("offsetLimitOther");
+		try {
+			H2Support.insertUserinfo(otherDataSource, 1, 6, 7);
+			SqlSessionFactory otherFactory = H2Support.userinfoSqlSessionFactory("offsetLimitOther", otherDataSource,
+					offsetLimitInterceptor);
+			assertEquals(5, selectPage(sqlSessionFactory).getTotalCount());
+			assertEquals(2, selectPage(otherFactory).getTotalCount());
+			assertEquals(5, selectPage(sqlSessionFactory).getTotalCount());
+
+			Map<String, MappedStatement> statements = offsetLimitInterceptor.pageStatementCache
+					.get(sqlSessionFactory.getConfiguration());
+			Map<String, MappedStatement> otherStatements = offsetLimitInterceptor.pageStatementCache
+					.get(otherFactory.getConfiguration());
+			assertEquals(2, offsetLimitInterceptor.pageStatementCache.size());
+			assertEquals(1, statements.size());
+			assertEquals(1, otherStatements.size());
+			assertSame(sqlSessionFactory.getConfiguration(),
+					statements.values().iterator().next().getConfiguration());
+			assertSame(otherFactory.getConfiguration(), otherStatements.values().iterator().next().getConfiguration());
+		} finally {
+			otherDataSource.forceCloseAll();
+		}
+	}
+
+	/**
+	 * 列按表中的顺序生成，重复的属性名只出现一次，未知的属性名被忽略
+	 */
+	@Test
+	public void projectionSelectsEachColumnOnce() {
+		Map<String, Object> parameter = new HashMap<String, Object>();
+		parameter.put("entity", null);
+		parameter.put("columns", new String[] { "age", "username", "age", "password" });
+		String sql = sqlSessionFactory.getConfiguration()
+				.getMappedStatement("com.waidboot.dao.mainsource.userinfo.UserinfoDao.selectPageColumns")
+				.getBoundSql(parameter).getSql();
+		assertEquals("select id,username,age from userinfo",
+				sql.replaceAll("\\s*,\\s*", ",").replaceAll("\\s+", " ").trim());
+	}
+
+	/**
+	 * 重复的列在Seek分页的外层查询中只出现一次，续页令牌可用于查询下一页
+	 */
+	@Test
+	public void seekPageWithRepeatedColumns() {
+		Userinfo condition = new Userinfo();
+		condition.setSex(1);
+		SqlSession session = sqlSessionFactory.openSession();
+		try {
+			UserinfoDao dao = session.getMapper(UserinfoDao.class);
+			PageParam pageParam = new PageParam(PageParam.NO_PAGE, 3, Order.formString("id.asc"));
+			pageParam.setSeekToken("");
+			Page<Userinfo> first = dao.selectPageColumns(pageParam, condition, "username", "id", "username");
+			assertEquals(3, first.size());
+			assertEquals("user1", first.get(0).getUsername());
+			assertNull(first.get(0).getAge());
+			assertNotNull(first.getNextPageToken());
+
+			pageParam = new PageParam(PageParam.NO_PAGE, 3, Order.formString("id.asc"));
+			pageParam.setSeekToken(first.getNextPageToken());
+			Page<Userinfo> second = dao.selectPageColumns(pageParam, condition, "username", "username");
+			assertEquals(2, second.size());
+			assertEquals(Long.valueOf(4), second.get(0).getId());
+			assertEquals("user4", second.get(0).getUsername());
+		} finally {
+			session.close();
+		}
+	}
+
+	private Page<Userinfo> selectPage(SqlSessionFactory factory) {
+		Userinfo condition = new Userinfo();
+		condition.setSex(1);
+		SqlSession session = factory.openSession();
+		try {
+			return session.getMapper(UserinfoDao.class).selectPage(new PageParam(1, 2), condition);
+		} finally {
+			session.close();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import com.waidboot.po.userinfo.Userinfo;
+
+public class RowWriterTest {
+
+	/**
+	 * 可能被表格程序当作公式的文本前加单引号，数值不变
+	 */
+	@Test
+	public void csvEscapesFormulaCells() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RowWriter writer = new RowWriter.Csv(out, "id", "username", "age");
+		writer.write(row(1L, "=HYPERLINK(\"http://x\",\"a\")", -5));
+		writer.write(row(2L, "+1", 18));
+		writer.write(row(3L, "-1", 18));
+		writer.write(row(4L, "@SUM(A1)", 18));
+		writer.write(row(5L, "user=5", 18));
+		writer.finish();
+
+		String csv = new String(out.toByteArray(), "UTF-8");
+		assertEquals("\uFEFFid,username,age\r\n"
+				+ "1,\"'=HYPERLINK(\"\"http://x\"\",\"\"a\"\")\",-5\r\n"
+				+ "2,'+1,18\r\n"
+				+ "3,'-1,18\r\n"
+				+ "4,'@SUM(A1),18\r\n"
+				+ "5,user=5,18\r\n", csv);
+	}
+
+	private static Userinfo row(Long id, String username, Integer age) {
+		Userinfo row = new Userinfo();
+		row.setId(id);
+		row.setUsername(username);
+		row.setAge(age);
+		return row;
+	}
+}
@@ -0,0 +1,69 @@
+package ins.framework.mybatis;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+public class TotalCountCacheTest {
+
+	private PooledDataSource firstDataSource;
+	private PooledDataSource secondDataSource;
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private TotalCountCache totalCountCache;
+	private SqlSessionFactory firstFactory;
+	private SqlSessionFactory secondFactory;
+
+	@Before
+	public void setUp() throws Exception {
+		firstDataSource = H2Support.userinfoDataSource("countCacheFirst");
+		H2Support.insertUserinfo(firstDataSource, 1, 1, 2, 3);
+		secondDataSource = H2Support.userinfoDataSource("countCacheSecond");
+		H2Support.insertUserinfo(secondDataSource, 1, 4, 5, 6, 7, 8);
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		totalCountCache = new TotalCountCache(100, 60000, 0);
+		offsetLimitInterceptor.setTotalCountCache(totalCountCache);
+		firstFactory = H2Support.userinfoSqlSessionFactory("first", firstDataSource, offsetLimitInterceptor);
+		secondFactory = H2Support.userinfoSqlSessionFactory("second", secondDataSource, offsetLimitInterceptor);
+	}
+
+	@After
+	public void tearDown() {
+		offsetLimitInterceptor.close();
+		firstDataSource.forceCloseAll();
+		secondDataSource.forceCloseAll();
+	}
+
+	/**
+	 * 两个SqlSessionFactory执行同一statement、同一参数时各自count，不共用缓存的结果
+	 */
+	@Test
+	public void sameStatementOnTwoFactoriesIsCachedSeparately() {
+		assertEquals(3, selectPage(firstFactory).getTotalCount());
+		assertEquals(5, selectPage(secondFactory).getTotalCount());
+		assertEquals(2, totalCountCache.getMisses());
+
+		assertEquals(3, selectPage(firstFactory).getTotalCount());
+		assertEquals(5, selectPage(secondFactory).getTotalCount());
+		assertEquals(2, totalCountCache.getHits());
+		assertEquals(2, totalCountCache.size());
+	}
+
+	private Page<Userinfo> selectPage(SqlSessionFactory sqlSessionFactory) {
+		Userinfo condition = new Userinfo();
+		condition.setSex(1);
+		SqlSession session = sqlSessionFactory.openSession();
+		try {
+			return session.getMapper(UserinfoDao.class).selectPage(new PageParam(1, 2), condition);
+		} finally {
+			session.close();
+		}
+	}
+}
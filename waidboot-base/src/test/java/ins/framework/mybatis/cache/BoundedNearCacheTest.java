@@ -0,0 +1,166 @@
+package ins.framework.mybatis.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.waidboot.po.userinfo.Userinfo;
+
+public class BoundedNearCacheTest {
+
+	private static final String NAMESPACE = "com.waidboot.dao.mainsource.userinfo.UserinfoDao";
+
+	private BoundedNearCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new BoundedNearCache(NAMESPACE);
+	}
+
+	/**
+	 * 按主键更新后清除包含该主键的结果及所有条件查询的结果，其他主键的结果保留
+	 */
+	@Test
+	public void invalidateRemovesRowsWithIdAndQueryResults() {
+		CacheKey user1 = key("selectByPrimaryKey", 1L);
+		CacheKey user2 = key("selectByPrimaryKey", 2L);
+		CacheKey batch = key("selectBatchByPrimaryKeys", Arrays.asList(1L, 3L));
+		CacheKey page = key("selectPage", 1);
+		cache.putObject(user1, rows(1L));
+		cache.putObject(user2, rows(2L));
+		cache.putObject(batch, rows(1L, 3L));
+		cache.putObject(page, rows(2L, 4L));
+
+		cache.invalidate(Collections.singleton(1L));
+
+		assertNull(cache.getObject(user1));
+		assertNull(cache.getObject(batch));
+		assertNull(cache.getObject(page));
+		assertNotNull(cache.getObject(user2));
+		assertEquals(1, cache.getSize());
+		assertEquals(3, cache.getInvalidations());
+	}
+
+	/**
+	 * 插入后清除条件查询的结果及为空的按主键查询结果，已存在记录的按主键查询结果保留
+	 */
+	@Test
+	public void invalidateForInsertRemovesQueryAndEmptyResults() {
+		CacheKey user1 = key("selectByPrimaryKey", 1L);
+		CacheKey missing = key("selectByPrimaryKey", 9L);
+		CacheKey page = key("selectPage", 1);
+		cache.putObject(user1, rows(1L));
+		cache.putObject(missing, new ArrayList<Userinfo>());
+		cache.putObject(page, rows(1L, 2L));
+
+		cache.invalidateForInsert();
+
+		assertNotNull(cache.getObject(user1));
+		assertNull(cache.getObject(missing));
+		assertNull(cache.getObject(page));
+		assertEquals(1, cache.getSize());
+	}
+
+	/**
+	 * 条件查询的结果被覆盖、移除或清空后不再被清除，也不计入清除次数
+	 */
+	@Test
+	public void removedQueryResultsAreNotInvalidatedAgain() {
+		CacheKey page1 = key("selectPage", 1);
+		CacheKey page2 = key("selectPage", 2);
+		cache.putObject(page1, rows(1L));
+		cache.putObject(page1, rows(1L, 2L));
+		cache.putObject(page2, rows(3L));
+		cache.removeObject(page2);
+
+		cache.invalidateForInsert();
+		assertEquals(1, cache.getInvalidations());
+		assertEquals(0, cache.getSize());
+
+		cache.putObject(page1, rows(1L));
+		cache.clear();
+		cache.invalidate(Collections.singleton(1L));
+		assertEquals(2, cache.getInvalidations());
+	}
+
+	/**
+	 * 默认设置过期时间，清除之后放入的旧记录不会一直留在缓存中
+	 */
+	@Test
+	public void entriesExpireByDefault() throws Exception {
+		assertEquals(BoundedNearCache.DEFAULT_TTL_MILLIS, new BoundedNearCache(NAMESPACE).getTtlMillis());
+
+		cache.setTtlMillis(20);
+		CacheKey user1 = key("selectByPrimaryKey", 1L);
+		cache.putObject(user1, rows(1L));
+		assertNotNull(cache.getObject(user1));
+		Thread.sleep(50);
+		assertNull(cache.getObject(user1));
+		assertEquals(1, cache.getExpirations());
+	}
+
+	/**
+	 * 同一namespace在两个Configuration中的缓存分别登记，移除一个Configuration不影响另一个
+	 */
+	@Test
+	public void registryIsKeyedByConfiguration() {
+		Configuration first = new Configuration();
+		first.addCache(new LoggingCache(cache));
+		BoundedNearCache other = new BoundedNearCache(NAMESPACE);
+		Configuration second = new Configuration();
+		second.addCache(new LoggingCache(other));
+		try {
+			BoundedNearCache.register(first);
+			BoundedNearCache.register(second);
+			assertSame(cache, BoundedNearCache.forNamespace(first, NAMESPACE));
+			assertSame(other, BoundedNearCache.forNamespace(second, NAMESPACE));
+			assertNull(BoundedNearCache.forNamespace(first, "UserinfoDao"));
+			List<BoundedNearCache> all = BoundedNearCache.forNamespace(NAMESPACE);
+			assertTrue(all.contains(cache) && all.contains(other));
+
+			BoundedNearCache.unregister(first);
+			assertNull(BoundedNearCache.forNamespace(first, NAMESPACE));
+			assertSame(other, BoundedNearCache.forNamespace(second, NAMESPACE));
+			assertEquals(Collections.singletonList(other), BoundedNearCache.forNamespace(NAMESPACE));
+		} finally {
+			BoundedNearCache.unregister(first);
+			BoundedNearCache.unregister(second);
+		}
+	}
+
+	/**
+	 * 与CachingExecutor生成的CacheKey格式相同：statementId、offset、limit、sql、参数
+	 */
+	private static CacheKey key(String method, Object parameter) {
+		CacheKey key = new CacheKey();
+		key.update(NAMESPACE + "." + method);
+		key.update(0);
+		key.update(Integer.MAX_VALUE);
+		key.update("select * from userinfo");
+		key.update(parameter);
+		return key;
+	}
+
+	private static List<Userinfo> rows(Long... ids) {
+		List<Userinfo> rows = new ArrayList<Userinfo>();
+		for (Long id : ids) {
+			Userinfo row = new Userinfo();
+			row.setId(id);
+			rows.add(row);
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,178 @@
+package ins.framework.mybatis.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import com.waidboot.po.userinfo.Userinfo;
+
+import ins.framework.mybatis.MapperLocations;
+
+/**
+ * 生成的upsert语句：H2上执行生成的MERGE，其他数据库检查生成的SQL
+ *
+ */
+public class GeneratorTest {
+
+	private static final String NAMESPACE = "com.waidboot.dao.userinfo.UserinfoDao";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PooledDataSource dataSource;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSource = new PooledDataSource("org.h2.Driver", "jdbc:h2:mem:generator;DB_CLOSE_DELAY=-1", "sa", "");
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute("drop table if exists userinfo");
+			statement.execute("create table userinfo (id bigint primary key, username varchar(50), sex int, age int)");
+			statement.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		dataSource.forceCloseAll();
+	}
+
+	/**
+	 * 从H2的表结构生成Base Mapper XML，执行生成的upsert及upsertBatch
+	 */
+	@Test
+	public void generatedMergeRunsOnH2() throws Exception {
+		GenConfig genConfig = new GenConfig();
+		genConfig.setBasePackage("com.waidboot");
+		genConfig.setSaveDir(folder.newFolder("java").getAbsolutePath());
+		genConfig.setSaveDirForXml(folder.newFolder("mapper").getAbsolutePath());
+		genConfig.setDbDriverName("org.h2.Driver");
+		genConfig.setDbUrl("jdbc:h2:mem:generator;DB_CLOSE_DELAY=-1");
+		genConfig.setDbUser("sa");
+		genConfig.setDbPassword("");
+		genConfig.setDbSchema("PUBLIC");
+		genConfig.setGenTypes(new GenType[] { GenType.BASE_MAPPER_XML });
+		Generator generator = new Generator();
+		generator.setGenConfig(genConfig);
+		generator.setParamList(
+				Collections.singletonList(new GenParam("userinfo", new String[] { "userinfo" })));
+		generator.generate();
+
+		File xml = new File(genConfig.getSaveDirForXml(), "base/userinfo/UserinfoBaseDao.xml");
+		assertTrue(xml.getPath(), xml.exists());
+		Configuration configuration = new Configuration(
+				new Environment("generator", new JdbcTransactionFactory(), dataSource));
+		configuration.setCacheEnabled(false);
+		MapperLocations.parse(configuration, new Resource[] { new FileSystemResource(xml) });
+		SqlSession session = new SqlSessionFactoryBuilder().build(configuration).openSession(true);
+		try {
+			session.insert(NAMESPACE + ".upsert", row(1L, "user1", 20));
+			session.insert(NAMESPACE + ".upsert", row(1L, "user1b", 21));
+			session.insert(NAMESPACE + ".upsertBatch", Arrays.asList(row(1L, "user1c", 22), row(2L, "user2", 30)));
+
+			List<Userinfo> rows = session.selectList(NAMESPACE + ".selectBatchByPrimaryKeys",
+					Arrays.asList(1L, 2L));
+			assertEquals(2, rows.size());
+			for (Userinfo row : rows) {
+				if (row.getId() == 1L) {
+					assertEquals("user1c", row.getUsername());
+					assertEquals(Integer.valueOf(22), row.getAge());
+				} else {
+					assertEquals("user2", row.getUsername());
+				}
+			}
+		} finally {
+			session.close();
+		}
+	}
+
+	/**
+	 * PostgreSQL使用ON CONFLICT，不生成MySQL的ON DUPLICATE KEY UPDATE
+	 */
+	@Test
+	public void postgresqlUsesOnConflict() throws Exception {
+		String sql = upsertBatch("PostgreSQL");
+		assertTrue(sql, sql.contains("on conflict (id) do update set username = excluded.username, age = excluded.age"));
+		assertTrue(sql, !sql.contains("duplicate"));
+	}
+
+	@Test
+	public void mysqlUsesOnDuplicateKeyUpdate() throws Exception {
+		String sql = upsertBatch("MySQL");
+		assertTrue(sql, sql.contains("on duplicate key update username = values(username), age = values(age)"));
+	}
+
+	/**
+	 * 不支持的数据库生成失败，而不是生成MySQL语法
+	 */
+	@Test
+	public void unsupportedDatabaseFails() throws Exception {
+		try {
+			upsertBatch("Microsoft SQL Server");
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("Microsoft SQL Server"));
+		}
+	}
+
+	private static String upsertBatch(String productName) throws Exception {
+		Database database = new Database();
+		database.setProductName(productName);
+		Generator generator = new Generator();
+		generator.database = database;
+		List<Column> columns = new ArrayList<Column>();
+		for (String name : new String[] { "id", "username", "age" }) {
+			Column column = new Column();
+			column.setName(name);
+			columns.add(column);
+		}
+		PrimaryKey primaryKey = new PrimaryKey();
+		primaryKey.setColumnName("id");
+		Table table = new Table();
+		table.setName("userinfo");
+		table.setColumns(columns);
+		table.setPrimaryKeys(Collections.singletonList(primaryKey));
+
+		StringWriter out = new StringWriter();
+		BufferedWriter bw = new BufferedWriter(out);
+		generator.buildBaseDaoSQL_UpsertBatch(bw, table, primaryKey, columns);
+		bw.flush();
+		return out.toString();
+	}
+
+	private static Userinfo row(Long id, String username, Integer age) {
+		Userinfo row = new Userinfo();
+		row.setId(id);
+		row.setUsername(username);
+		row.setSex(1);
+		row.setAge(age);
+		return row;
+	}
+}
@@ -0,0 +1,183 @@
+package ins.framework.mybatis.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+
+import com.github.miemiedev.mybatis.paginator.domain.Order;
+import com.waidboot.dao.mainsource.userinfo.UserinfoDao;
+import com.waidboot.po.userinfo.Userinfo;
+
+import ins.framework.mybatis.H2Support;
+import ins.framework.mybatis.OffsetLimitInterceptor;
+import ins.framework.mybatis.Page;
+import ins.framework.mybatis.PageParam;
+import ins.framework.mybatis.TotalCountCache;
+
+/**
+ * 在3个内嵌H2数据库上验证分片路由、多路归并及总记录数
+ *
+ */
+public class ShardedMybatisDaoTest {
+
+	private static final int SHARDS = 3;
+	private static final int ROWS = 20;
+
+	private final HashShardStrategy<Long> shardStrategy = new HashShardStrategy<Long>();
+	private final List<PooledDataSource> dataSources = new ArrayList<PooledDataSource>();
+	private final List<Userinfo> rows = new ArrayList<Userinfo>();
+	private OffsetLimitInterceptor offsetLimitInterceptor;
+	private ExecutorService executor;
+	private ShardedMybatisDao<Userinfo, Long> dao;
+
+	@Before
+	public void setUp() throws Exception {
+		offsetLimitInterceptor = new OffsetLimitInterceptor();
+		// 与生产配置相同，启用总记录数缓存
+		offsetLimitInterceptor.setTotalCountCache(new TotalCountCache(100, 60000, 0));
+		List<List<Userinfo>> shardRows = new ArrayList<List<Userinfo>>();
+		for (int i = 0; i < SHARDS; i++) {
+			shardRows.add(new ArrayList<Userinfo>());
+		}
+		for (long id = 1; id <= ROWS; id++) {
+			Userinfo row = new Userinfo();
+			row.setId(id);
+			row.setUsername("user" + id);
+			row.setSex(1);
+			// 与主键顺序不同且不重复的排序字段
+			row.setAge((int) (20 + id * 7 % ROWS));
+			rows.add(row);
+			shardRows.get(shardStrategy.shard(id, SHARDS)).add(row);
+		}
+		List<UserinfoDao> shards = new ArrayList<UserinfoDao>();
+		for (int i = 0; i < SHARDS; i++) {
+			assertTrue("shard " + i + " has no rows", shardRows.get(i).size() > 0);
+			PooledDataSource dataSource = H2Support.userinfoDataSource("shard" + i);
+			H2Support.insertUserinfo(dataSource, shardRows.get(i));
+			dataSources.add(dataSource);
+			shards.add(new SqlSessionTemplate(
+					H2Support.userinfoSqlSessionFactory("shard" + i, dataSource, offsetLimitInterceptor))
+							.getMapper(UserinfoDao.class));
+		}
+		executor = Executors.newFixedThreadPool(SHARDS);
+		dao = new ShardedMybatisDao<Userinfo, Long>(shards, shardStrategy, "id", executor);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+		offsetLimitInterceptor.close();
+		for (PooledDataSource dataSource : dataSources) {
+			dataSource.forceCloseAll();
+		}
+	}
+
+	@Test
+	public void selectByPrimaryKeyRoutesToOwningShard() {
+		for (Userinfo row : rows) {
+			Userinfo found = dao.selectByPrimaryKey(row.getId());
+			assertNotNull("id " + row.getId(), found);
+			assertEquals(row.getAge(), found.getAge());
+		}
+		assertNull(dao.selectByPrimaryKey(ROWS + 1L));
+	}
+
+	@Test
+	public void selectBatchByPrimaryKeysQueriesEveryShard() {
+		List<Long> ids = new ArrayList<Long>();
+		for (long id = ROWS; id >= 1; id--) {
+			ids.add(id);
+		}
+		ids.add(3L);
+		ids.add(ROWS + 1L);
+		List<Userinfo> found = dao.selectBatchByPrimaryKeys(ids);
+		assertEquals(ROWS, found.size());
+		Set<Long> foundIds = new HashSet<Long>();
+		for (Userinfo row : found) {
+			foundIds.add(row.getId());
+		}
+		assertEquals(ROWS, foundIds.size());
+	}
+
+	@Test
+	public void deleteBatchByPrimaryKeysDeletesOnOwningShards() throws Exception {
+		assertEquals(3, dao.deleteBatchByPrimaryKeys(Arrays.asList(1L, 2L, 3L, ROWS + 1L)));
+		int remaining = 0;
+		for (PooledDataSource dataSource : dataSources) {
+			remaining += H2Support.countUserinfo(dataSource);
+		}
+		assertEquals(ROWS - 3, remaining);
+		assertNull(dao.selectByPrimaryKey(2L));
+	}
+
+	/**
+	 * 各分片按age降序取前 offset+limit 条后归并，结果与在一个库中排序分页相同，总记录数为各分片之和
+	 */
+	@Test
+	public void selectPageMergesShardsInOrder() {
+		List<Userinfo> expected = new ArrayList<Userinfo>(rows);
+		Collections.sort(expected, new Comparator<Userinfo>() {
+			@Override
+			public int compare(Userinfo o1, Userinfo o2) {
+				return o2.getAge().compareTo(o1.getAge());
+			}
+		});
+		Userinfo condition = new Userinfo();
+		condition.setSex(1);
+		for (int pageNo = 1; pageNo <= 3; pageNo++) {
+			Page<Userinfo> page = dao.selectPage(new PageParam(pageNo, 7, Order.formString("age.desc")), condition);
+			assertEquals(ROWS, page.getTotalCount());
+			List<Userinfo> expectedPage = expected.subList((pageNo - 1) * 7, Math.min(pageNo * 7, ROWS));
+			assertEquals(ids(expectedPage), ids(page));
+		}
+		// 第二次查询使用总记录数缓存，各分片的count仍各自缓存
+		assertEquals(ROWS, dao.selectPage(new PageParam(1, 7, Order.formString("age.desc")), condition)
+				.getTotalCount());
+	}
+
+	@Test
+	public void seekPagesCoverAllRowsInOrder() {
+		Userinfo condition = new Userinfo();
+		condition.setSex(1);
+		List<Long> seen = new ArrayList<Long>();
+		String token = "";
+		do {
+			PageParam pageParam = new PageParam(PageParam.NO_PAGE, 6, Order.formString("id.asc"));
+			pageParam.setSeekToken(token);
+			Page<Userinfo> page = dao.selectPage(pageParam, condition);
+			assertTrue(page.size() <= 6);
+			seen.addAll(ids(page));
+			token = page.getNextPageToken();
+		} while (token != null);
+		List<Long> expected = new ArrayList<Long>();
+		for (long id = 1; id <= ROWS; id++) {
+			expected.add(id);
+		}
+		assertEquals(expected, seen);
+	}
+
+	private static List<Long> ids(List<Userinfo> rows) {
+		List<Long> ids = new ArrayList<Long>(rows.size());
+		for (Userinfo row : rows) {
+			ids.add(row.getId());
+		}
+		return ids;
+	}
+}